@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+/**
+ * Writes to a new Bukkit scoreboard with a sidebar objective and one team per
+ * line, whose entry is the {@link SidebarBoard#LINE_ENTRIES line entry}.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class BukkitScoreboardWriter implements ScoreboardWriter {
+
+	private final Scoreboard scoreboard;
+	private Objective objective;
+	private final Team[] teams = new Team[15];
+
+	BukkitScoreboardWriter(String title) {
+
+		scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
+
+		objective = scoreboard.registerNewObjective("obj", "dummy");
+		objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+		objective.setDisplayName(title);
+
+		for (int i = 0; i < 15; i++) {
+			Team team = scoreboard.registerNewTeam("team" + String.valueOf(i));
+			team.addEntry(SidebarBoard.LINE_ENTRIES[i]);
+			teams[i] = team;
+		}
+
+	}
+
+	@Override
+	public Scoreboard getScoreboard() {
+		return scoreboard;
+	}
+
+	@Override
+	public void setTitle(String title) {
+		objective.setDisplayName(title);
+	}
+
+	@Override
+	public void setPrefix(int line, String prefix) {
+		teams[line].setPrefix(prefix);
+	}
+
+	@Override
+	public void setSuffix(int line, String suffix) {
+		teams[line].setSuffix(suffix);
+	}
+
+	@Override
+	public void setScore(String entry, int score) {
+		objective.getScore(entry).setScore(score);
+	}
+
+	@Override
+	public void resetScore(String entry) {
+		scoreboard.resetScores(entry);
+	}
+
+	@Override
+	public void recreateObjective(String title) {
+		objective.unregister();
+		objective = scoreboard.registerNewObjective("obj", "dummy");
+		objective.setDisplayName(title);
+		objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+	}
+
+}
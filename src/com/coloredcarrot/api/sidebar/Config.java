@@ -24,10 +24,13 @@
 
 package com.coloredcarrot.api.sidebar;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 public class Config
 {
@@ -54,4 +57,83 @@ public class Config
         return yaml.getBoolean("updater.auto-download");
     }
     
+    public static boolean getBoolean_render_parallel()
+    {
+        return yaml.getBoolean("render.parallel", false);
+    }
+    
+    public static int getInt_render_threads()
+    {
+        return yaml.getInt("render.threads", 0);
+    }
+    
+    public static int getInt_limits_prefix()
+    {
+        return yaml.getInt("limits.prefix", 0);
+    }
+    
+    public static int getInt_limits_suffix()
+    {
+        return yaml.getInt("limits.suffix", 0);
+    }
+    
+    public static int getInt_limits_entry()
+    {
+        return yaml.getInt("limits.entry", 0);
+    }
+    
+    public static boolean getBoolean_scheduler_stagger()
+    {
+        return yaml.getBoolean("scheduler.stagger", true);
+    }
+    
+    public static boolean getBoolean_watchdog_enabled()
+    {
+        return yaml.getBoolean("watchdog.enabled", true);
+    }
+    
+    public static double getDouble_watchdog_budgetMs()
+    {
+        return yaml.getDouble("watchdog.budget-ms", 5);
+    }
+    
+    public static int getInt_bandwidth_writesPerSecond()
+    {
+        return yaml.getInt("bandwidth.writes-per-second", 0);
+    }
+    
+    public static long getLong_diagnostics_windowSeconds()
+    {
+        return yaml.getLong("diagnostics.window-seconds", 60);
+    }
+    
+    public static boolean getBoolean_placeholders_cache_enabled()
+    {
+        return yaml.getBoolean("placeholders.cache.enabled", false);
+    }
+    
+    public static long getLong_placeholders_cache_defaultTtl()
+    {
+        return yaml.getLong("placeholders.cache.default-ttl", 1000);
+    }
+    
+    public static int getInt_placeholders_cache_maxRefreshesPerTick()
+    {
+        return yaml.getInt("placeholders.cache.max-refreshes-per-tick", 50);
+    }
+    
+    public static Map<String, Long> getMap_placeholders_cache_ttl()
+    {
+        
+        Map<String, Long> ttls = new HashMap<>();
+        ConfigurationSection section = yaml.getConfigurationSection("placeholders.cache.ttl");
+        
+        if (section != null)
+            for (String placeholder : section.getKeys(false))
+                ttls.put(placeholder, section.getLong(placeholder));
+        
+        return ttls;
+        
+    }
+    
 }
@@ -26,23 +26,28 @@ package com.coloredcarrot.api.sidebar;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.scoreboard.DisplaySlot;
 import org.bukkit.scoreboard.Objective;
 import org.bukkit.scoreboard.Scoreboard;
-import org.bukkit.scoreboard.ScoreboardManager;
 import org.bukkit.scoreboard.Team;
 
 /**
@@ -52,25 +57,61 @@ import org.bukkit.scoreboard.Team;
  */
 public class LongSidebar implements ConfigurationSerializable, Sidebars {
 
-	private static transient ScoreboardManager bukkitManager = Bukkit.getScoreboardManager();
+	// One objective and one set of teams for each of the three update states
+	private static final String[] OBJECTIVE_NAMES = { "obj", "obj1", "obj2" };
+	private static final String[] TEAM_NAMES = { "team", "iteam", "iiteam" };
 
 	static {
 		ConfigurationSerialization.registerClass(LongSidebar.class);
 	}
 
 	private final transient Plugin owningPlugin;
-	private List<SidebarString> entries;
+	private final SidebarEntries entries;
 	private transient Scoreboard bukkitScoreboard;
-	private transient Objective bukkitObjective;
-	private transient Objective bukkitObjective1;
-	private transient Objective bukkitObjective2;
+	private transient Objective[] bukkitObjectives = new Objective[3];
 	private transient BukkitTask updateTask;
+	private transient final Set<UUID> viewers = Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
 	private String title;
 	private Player setPlaceholdersOnUpdate = null;
-	private transient Team[] teams = new Team[15];
-	private transient Team[] teams1 = new Team[15];
-	private transient Team[] teams2 = new Team[15];
+	private transient Team[][] teams = new Team[3][15];
 	private transient int updateState = 0;
+	/**
+	 * The update state whose objective is in the sidebar display slot.
+	 */
+	private transient int displayedState = 0;
+	private transient final SidebarFrame frame = new SidebarFrame(15);
+	/**
+	 * The entry each line of {@link #frame} was last rendered from, and its
+	 * position in the entry's animation.
+	 */
+	private transient final SidebarString.Cursor[] cursors = new SidebarString.Cursor[15];
+	private transient int renders = 0;
+	private transient final SidebarListeners listeners = new SidebarListeners();
+	private transient boolean everShown = false;
+	private transient final SidebarFrame[] applied = { new SidebarFrame(15), new SidebarFrame(15),
+			new SidebarFrame(15) };
+	private transient ForkJoinTask<SidebarFrame> pendingFrame;
+	private transient final PlaceholderIndex placeholders = new PlaceholderIndex();
+	/**
+	 * The lines invalidated by events or placeholder changes since they were
+	 * last rendered, see {@link SidebarTriggers#line(int)}. Only accessed
+	 * from the server thread.
+	 */
+	private transient int invalidLines;
+	private transient final Runnable triggeredUpdate = new Runnable() {
+		@Override
+		public void run() {
+			updateLines();
+		}
+	};
+	private transient final Runnable deferredWrite = new Runnable() {
+		@Override
+		public void run() {
+			// a frame rendering meanwhile carries the latest text
+			if (pendingFrame == null)
+				applyFrame(frame);
+		}
+	};
 
 	/**
 	 * Constructs a new Sidebar.
@@ -88,27 +129,18 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	public LongSidebar(String title, Plugin plugin, int updateDelayInTicks, SidebarString... entries) {
 
 		this.title = title;
-		this.entries = new ArrayList<>(Arrays.asList(entries));
+		this.entries = new SidebarEntries(Arrays.asList(entries));
 		this.owningPlugin = plugin;
 
-		bukkitScoreboard = bukkitManager.getNewScoreboard();
-
-		bukkitObjective = bukkitScoreboard.registerNewObjective("obj", "dummy");
-		bukkitObjective1 = bukkitScoreboard.registerNewObjective("obj1", "dummy");
-		bukkitObjective2 = bukkitScoreboard.registerNewObjective("obj2", "dummy");
-		bukkitObjective.setDisplaySlot(DisplaySlot.SIDEBAR);
-		bukkitObjective.setDisplayName(this.title);
-		bukkitObjective1.setDisplayName(this.title);
-		bukkitObjective2.setDisplayName(this.title);
-
-		for (int i = 0; i < 15; i++) {
-			Team team = bukkitScoreboard.registerNewTeam("team" + String.valueOf(i));
-			Team team1 = bukkitScoreboard.registerNewTeam("iteam" + String.valueOf(i));
-			Team team2 = bukkitScoreboard.registerNewTeam("iiteam" + String.valueOf(i));
-			teams[i] = team;
-			teams1[i] = team1;
-			teams2[i] = team2;
+		bukkitScoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
+
+		for (int b = 0; b < 3; b++) {
+			bukkitObjectives[b] = bukkitScoreboard.registerNewObjective(OBJECTIVE_NAMES[b], "dummy");
+			bukkitObjectives[b].setDisplayName(this.title);
+			for (int i = 0; i < 15; i++)
+				teams[b][i] = bukkitScoreboard.registerNewTeam(TEAM_NAMES[b] + String.valueOf(i));
 		}
+		bukkitObjectives[0].setDisplaySlot(DisplaySlot.SIDEBAR);
 		update();
 
 		setUpdateDelay(plugin, updateDelayInTicks);
@@ -120,7 +152,7 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	@SuppressWarnings("unchecked")
 	public LongSidebar(Map<String, Object> map) {
 
-		entries = (List<SidebarString>) map.get("entries");
+		entries = new SidebarEntries((List<SidebarString>) map.get("entries"));
 		title = (String) map.get("title");
 
 		if (map.containsKey("placeholders"))
@@ -135,7 +167,7 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 
 		Map<String, Object> map = new HashMap<>();
 
-		map.put("entries", entries);
+		map.put("entries", new ArrayList<>(entries.asList()));
 		map.put("title", title);
 
 		if (setPlaceholdersOnUpdate != null)
@@ -171,28 +203,41 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	}
 
 	/**
-	 * Sets how many server ticks to wait in between each update.
+	 * Sets how many server ticks to wait in between each update. Since 3.1,
+	 * the first update is scheduled on the tick within the delay on which the
+	 * fewest other sidebar updates run, so that sidebars created at the same
+	 * time do not all update on the same tick; see {@link SidebarScheduler}.
 	 *
 	 * @param plugin
 	 *            (Plugin) - your plugin
 	 * @param delayInTicks
-	 *            (int) - the ticks
+	 *            (int) - the ticks; since 3.1, 0 stops the updates, e.g. if
+	 *            all entries {@link SidebarString#updateOn(Class) update on
+	 *            events}
 	 * @return (LongSidebar) - this LongSidebar Object, for chaining.
 	 */
 	public LongSidebar setUpdateDelay(Plugin plugin, int delayInTicks) {
 
-		if (delayInTicks < 1)
-			throw new IllegalArgumentException("delayInTicks cannot be less than 1!");
+		if (delayInTicks < 0)
+			throw new IllegalArgumentException("delayInTicks cannot be less than 0!");
+
+		SidebarScheduler.cancel(updateTask);
+		updateTask = null;
 
-		if (updateTask != null)
-			updateTask.cancel();
+		if (delayInTicks == 0)
+			return this;
 
-		updateTask = (new BukkitRunnable() {
+		updateTask = SidebarScheduler.schedule(plugin, delayInTicks, new SidebarWatchdog.Update() {
 			@Override
-			public void run() {
-				update();
+			boolean isVisible() {
+				return LongSidebar.this.isVisible();
 			}
-		}).runTaskTimer(plugin, delayInTicks, delayInTicks);
+
+			@Override
+			void update() {
+				LongSidebar.this.update();
+			}
+		});
 
 		return this;
 
@@ -200,6 +245,7 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 
 	/**
 	 * Sets all placeholders for every SidebarString and every variation.
+	 * Since 3.1, entries without placeholders are skipped.
 	 *
 	 * @param forPlayer
 	 *            (Player) - what player to set the placeholders for
@@ -207,11 +253,25 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	 * @since 2.4
 	 */
 	public LongSidebar setAllPlaceholders(Player forPlayer) {
-		for (SidebarString entry : entries)
-			entry.setPlaceholders(forPlayer);
+		setAllPlaceholders(entries.snapshot(), forPlayer);
 		return this;
 	}
 
+	private void setAllPlaceholders(SidebarString[] snapshot, Player forPlayer) {
+		for (SidebarString entry : placeholders.dynamic(snapshot))
+			entry.setPlaceholders(forPlayer);
+	}
+
+	/**
+	 * Resolves and renders the entries showing a placeholder again if this
+	 * LongSidebar sets its placeholders for the player.
+	 */
+	void placeholderChanged(Player player, String identifier) {
+		Player placeholderPlayer = setPlaceholdersOnUpdate;
+		if (placeholderPlayer != null && placeholderPlayer.getUniqueId().equals(player.getUniqueId()))
+			invalidate(placeholders.showing(entries.snapshot(), identifier));
+	}
+
 	/**
 	 * Gets the title of this Sidebar.
 	 *
@@ -235,24 +295,29 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	}
 
 	/**
-	 * Gets a list of all entries.
+	 * Gets a list of all entries. The list is backed by this sidebar, so
+	 * changes to it show on the next update. Since 3.1, the entries may be
+	 * read and changed from any thread, through the list or through
+	 * {@link #setEntries(List)}, {@link #addEntry(SidebarString...)} and
+	 * {@link #removeEntry(SidebarString)}.
 	 *
 	 * @return (List : SidebarString) - all entries.
 	 */
 	@Override
 	public List<SidebarString> getEntries() {
-		return entries;
+		return entries.asList();
 	}
 
 	/**
-	 * Overrides all current entries.
+	 * Overrides all current entries. The list is copied, so later changes to
+	 * it do not affect this LongSidebar.
 	 *
 	 * @param entries
 	 *            (List: SidebarString) - the new entries
 	 * @return (LongSidebar) - this LongSidebar Object, for chaining.
 	 */
 	public LongSidebar setEntries(List<SidebarString> entries) {
-		this.entries = entries;
+		this.entries.set(entries);
 		return this;
 	}
 
@@ -264,7 +329,7 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	 * @return (LongSidebar) - this LongSidebar Object, for chaining.
 	 */
 	public LongSidebar addEntry(SidebarString... entries) {
-		this.entries.addAll(Arrays.asList(entries));
+		this.entries.add(entries);
 		return this;
 	}
 
@@ -292,6 +357,85 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 		return this;
 	}
 
+	@Override
+	public void addListener(SidebarListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public boolean removeListener(SidebarListener listener) {
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Checks whether any player may see this Sidebar, i.e. whether it has
+	 * never been shown with {@link #showTo(Player)}, in which case it may
+	 * have been shown another way, or any of its viewers is online.
+	 */
+	private boolean isVisible() {
+		if (!everShown)
+			return true;
+		for (UUID viewer : viewers)
+			if (Bukkit.getPlayer(viewer) != null)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Invalidates the entries that update on an event and queues an update,
+	 * unless the event is about a player this LongSidebar is not shown to.
+	 */
+	void trigger(Event event, UUID player) {
+		if (player != null && everShown && !viewers.contains(player))
+			return;
+		invalidate(SidebarTriggers.invalidate(entries.snapshot(), event, setPlaceholdersOnUpdate));
+	}
+
+	private void invalidate(int lines) {
+		if (lines == 0)
+			return;
+		invalidLines |= lines;
+		SidebarTriggers.queue(triggeredUpdate);
+	}
+
+	/**
+	 * Renders only the lines invalidated since they were last rendered, on
+	 * the server thread, without polling the other lines or setting all
+	 * placeholders. If this LongSidebar renders in parallel and a frame is
+	 * still rendering, this is tried again on the next tick.
+	 */
+	private void updateLines() {
+
+		if (invalidLines == 0)
+			return;
+
+		if (pendingFrame != null) {
+			if (!pendingFrame.isDone()) {
+				SidebarTriggers.queue(triggeredUpdate);
+				return;
+			}
+			applyPendingFrame();
+		}
+
+		SidebarString[] snapshot = entries.snapshot();
+		if (Math.min(snapshot.length, 15) != frame.size) {
+			// the lines moved since the last frame
+			update();
+			return;
+		}
+
+		if (!listeners.isEmpty() && !listeners.preRender(this))
+			return;
+
+		int lines = invalidLines;
+		invalidLines = 0;
+
+		placeholders.setPlaceholders(snapshot, cursors, lines, setPlaceholdersOnUpdate);
+
+		applyFrame(render(snapshot, lines, false));
+
+	}
+
 	/**
 	 * Shows this Sidebar to a player.
 	 *
@@ -300,6 +444,8 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	 * @return (LongSidebar) - this LongSidebar Object, for chaining.
 	 */
 	public LongSidebar showTo(Player player) {
+		viewers.add(player.getUniqueId());
+		everShown = true;
 		player.setScoreboard(bukkitScoreboard);
 		return this;
 	}
@@ -312,7 +458,8 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	 * @return (LongSidebar) - this LongSidebar Object, for chaining.
 	 */
 	public LongSidebar hideFrom(Player player) {
-		player.setScoreboard(bukkitManager.getMainScoreboard());
+		viewers.remove(player.getUniqueId());
+		player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
 		return this;
 	}
 
@@ -320,129 +467,130 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	 * Updates the sidebar (it's entries and title). If
 	 * {@link #getPlaceholderPlayerForUpdate()} is not null, this will also run
 	 * {@link #setAllPlaceholders(Player)} with
-	 * {@link #getPlaceholderPlayerForUpdate()} as the argument.
+	 * {@link #getPlaceholderPlayerForUpdate()} as the argument. If
+	 * {@link SidebarRenderer#isParallel() parallel rendering} is enabled, this
+	 * applies the frame rendered during the last update and starts rendering
+	 * the next one.
 	 *
 	 * @return (LongSidebar) - this LongSidebar Object, for chaining.
 	 */
 	public LongSidebar update() {
 
-		if (setPlaceholdersOnUpdate != null)
-			setAllPlaceholders(setPlaceholdersOnUpdate);
+		// Never touch the entries while the last frame is still rendering
+		if (pendingFrame != null && !pendingFrame.isDone())
+			return this;
 
-		updateAntiFlicker();
+		if (!listeners.isEmpty() && !listeners.preRender(this))
+			return this;
 
-		return this;
+		// Read the entries once so the whole frame is rendered from the same
+		// snapshot, even if another thread modifies them meanwhile
+		final SidebarString[] snapshot = entries.snapshot();
+		final int invalid = invalidLines;
+		invalidLines = 0;
 
-	}
+		if (SidebarRenderer.isParallel()) {
 
-	/*
-	 * Code by fren_gor
-	 */
-	private void updateOne() {
-
-		redoBukkitObjective1();
-
-		for (int i = 0; i < entries.size(); i++) {
-
-			SidebarString entry = entries.get(i);
-			String entryStr = ChatColor.translateAlternateColorCodes('&',
-					entry.getNextAndTrim(owningPlugin.getLogger(), true));
-
-			teams[i].setSuffix("");
-
-			if (entryStr.length() <= 16) {
-				// Simple case: prefix is sufficient to show whole string
-				teams[i].setPrefix(entryStr);
-
-				teams[i].addEntry(ChatColor.values()[i] + "r");
-
-				bukkitObjective.getScore(ChatColor.values()[i] + "r").setScore(entries.size() - 1 - i);
-
-			} else {
+			if (pendingFrame != null)
+				applyPendingFrame();
 
-				String s1 = entryStr.length() <= 16 ? entryStr : entryStr.substring(0, 16);
-				String s2 = "";
-				if (entryStr.length() > 16)
-					s2 = entryStr.length() <= 50 ? entryStr.substring(16) : entryStr.substring(16, 50);
-				String s3 = "";
-				if (entryStr.length() > 50)
-					s3 = entryStr.substring(50);
+			placeholders.setPlaceholders(snapshot, cursors, -1, setPlaceholdersOnUpdate);
 
-				if (!entryStr.contains("")) {
-					if (entryStr.length() <= 50) {
-
-						teams[i].setPrefix(s1);
-						teams[i].addEntry(ChatColor.values()[i] + "r" + s2);
-						bukkitObjective.getScore(ChatColor.values()[i] + "r" + s1).setScore(entries.size() - 1 - i);
-
-					} else {
-
-						teams[i].setPrefix(s1);
-						teams[i].addEntry(ChatColor.values()[i] + "r" + s2);
-						teams[i].setSuffix(s3);
-						bukkitObjective.getScore(ChatColor.values()[i] + "r" + s3).setScore(entries.size() - 1 - i);
-					}
+			pendingFrame = SidebarRenderer.submit(new Callable<SidebarFrame>() {
+				@Override
+				public SidebarFrame call() {
+					return render(snapshot, invalid, true);
+				}
+			});
 
-				} else {
+		} else {
 
-					boolean color1 = true;
-					boolean color2 = true;
+			pendingFrame = null;
 
-					if (s1.endsWith("")) {
-						s1 = s1.substring(0, s1.length() - 1);
-						if (entryStr.length() > 16) {
-							s2 = "" + s2;
-							color1 = false;
-						}
-					}
+			placeholders.setPlaceholders(snapshot, cursors, -1, setPlaceholdersOnUpdate);
 
-					if (s2.endsWith("")) {
-						s2 = s2.substring(0, s2.length() - 1);
-						if (entryStr.length() > 50) {
-							s3 = "" + s3;
-							color2 = false;
-						}
-					}
+			applyFrame(render(snapshot, invalid, true));
 
-					String color = getLastChatColor(s1);
+		}
 
-					if (entryStr.length() <= 50) {
+		return this;
 
-						teams[i].setPrefix(s1);
-						if (color1) {
-							teams[i].addEntry(ChatColor.values()[i] + color + s2);
-							bukkitObjective.getScore(ChatColor.values()[i] + color + s2)
-									.setScore(entries.size() - 1 - i);
-						} else {
-							teams[i].addEntry(ChatColor.values()[i] + s2);
-							bukkitObjective.getScore(ChatColor.values()[i] + s2).setScore(entries.size() - 1 - i);
-						}
-					} else {
-						teams[i].setPrefix(s1);
-						if (color2) {
+	}
 
-							teams[i].addEntry(ChatColor.values()[i] + color + s2);
-							teams[i].setSuffix(getLastChatColor(s2) + s3);
-							bukkitObjective.getScore(ChatColor.values()[i] + color + s2)
-									.setScore(entries.size() - 1 - i);
+	private void applyPendingFrame() {
 
-						} else {
-							teams[i].addEntry(ChatColor.values()[i] + s2);
-							teams[i].setSuffix(s3);
-							bukkitObjective.getScore(ChatColor.values()[i] + s2).setScore(entries.size() - 1 - i);
-						}
+		ForkJoinTask<SidebarFrame> rendered = pendingFrame;
+		pendingFrame = null;
 
-					}
+		try {
+			applyFrame(rendered.join());
+		} catch (RuntimeException e) {
+			owningPlugin.getLogger().log(Level.WARNING, "[Sidebar] Could not render sidebar \"" + title + "\"", e);
+		}
 
-				}
+	}
 
+	/**
+	 * Renders the next frame of the entries into {@link #frame}, or only the
+	 * invalidated lines. This does not touch the scoreboard and may run off
+	 * the server thread.
+	 *
+	 * @param invalid
+	 *            (int) - the lines that are rendered even if they do not
+	 *            need an update
+	 * @param all
+	 *            (boolean) - whether to render the other lines as well
+	 */
+	private SidebarFrame render(SidebarString[] snapshot, int invalid, boolean all) {
+
+		boolean track = !listeners.isEmpty();
+		long start = track ? System.nanoTime() : 0;
+
+		int size = Math.min(snapshot.length, 15);
+		for (int i = 0; i < size; i++) {
+			boolean invalidated = (invalid & SidebarTriggers.line(i)) != 0;
+			if (!all && !invalidated)
+				continue;
+			SidebarString entry = snapshot[i];
+			frame.priorities[i] = entry.getPriority();
+			// Lines are held if they cannot have changed, and low priority
+			// lines while the watchdog degrades updates
+			SidebarString.Cursor cursor = cursors[i];
+			if (cursor == null || cursor.text != entry)
+				cursors[i] = cursor = new SidebarString.Cursor(entry);
+			else if (!invalidated
+					&& (!entry.needsUpdate(cursor) || SidebarWatchdog.delay(entry.getPriority(), renders)))
+				continue;
+			String next = entry.getNextAndTrim(cursor, owningPlugin.getLogger(), true);
+			// A held run keeps the line rendered last time
+			if (!entry.pollChanged(cursor))
+				continue;
+			if (track && !next.equals(frame.texts[i]) && (frame.changed & 1 << i) == 0) {
+				frame.oldTexts[i] = frame.texts[i];
+				frame.changed |= 1 << i;
 			}
+			frame.texts[i] = next;
+			renderLine(ChatColor.translateAlternateColorCodes('&', next), frame, i);
 		}
 
-		bukkitObjective2.setDisplaySlot(DisplaySlot.SIDEBAR);
+		frame.size = size;
+		if (all)
+			renders++;
+		if (track)
+			frame.renderNanos = System.nanoTime() - start;
+		return frame;
 
 	}
 
+	/**
+	 * Splits a line over the team prefix, the score entry and the team
+	 * suffix, see {@link SidebarLayout}.
+	 */
+	private static void renderLine(String entryStr, SidebarFrame frame, int i) {
+		SidebarLayout layout = SidebarLayout.of(entryStr, true);
+		frame.set(i, layout.prefix, layout.getEntry(i), layout.suffix);
+	}
+
 	/*
 	 * Code by fren_gor
 	 */
@@ -453,12 +601,12 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	 * Code by fren_gor
 	 */
 	static String getLastChatColor(String s) {
-		String color = "r";
+		String color = "§r";
 		for (int i = 0; i < s.length(); i++) {
 
-			if (s.charAt(i) == '') {
+			if (s.charAt(i) == '§') {
 				if (colors.contains(s.charAt(i + 1))) {
-					color = "" + s.charAt(i + 1);
+					color = "§" + s.charAt(i + 1);
 				}
 			}
 
@@ -471,233 +619,150 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 	/*
 	 * Code by fren_gor
 	 */
-	private void updateTwo() {
-
-		redoBukkitObjective2();
-
-		for (int i = 0; i < entries.size(); i++) {
-
-			SidebarString entry = entries.get(i);
-			String entryStr = ChatColor.translateAlternateColorCodes('&',
-					entry.getNextAndTrim(owningPlugin.getLogger(), true));
-
-			if (entryStr.length() <= 16) {
-				// Simple case: prefix is sufficient to show whole string
-				teams1[i].setPrefix(entryStr);
-				teams1[i].setSuffix("");
-
-				teams1[i].addEntry(ChatColor.values()[i] + "r");
-
-				bukkitObjective1.getScore(ChatColor.values()[i] + "r").setScore(entries.size() - 1 - i);
-
-			} else {
-
-				String s1 = entryStr.length() <= 16 ? entryStr : entryStr.substring(0, 16);
-				String s2 = "";
-				if (entryStr.length() > 16)
-					s2 = entryStr.length() <= 50 ? entryStr.substring(16) : entryStr.substring(16, 50);
-				String s3 = "";
-				if (entryStr.length() > 50)
-					s3 = entryStr.substring(50);
-
-				if (!entryStr.contains("")) {
-					if (entryStr.length() <= 50) {
-
-						teams1[i].setPrefix(s1);
-						teams1[i].addEntry(ChatColor.values()[i] + "r" + s2);
-						bukkitObjective1.getScore(ChatColor.values()[i] + "r" + s1).setScore(entries.size() - 1 - i);
-
-					} else {
-
-						teams1[i].setPrefix(s1);
-						teams1[i].addEntry(ChatColor.values()[i] + "r" + s2);
-						teams1[i].setSuffix(s3);
-						bukkitObjective1.getScore(ChatColor.values()[i] + "r" + s3).setScore(entries.size() - 1 - i);
-					}
-
-				} else {
-
-					boolean color1 = true;
-					boolean color2 = true;
-
-					if (s1.endsWith("")) {
-						s1 = s1.substring(0, s1.length() - 1);
-						if (entryStr.length() > 16) {
-							s2 = "" + s2;
-							color1 = false;
-						}
-					}
-
-					if (s2.endsWith("")) {
-						s2 = s2.substring(0, s2.length() - 1);
-						if (entryStr.length() > 50) {
-							s3 = "" + s3;
-							color2 = false;
-						}
-					}
-
-					String color = getLastChatColor(s1);
-
-					if (entryStr.length() <= 50) {
-
-						teams1[i].setPrefix(s1);
-						if (color1) {
-							teams1[i].addEntry(ChatColor.values()[i] + color + s2);
-							bukkitObjective1.getScore(ChatColor.values()[i] + color + s2)
-									.setScore(entries.size() - 1 - i);
-						} else {
-							teams1[i].addEntry(ChatColor.values()[i] + s2);
-							bukkitObjective1.getScore(ChatColor.values()[i] + s2).setScore(entries.size() - 1 - i);
-						}
-					} else {
-						teams1[i].setPrefix(s1);
-						if (color2) {
-
-							teams1[i].addEntry(ChatColor.values()[i] + color + s2);
-							teams1[i].setSuffix(getLastChatColor(s2) + s3);
-							bukkitObjective1.getScore(ChatColor.values()[i] + color + s2)
-									.setScore(entries.size() - 1 - i);
-
-						} else {
-							teams1[i].addEntry(ChatColor.values()[i] + s2);
-							teams1[i].setSuffix(s3);
-							bukkitObjective1.getScore(ChatColor.values()[i] + s2).setScore(entries.size() - 1 - i);
-						}
+	/**
+	 * Writes a rendered frame into the objective and teams of the current
+	 * update state, then shows the objective filled during the last update.
+	 * If the title and the score entries did not change since the last
+	 * update, only the changed prefixes and suffixes are written into the
+	 * teams of the last update instead, and nothing at all if no line
+	 * changed. The frame is skipped if the {@link SidebarBandwidth write
+	 * budget} of the viewers does not allow it, and tried again on the next
+	 * tick. Must run on the server thread.
+	 */
+	private void applyFrame(SidebarFrame frame) {
 
-					}
+		long start = listeners.isEmpty() ? 0 : System.nanoTime();
+		int writes = writeFrame(frame);
 
-				}
+		if (writes < 0)
+			// A skipped frame keeps its changes for the next try
+			SidebarTriggers.queue(deferredWrite);
+		else if (!listeners.isEmpty())
+			listeners.postRender(this, frame, System.nanoTime() - start, writes);
 
-			}
-		}
-
-		bukkitObjective.setDisplaySlot(DisplaySlot.SIDEBAR);
 	}
 
-	/*
-	 * Code by fren_gor
+	/**
+	 * @return (int) - the number of writes, or -1 if the frame was skipped.
 	 */
-	private void updateThree() {
-
-		redoBukkitObjective3();
-
-		for (int i = 0; i < entries.size(); i++) {
-
-			SidebarString entry = entries.get(i);
-			String entryStr = ChatColor.translateAlternateColorCodes('&',
-					entry.getNextAndTrim(owningPlugin.getLogger(), true));
-
-			teams2[i].setSuffix("");
-
-			if (entryStr.length() <= 16) {
-				// Simple case: prefix is sufficient to show whole string
-				teams2[i].setPrefix(entryStr);
-
-				teams2[i].addEntry(ChatColor.values()[i] + "r");
-
-				bukkitObjective2.getScore(ChatColor.values()[i] + "r").setScore(entries.size() - 1 - i);
-
-			} else {
-
-				String s1 = entryStr.length() <= 16 ? entryStr : entryStr.substring(0, 16);
-				String s2 = "";
-				if (entryStr.length() > 16)
-					s2 = entryStr.length() <= 50 ? entryStr.substring(16) : entryStr.substring(16, 50);
-				String s3 = "";
-				if (entryStr.length() > 50)
-					s3 = entryStr.substring(50);
-
-				if (!entryStr.contains("")) {
-					if (entryStr.length() <= 50) {
+	private int writeFrame(SidebarFrame frame) {
+
+		int last = (updateState + 2) % 3;
+		if (sameEntries(frame, applied[last]))
+			return writeLines(frame, last);
+
+		int state = updateState;
+		Team[] stateTeams = teams[state];
+		SidebarFrame stateApplied = applied[state];
+
+		// objective, title, display slot, and entry and score per line
+		int writes = 3 + 2 * frame.size;
+
+		if (SidebarBandwidth.isLimited()) {
+			int cost = writes;
+			for (int i = 0; i < frame.size; i++) {
+				if (!frame.prefixes[i].equals(stateApplied.prefixes[i]))
+					cost++;
+				if (!frame.suffixes[i].equals(stateApplied.suffixes[i]))
+					cost++;
+			}
+			if (!SidebarBandwidth.allows(viewers, cost))
+				return -1;
+		}
 
-						teams2[i].setPrefix(s1);
-						teams2[i].addEntry(ChatColor.values()[i] + "r" + s2);
-						bukkitObjective2.getScore(ChatColor.values()[i] + "r" + s1).setScore(entries.size() - 1 - i);
+		redoBukkitObjective(state);
+		Objective objective = bukkitObjectives[state];
 
-					} else {
+		for (int i = 0; i < frame.size; i++) {
 
-						teams2[i].setPrefix(s1);
-						teams2[i].addEntry(ChatColor.values()[i] + "r" + s2);
-						teams2[i].setSuffix(s3);
-						bukkitObjective2.getScore(ChatColor.values()[i] + "r" + s3).setScore(entries.size() - 1 - i);
-					}
+			if (!frame.prefixes[i].equals(stateApplied.prefixes[i])) {
+				stateTeams[i].setPrefix(frame.prefixes[i]);
+				stateApplied.prefixes[i] = frame.prefixes[i];
+				writes++;
+			}
 
-				} else {
+			if (!frame.suffixes[i].equals(stateApplied.suffixes[i])) {
+				stateTeams[i].setSuffix(frame.suffixes[i]);
+				stateApplied.suffixes[i] = frame.suffixes[i];
+				writes++;
+			}
 
-					boolean color1 = true;
-					boolean color2 = true;
+			// The entry may have moved to the team of another state since
+			stateTeams[i].addEntry(frame.entries[i]);
+			objective.getScore(frame.entries[i]).setScore(frame.size - 1 - i);
+			stateApplied.entries[i] = frame.entries[i];
 
-					if (s1.endsWith("")) {
-						s1 = s1.substring(0, s1.length() - 1);
-						if (entryStr.length() > 16) {
-							s2 = "" + s2;
-							color1 = false;
-						}
-					}
+		}
 
-					if (s2.endsWith("")) {
-						s2 = s2.substring(0, s2.length() - 1);
-						if (entryStr.length() > 50) {
-							s3 = "" + s3;
-							color2 = false;
-						}
-					}
+		stateApplied.size = frame.size;
+		stateApplied.title = title;
 
-					String color = getLastChatColor(s1);
+		displayedState = (state + 2) % 3;
+		bukkitObjectives[displayedState].setDisplaySlot(DisplaySlot.SIDEBAR);
+		updateState = (state + 1) % 3;
 
-					if (entryStr.length() <= 50) {
+		SidebarBandwidth.consume(viewers, writes);
+		return writes;
 
-						teams2[i].setPrefix(s1);
-						if (color1) {
-							teams2[i].addEntry(ChatColor.values()[i] + color + s2);
-							bukkitObjective2.getScore(ChatColor.values()[i] + color + s2)
-									.setScore(entries.size() - 1 - i);
-						} else {
-							teams2[i].addEntry(ChatColor.values()[i] + s2);
-							bukkitObjective2.getScore(ChatColor.values()[i] + s2).setScore(entries.size() - 1 - i);
-						}
-					} else {
-						teams2[i].setPrefix(s1);
-						if (color2) {
+	}
 
-							teams2[i].addEntry(ChatColor.values()[i] + color + s2);
-							teams2[i].setSuffix(getLastChatColor(s2) + s3);
-							bukkitObjective2.getScore(ChatColor.values()[i] + color + s2)
-									.setScore(entries.size() - 1 - i);
+	/**
+	 * Writes the changed prefixes and suffixes of a frame whose entries equal
+	 * the ones of an update state into the teams of that state, which hold
+	 * the entries since it was the last one written, and shows its objective.
+	 *
+	 * @return (int) - the number of writes, or -1 if the frame was skipped.
+	 */
+	private int writeLines(SidebarFrame frame, int state) {
 
-						} else {
-							teams2[i].addEntry(ChatColor.values()[i] + s2);
-							teams2[i].setSuffix(s3);
-							bukkitObjective2.getScore(ChatColor.values()[i] + s2).setScore(entries.size() - 1 - i);
-						}
+		Team[] stateTeams = teams[state];
+		SidebarFrame stateApplied = applied[state];
 
-					}
+		int writes = displayedState != state ? 1 : 0;
+		for (int i = 0; i < frame.size; i++) {
+			if (!frame.prefixes[i].equals(stateApplied.prefixes[i]))
+				writes++;
+			if (!frame.suffixes[i].equals(stateApplied.suffixes[i]))
+				writes++;
+		}
 
-				}
+		if (writes == 0)
+			return 0;
+		if (SidebarBandwidth.isLimited() && !SidebarBandwidth.allows(viewers, writes))
+			return -1;
 
+		for (int i = 0; i < frame.size; i++) {
+			if (!frame.prefixes[i].equals(stateApplied.prefixes[i])) {
+				stateTeams[i].setPrefix(frame.prefixes[i]);
+				stateApplied.prefixes[i] = frame.prefixes[i];
+			}
+			if (!frame.suffixes[i].equals(stateApplied.suffixes[i])) {
+				stateTeams[i].setSuffix(frame.suffixes[i]);
+				stateApplied.suffixes[i] = frame.suffixes[i];
 			}
 		}
 
-		bukkitObjective1.setDisplaySlot(DisplaySlot.SIDEBAR);
+		if (displayedState != state) {
+			bukkitObjectives[state].setDisplaySlot(DisplaySlot.SIDEBAR);
+			displayedState = state;
+		}
+
+		SidebarBandwidth.consume(viewers, writes);
+		return writes;
 
 	}
 
-	/*
-	 * Code by fren_gor
+	/**
+	 * Checks whether the title and the score entries of a frame equal the
+	 * ones written into an update state.
 	 */
-	private void updateAntiFlicker() {
-
-		if (updateState == 0) {
-			updateOne();
-			updateState++;
-		} else if (updateState == 1) {
-			updateTwo();
-			updateState++;
-		} else {
-			updateThree();
-			updateState = 0;
-		}
-
+	private boolean sameEntries(SidebarFrame frame, SidebarFrame stateApplied) {
+		if (frame.size != stateApplied.size || !title.equals(stateApplied.title))
+			return false;
+		for (int i = 0; i < frame.size; i++)
+			if (!frame.entries[i].equals(stateApplied.entries[i]))
+				return false;
+		return true;
 	}
 
 	/**
@@ -724,22 +789,10 @@ public class LongSidebar implements ConfigurationSerializable, Sidebars {
 		return bukkitScoreboard;
 	}
 
-	private void redoBukkitObjective1() {
-		bukkitObjective.unregister();
-		bukkitObjective = bukkitScoreboard.registerNewObjective("obj", "dummy");
-		bukkitObjective.setDisplayName(title);
-	}
-
-	private void redoBukkitObjective2() {
-		bukkitObjective1.unregister();
-		bukkitObjective1 = bukkitScoreboard.registerNewObjective("obj1", "dummy");
-		bukkitObjective1.setDisplayName(title);
-	}
-
-	private void redoBukkitObjective3() {
-		bukkitObjective2.unregister();
-		bukkitObjective2 = bukkitScoreboard.registerNewObjective("obj2", "dummy");
-		bukkitObjective2.setDisplayName(title);
+	private void redoBukkitObjective(int state) {
+		bukkitObjectives[state].unregister();
+		bukkitObjectives[state] = bukkitScoreboard.registerNewObjective(OBJECTIVE_NAMES[state], "dummy");
+		bukkitObjectives[state].setDisplayName(title);
 	}
 
 }
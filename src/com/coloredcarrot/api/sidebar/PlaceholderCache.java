@@ -0,0 +1,412 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Caches the values of PlaceholderAPI placeholders per player, so sidebars
+ * that resolve their placeholders on every update do not call into the
+ * placeholder expansions every time. The cache is disabled by default, since
+ * a cached value may be shown later than it changed; enable it with
+ * {@link #setEnabled(boolean)} or in the config.
+ * <p>
+ * Every placeholder has a time to live (TTL) in milliseconds, see
+ * {@link #setTimeToLive(String, long)}. A value that is older than its TTL is
+ * still served while a refresh is queued; queued refreshes are resolved on
+ * the server thread on a later tick, at most
+ * {@link #setMaxRefreshesPerTick(int) a limited number} per tick. Only the
+ * very first request for a placeholder resolves it immediately. A TTL of 0
+ * disables caching for that placeholder. The values of a player are evicted
+ * when the player quits, and placeholders of players that are not online
+ * are never cached.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class PlaceholderCache {
+
+	private static final ConcurrentMap<UUID, ConcurrentMap<String, Value>> values = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Long> timesToLive = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<>();
+	private static final Queue<Refresh> refreshes = new ConcurrentLinkedQueue<>();
+
+	private static volatile boolean enabled = false;
+	private static volatile long defaultTimeToLive = 1000;
+	private static volatile int maxRefreshesPerTick = 50;
+	private static BukkitTask refreshTask;
+
+	private PlaceholderCache() {
+	}
+
+	/**
+	 * Gets whether placeholder values are cached.
+	 *
+	 * @return (boolean) - true if enabled.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets whether placeholder values are cached. Disabling the cache also
+	 * clears it.
+	 *
+	 * @param enabled
+	 *            (boolean) - whether to cache
+	 */
+	public static void setEnabled(boolean enabled) {
+		PlaceholderCache.enabled = enabled;
+		if (!enabled)
+			clear();
+	}
+
+	/**
+	 * Gets the TTL used for placeholders that have no TTL of their own.
+	 *
+	 * @return (long) - the TTL in milliseconds.
+	 */
+	public static long getDefaultTimeToLive() {
+		return defaultTimeToLive;
+	}
+
+	/**
+	 * Sets the TTL used for placeholders that have no TTL of their own.
+	 *
+	 * @param millis
+	 *            (long) - the TTL in milliseconds, 0 to not cache
+	 */
+	public static void setDefaultTimeToLive(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("millis cannot be less than 0!");
+		defaultTimeToLive = millis;
+	}
+
+	/**
+	 * Sets the TTL of a placeholder. The placeholder may either be a full
+	 * identifier such as {@code vault_eco_balance}, which then only applies to
+	 * exactly that placeholder and arguments, or the identifier of an
+	 * expansion such as {@code vault}, which applies to all its placeholders.
+	 *
+	 * @param placeholder
+	 *            (String) - the placeholder, without percent signs
+	 * @param millis
+	 *            (long) - the TTL in milliseconds, 0 to not cache
+	 */
+	public static void setTimeToLive(String placeholder, long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("millis cannot be less than 0!");
+		timesToLive.put(placeholder.toLowerCase(), millis);
+	}
+
+	/**
+	 * Gets the TTL that applies to a placeholder.
+	 *
+	 * @param identifier
+	 *            (String) - the identifier, without percent signs
+	 * @return (long) - the TTL in milliseconds.
+	 * @see #setTimeToLive(String, long)
+	 */
+	public static long getTimeToLive(String identifier) {
+
+		if (timesToLive.isEmpty())
+			return defaultTimeToLive;
+
+		String key = identifier.toLowerCase();
+		Long ttl = timesToLive.get(key);
+		if (ttl == null) {
+			int expansionEnd = key.indexOf('_');
+			if (expansionEnd > 0)
+				ttl = timesToLive.get(key.substring(0, expansionEnd));
+		}
+
+		return ttl == null ? defaultTimeToLive : ttl;
+
+	}
+
+	/**
+	 * Sets how many stale values may be refreshed per tick.
+	 *
+	 * @param max
+	 *            (int) - the maximum, at least 1
+	 */
+	public static void setMaxRefreshesPerTick(int max) {
+		if (max < 1)
+			throw new IllegalArgumentException("max cannot be less than 1!");
+		maxRefreshesPerTick = max;
+	}
+
+	/**
+	 * Removes all cached values of a player.
+	 *
+	 * @param playerId
+	 *            (UUID) - the player's unique id
+	 */
+	public static void evict(UUID playerId) {
+		values.remove(playerId);
+	}
+
+	/**
+	 * Removes the cached value of one placeholder of a player, so it is
+	 * resolved again the next time it is requested.
+	 *
+	 * @param playerId
+	 *            (UUID) - the player's unique id
+	 * @param identifier
+	 *            (String) - the identifier, without percent signs
+	 */
+	public static void evict(UUID playerId, String identifier) {
+		Map<String, Value> playerValues = values.get(playerId);
+		if (playerValues != null)
+			playerValues.remove(identifier);
+	}
+
+	/**
+	 * Removes all cached values.
+	 */
+	public static void clear() {
+		values.clear();
+		refreshes.clear();
+	}
+
+	/**
+	 * Gets the hit and miss counts of every placeholder requested so far.
+	 *
+	 * @return (Map : String, Statistics) - the statistics by identifier.
+	 */
+	public static Map<String, Statistics> getStatistics() {
+		return Collections.unmodifiableMap(new HashMap<>(statistics));
+	}
+
+	/**
+	 * Resets the hit and miss counts.
+	 */
+	public static void resetStatistics() {
+		statistics.clear();
+	}
+
+	/**
+	 * Gets the value of a placeholder for a player.
+	 *
+	 * @param player
+	 *            (Player) - the player, may be null
+	 * @param identifier
+	 *            (String) - the identifier, without percent signs
+	 * @return (String) - the value.
+	 */
+	static String resolve(Player player, String identifier) {
+
+		long ttl = getTimeToLive(identifier);
+		if (!enabled || player == null || ttl == 0 || !player.isOnline())
+			return PlaceholderAPI.setPlaceholders(player, '%' + identifier + '%');
+
+		Statistics stats = statistics(identifier);
+		ConcurrentMap<String, Value> playerValues = values.get(player.getUniqueId());
+		if (playerValues == null) {
+			playerValues = new ConcurrentHashMap<>();
+			ConcurrentMap<String, Value> previous = values.putIfAbsent(player.getUniqueId(), playerValues);
+			if (previous != null)
+				playerValues = previous;
+		}
+
+		long now = System.currentTimeMillis();
+		Value value = playerValues.get(identifier);
+
+		if (value == null) {
+			stats.misses.incrementAndGet();
+			value = new Value(PlaceholderAPI.setPlaceholders(player, '%' + identifier + '%'), now + ttl);
+			playerValues.put(identifier, value);
+			return value.text;
+		}
+
+		stats.hits.incrementAndGet();
+
+		if (now >= value.expiresAt && !value.refreshing) {
+			stats.stale.incrementAndGet();
+			if (refreshTask == null) {
+				// Nothing would pick up the refresh
+				value.text = PlaceholderAPI.setPlaceholders(player, '%' + identifier + '%');
+				value.expiresAt = now + ttl;
+			} else {
+				value.refreshing = true;
+				refreshes.add(new Refresh(player, identifier, value));
+			}
+		}
+
+		return value.text;
+
+	}
+
+	private static Statistics statistics(String identifier) {
+		Statistics stats = statistics.get(identifier);
+		if (stats == null) {
+			stats = new Statistics();
+			Statistics previous = statistics.putIfAbsent(identifier, stats);
+			if (previous != null)
+				stats = previous;
+		}
+		return stats;
+	}
+
+	static void start(Plugin plugin) {
+
+		stop();
+
+		refreshTask = new BukkitRunnable() {
+			@Override
+			public void run() {
+				refreshStale();
+			}
+		}.runTaskTimer(plugin, 1, 1);
+
+		plugin.getServer().getPluginManager().registerEvents(new Evictor(), plugin);
+
+	}
+
+	static void stop() {
+		if (refreshTask != null) {
+			refreshTask.cancel();
+			refreshTask = null;
+		}
+		clear();
+	}
+
+	private static void refreshStale() {
+
+		Refresh refresh;
+		for (int i = 0; i < maxRefreshesPerTick && (refresh = refreshes.poll()) != null; i++) {
+
+			if (!refresh.player.isOnline()) {
+				// The values of the player were evicted when they quit
+				values.remove(refresh.player.getUniqueId());
+				continue;
+			}
+
+			refresh.value.text = PlaceholderAPI.setPlaceholders(refresh.player, '%' + refresh.identifier + '%');
+			refresh.value.expiresAt = System.currentTimeMillis() + getTimeToLive(refresh.identifier);
+			refresh.value.refreshing = false;
+
+		}
+
+	}
+
+	/**
+	 * Hit and miss counts of one placeholder. A stale hit is a hit that served
+	 * an expired value and queued a refresh.
+	 *
+	 * @since 3.1
+	 */
+	public static final class Statistics {
+
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private final AtomicLong stale = new AtomicLong();
+
+		public long getHits() {
+			return hits.get();
+		}
+
+		public long getMisses() {
+			return misses.get();
+		}
+
+		public long getStaleHits() {
+			return stale.get();
+		}
+
+		/**
+		 * Gets the share of requests that were served from the cache.
+		 *
+		 * @return (double) - the hit rate between 0 and 1.
+		 */
+		public double getHitRate() {
+			long hits = getHits(), total = hits + getMisses();
+			return total == 0 ? 0 : (double) hits / total;
+		}
+
+		@Override
+		public String toString() {
+			return "hits=" + getHits() + ", misses=" + getMisses() + ", stale=" + getStaleHits() + ", rate="
+					+ Math.round(getHitRate() * 1000) / 10d + "%";
+		}
+
+	}
+
+	private static final class Value {
+
+		volatile String text;
+		volatile long expiresAt;
+		volatile boolean refreshing;
+
+		Value(String text, long expiresAt) {
+			this.text = text;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	private static final class Refresh {
+
+		final Player player;
+		final String identifier;
+		final Value value;
+
+		Refresh(Player player, String identifier, Value value) {
+			this.player = player;
+			this.identifier = identifier;
+			this.value = value;
+		}
+
+	}
+
+	private static final class Evictor implements Listener {
+
+		@EventHandler(priority = EventPriority.MONITOR)
+		public void onQuit(PlayerQuitEvent event) {
+			evict(event.getPlayer().getUniqueId());
+		}
+
+	}
+
+}
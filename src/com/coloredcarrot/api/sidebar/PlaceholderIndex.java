@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Knows which entries of a sidebar show which placeholders. Every sidebar
+ * keeps an index of its entries, which is rebuilt when the entries or their
+ * variations change; the update of a sidebar then only sets the placeholders
+ * of the entries that have any, instead of all entries.
+ * <p>
+ * Plugins that know when the value of a placeholder changes can call
+ * {@link #changed(Player, String)}, which resolves and renders only the
+ * lines showing that placeholder for that player, on the next tick, without
+ * polling the other lines or setting their placeholders. This is
+ * most useful for sidebars whose other entries do not need polling, see
+ * {@link SidebarString#updateOn(Class)}.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class PlaceholderIndex {
+
+	private static final SidebarString[] NONE = new SidebarString[0];
+
+	/**
+	 * Whether a class of entries sets placeholders some other way than
+	 * through its variations, so it has to be asked on every update.
+	 */
+	private static final ClassValue<Boolean> CUSTOM = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("setPlaceholders", Player.class).getDeclaringClass() != SidebarString.class;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+	};
+
+	/**
+	 * Notifies the sidebars that the value of a placeholder changed for a
+	 * player. The cached value is evicted, and in every sidebar and
+	 * {@link SidebarSection} that sets its placeholders for that player,
+	 * the entries showing the placeholder are resolved and rendered again on
+	 * the next tick. Must be called on the server thread.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @param identifier
+	 *            (String) - the identifier of the placeholder, without the
+	 *            percent signs, e.g. "player_health"
+	 */
+	public static void changed(Player player, String identifier) {
+
+		if (player == null || identifier == null)
+			throw new IllegalArgumentException("player and identifier cannot be null!");
+
+		PlaceholderCache.evict(player.getUniqueId(), identifier);
+
+		for (Sidebars sidebar : new ArrayList<>(SidebarAPI.getRegisteredSidebars()))
+			if (sidebar instanceof Sidebar)
+				((Sidebar) sidebar).placeholderChanged(player, identifier);
+			else if (sidebar instanceof LongSidebar)
+				((LongSidebar) sidebar).placeholderChanged(player, identifier);
+
+		for (SidebarSection section : SidebarCompositor.allSections())
+			section.placeholderChanged(player, identifier);
+
+	}
+
+	private SidebarString[] indexed;
+	/**
+	 * The identifiers of each indexed entry at the time of indexing, to
+	 * notice when its variations changed.
+	 */
+	private String[][] identifiers;
+	private SidebarString[] dynamic = NONE;
+	/**
+	 * The lines of the entries that have placeholders, and of the entries
+	 * showing each placeholder, see {@link SidebarTriggers#line(int)}.
+	 */
+	private int dynamicLines;
+	private Map<String, Integer> lines = Collections.emptyMap();
+	/**
+	 * Whether positions keep the texts their placeholders were set for.
+	 */
+	private boolean pinned;
+
+	PlaceholderIndex() {
+	}
+
+	/**
+	 * Gets the entries of a snapshot that have placeholders.
+	 */
+	synchronized SidebarString[] dynamic(SidebarString[] snapshot) {
+		index(snapshot);
+		return dynamic;
+	}
+
+	/**
+	 * Gets the lines of the entries of a snapshot that show a placeholder,
+	 * see {@link SidebarTriggers#line(int)}.
+	 *
+	 * @return (int) - the lines; 0 if no entry shows the placeholder.
+	 */
+	synchronized int showing(SidebarString[] snapshot, String identifier) {
+		index(snapshot);
+		Integer showing = lines.get(identifier);
+		return showing == null ? 0 : showing;
+	}
+
+	/**
+	 * Sets the placeholders of the entries of a snapshot at some lines, if
+	 * they have any, and keeps the texts in the positions of these lines, see
+	 * {@link SidebarString#setPlaceholders(SidebarString.Cursor, Player)}. If
+	 * the player is null, the positions show the current texts again. Must be
+	 * called on the server thread while the positions are not being
+	 * rendered.
+	 */
+	void setPlaceholders(SidebarString[] snapshot, SidebarString.Cursor[] cursors, int lines, Player player) {
+
+		if (player == null) {
+			if (pinned) {
+				for (SidebarString.Cursor cursor : cursors)
+					if (cursor != null)
+						cursor.unpin();
+				pinned = false;
+			}
+			return;
+		}
+
+		int dynamic;
+		synchronized (this) {
+			index(snapshot);
+			dynamic = dynamicLines & lines;
+		}
+
+		for (int i = 0; i < snapshot.length; i++) {
+			if ((dynamic & SidebarTriggers.line(i)) == 0)
+				continue;
+			SidebarString entry = snapshot[i];
+			if (i >= cursors.length) {
+				entry.setPlaceholders(player);
+				continue;
+			}
+			SidebarString.Cursor cursor = cursors[i];
+			if (cursor == null || cursor.text != entry)
+				cursors[i] = cursor = new SidebarString.Cursor(entry);
+			entry.setPlaceholders(cursor, player);
+			pinned = true;
+		}
+
+	}
+
+	private void index(SidebarString[] snapshot) {
+
+		if (snapshot == indexed && unchanged(snapshot))
+			return;
+
+		String[][] identifiers = new String[snapshot.length][];
+		List<SidebarString> dynamic = new ArrayList<>();
+		int dynamicLines = 0;
+		Map<String, Integer> lines = new HashMap<>();
+
+		for (int i = 0; i < snapshot.length; i++) {
+			SidebarString entry = snapshot[i];
+			identifiers[i] = entry.getPlaceholderIdentifiers();
+			if (identifiers[i].length > 0 || CUSTOM.get(entry.getClass())) {
+				dynamic.add(entry);
+				dynamicLines |= SidebarTriggers.line(i);
+			}
+			for (String identifier : identifiers[i]) {
+				Integer showing = lines.get(identifier);
+				lines.put(identifier, (showing == null ? 0 : showing) | SidebarTriggers.line(i));
+			}
+		}
+
+		this.lines = lines;
+		this.dynamicLines = dynamicLines;
+		this.dynamic = dynamic.toArray(new SidebarString[dynamic.size()]);
+		this.identifiers = identifiers;
+		this.indexed = snapshot;
+
+	}
+
+	private boolean unchanged(SidebarString[] snapshot) {
+		for (int i = 0; i < snapshot.length; i++)
+			if (snapshot[i].getPlaceholderIdentifiers() != identifiers[i])
+				return false;
+		return true;
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.entity.Player;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * A variation text split into literal text and the PlaceholderAPI
+ * placeholders ({@code %identifier%}) in between. Parsed templates are cached,
+ * so a text is only scanned once no matter how often it is resolved.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class PlaceholderTemplate {
+
+	private static final LoadingCache<String, PlaceholderTemplate> PARSED = CacheBuilder.newBuilder()
+			.maximumSize(4096).build(new CacheLoader<String, PlaceholderTemplate>() {
+				@Override
+				public PlaceholderTemplate load(String text) {
+					return new PlaceholderTemplate(text);
+				}
+			});
+
+	private final String text;
+	private final String[] literals;
+	private final String[] identifiers;
+
+	private PlaceholderTemplate(String text) {
+
+		List<String> literals = new ArrayList<>();
+		List<String> identifiers = new ArrayList<>();
+
+		int literalStart = 0;
+		int open = text.indexOf('%');
+		while (open >= 0) {
+
+			int close = text.indexOf('%', open + 1);
+			if (close < 0)
+				break;
+
+			if (close == open + 1 || containsWhitespace(text, open + 1, close)) {
+				// Not a placeholder, the second '%' may open the next one
+				open = close;
+				continue;
+			}
+
+			literals.add(text.substring(literalStart, open));
+			identifiers.add(text.substring(open + 1, close));
+			literalStart = close + 1;
+			open = text.indexOf('%', literalStart);
+
+		}
+
+		literals.add(text.substring(literalStart));
+
+		this.text = text;
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.identifiers = identifiers.toArray(new String[identifiers.size()]);
+
+	}
+
+	private static boolean containsWhitespace(String text, int from, int to) {
+		for (int i = from; i < to; i++)
+			if (Character.isWhitespace(text.charAt(i)))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Gets the parsed template of a text.
+	 *
+	 * @param text
+	 *            (String) - the text
+	 * @return (PlaceholderTemplate) - the template.
+	 */
+	static PlaceholderTemplate of(String text) {
+		return PARSED.getUnchecked(text);
+	}
+
+	String getText() {
+		return text;
+	}
+
+	boolean hasPlaceholders() {
+		return identifiers.length > 0;
+	}
+
+	/**
+	 * Gets the identifiers of all placeholders in order of appearance, without
+	 * the surrounding percent signs. The returned array must not be modified.
+	 */
+	String[] getIdentifiers() {
+		return identifiers;
+	}
+
+	/**
+	 * Resolves the placeholders of this template for a player through the
+	 * {@link PlaceholderCache}.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (String) - the resolved text.
+	 */
+	String resolve(Player player) {
+
+		if (identifiers.length == 0)
+			return text;
+
+		StringBuilder resolved = new StringBuilder(text.length() + 16);
+		for (int i = 0; i < identifiers.length; i++)
+			resolved.append(literals[i]).append(PlaceholderCache.resolve(player, identifiers[i]));
+
+		return resolved.append(literals[identifiers.length]).toString();
+
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.scoreboard.Scoreboard;
+
+/**
+ * The scoreboard operations a {@link SidebarBoard} performs. On a server
+ * they go to a Bukkit scoreboard, see {@link BukkitScoreboardWriter}; tools
+ * that run without a server, such as {@link SidebarReplay}, use a stand-in
+ * instead.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+interface ScoreboardWriter {
+
+	/**
+	 * Gets the Bukkit scoreboard written to.
+	 *
+	 * @return (Scoreboard) - the scoreboard, or null without a server.
+	 */
+	Scoreboard getScoreboard();
+
+	void setTitle(String title);
+
+	void setPrefix(int line, String prefix);
+
+	void setSuffix(int line, String suffix);
+
+	void setScore(String entry, int score);
+
+	void resetScore(String entry);
+
+	/**
+	 * Replaces the sidebar objective with a new, empty one.
+	 */
+	void recreateObjective(String title);
+
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed pool of {@link SidebarBoard}s for sidebars in
+ * {@link Sidebar#setShared(boolean) shared mode}. Sidebars whose rendered
+ * frames are identical are shown on the same board, so the number of
+ * scoreboards and team writes grows with the number of distinct frames
+ * instead of the number of sidebars.
+ * <p>
+ * A board is only changed in place while a single sidebar is on it. A sidebar
+ * sharing its board never changes it, since the viewers of the other members
+ * see it: if its frame differs, it is moved to a board showing its frame, or
+ * gets a new board, in the same update. A board is released when its last
+ * member leaves, see {@link #leave(Sidebar, SidebarBoard)}. Only accessed from
+ * the server thread.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SharedSidebarBoards {
+
+	private static final Map<Long, List<SidebarBoard>> boards = new HashMap<>();
+	private static int count = 0;
+
+	private SharedSidebarBoards() {
+	}
+
+	static int getBoardCount() {
+		return count;
+	}
+
+	/**
+	 * Shows a frame of a sidebar on a shared board.
+	 *
+	 * @param member
+	 *            (Sidebar) - the sidebar
+	 * @param current
+	 *            (SidebarBoard) - the shared board the sidebar is on, or null
+	 * @param frame
+	 *            (SidebarFrame) - the rendered frame
+	 * @return (SidebarBoard) - the shared board the sidebar is on now.
+	 */
+	static SidebarBoard apply(Sidebar member, SidebarBoard current, SidebarFrame frame) {
+
+		if (current != null && current.shows(frame))
+			return current;
+
+		long hash = frame.contentHash();
+		SidebarBoard target = find(hash, frame);
+
+		if (target != null)
+			return join(member, current, target);
+
+		if (current != null && current.members == 1) {
+			// Nobody else sees the board, change it in place
+			remove(current);
+			current.apply(frame);
+			add(hash, current);
+			return current;
+		}
+
+		SidebarBoard created = new SidebarBoard(frame.title);
+		created.apply(frame);
+		add(hash, created);
+		count++;
+		return join(member, current, created);
+
+	}
+
+	/**
+	 * Removes a sidebar from its shared board.
+	 *
+	 * @param member
+	 *            (Sidebar) - the sidebar
+	 * @param current
+	 *            (SidebarBoard) - the shared board the sidebar is on, or null
+	 */
+	static void leave(Sidebar member, SidebarBoard current) {
+
+		if (current == null)
+			return;
+
+		if (--current.members <= 0) {
+			remove(current);
+			count--;
+		}
+
+	}
+
+	private static SidebarBoard join(Sidebar member, SidebarBoard current, SidebarBoard target) {
+
+		leave(member, current);
+
+		target.members++;
+
+		member.moveViewers(target.getScoreboard());
+
+		return target;
+
+	}
+
+	private static SidebarBoard find(long hash, SidebarFrame frame) {
+		List<SidebarBoard> candidates = boards.get(hash);
+		if (candidates != null)
+			for (SidebarBoard board : candidates)
+				if (board.shows(frame))
+					return board;
+		return null;
+	}
+
+	private static void add(long hash, SidebarBoard board) {
+		board.hash = hash;
+		List<SidebarBoard> candidates = boards.get(hash);
+		if (candidates == null)
+			boards.put(hash, candidates = new ArrayList<>(1));
+		candidates.add(board);
+	}
+
+	private static void remove(SidebarBoard board) {
+		List<SidebarBoard> candidates = boards.get(board.hash);
+		if (candidates != null) {
+			candidates.remove(board);
+			if (candidates.isEmpty())
+				boards.remove(board.hash);
+		}
+	}
+
+}
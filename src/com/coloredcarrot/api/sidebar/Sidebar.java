@@ -1,469 +1,836 @@
-/*
- * MIT License
- *
- * Copyright (c) 2018 ColoredCarrot
- *
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- *
- * The above copyright notice and this permission notice shall be included in all
- * copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
- * SOFTWARE.
- */
-
-package com.coloredcarrot.api.sidebar;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
-
-import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
-import org.bukkit.configuration.serialization.ConfigurationSerializable;
-import org.bukkit.configuration.serialization.ConfigurationSerialization;
-import org.bukkit.entity.Player;
-import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
-import org.bukkit.scoreboard.DisplaySlot;
-import org.bukkit.scoreboard.Objective;
-import org.bukkit.scoreboard.Scoreboard;
-import org.bukkit.scoreboard.ScoreboardManager;
-import org.bukkit.scoreboard.Team;
-
-import com.google.common.collect.ImmutableSet;
-
-/**
- * All rights reserved.
- *
- * @author ColoredCarrot
- */
-public class Sidebar implements ConfigurationSerializable, Sidebars {
-
-	private static final Set<String> EMPTY_COLOR_STRINGS = ImmutableSet.of("f", "fr", "r", "rf");
-
-	private static transient ScoreboardManager bukkitManager = Bukkit.getScoreboardManager();
-
-	static {
-		ConfigurationSerialization.registerClass(Sidebar.class);
-	}
-
-	private final transient Plugin owningPlugin;
-	private List<SidebarString> entries;
-	private transient Scoreboard bukkitScoreboard;
-	private transient Objective bukkitObjective;
-	private transient BukkitTask updateTask;
-	private String title;
-	private Player setPlaceholdersOnUpdate = null;
-	private transient Team[] teams = new Team[15];
-	private int prevEntries = 0;
-
-	/**
-	 * Constructs a new Sidebar.
-	 *
-	 * @param title
-	 *            (String) - the title of the sidebar
-	 * @param plugin
-	 *            (Plugin) - your plugin
-	 * @param updateDelayInTicks
-	 *            (int) - how many server ticks to wait in between each update.
-	 *            20 = 1 second
-	 * @param entries
-	 *            (SidebarString...) - all the entries
-	 */
-	public Sidebar(String title, Plugin plugin, int updateDelayInTicks, SidebarString... entries) {
-
-		this.title = title;
-		this.entries = new ArrayList<>(Arrays.asList(entries));
-		this.owningPlugin = plugin;
-
-		bukkitScoreboard = bukkitManager.getNewScoreboard();
-
-		bukkitObjective = bukkitScoreboard.registerNewObjective("obj", "dummy");
-		bukkitObjective.setDisplaySlot(DisplaySlot.SIDEBAR);
-		bukkitObjective.setDisplayName(this.title);
-
-		for (int i = 0; i < 15; i++) {
-			Team team = bukkitScoreboard.registerNewTeam("team" + String.valueOf(i));
-			team.addEntry(ChatColor.values()[i].toString() + "r");
-			teams[i] = team;
-		}
-		update();
-
-		setUpdateDelay(plugin, updateDelayInTicks);
-
-		SidebarAPI.registerSidebar(this);
-
-	}
-
-	@SuppressWarnings("unchecked")
-	public Sidebar(Map<String, Object> map) {
-
-		entries = (List<SidebarString>) map.get("entries");
-		title = (String) map.get("title");
-
-		if (map.containsKey("placeholders"))
-			setPlaceholdersOnUpdate = Bukkit.getPlayer(UUID.fromString((String) map.get("placeholders")));
-
-		owningPlugin = SidebarAPI.getInstance();
-
-	}
-
-	@Override
-	public Map<String, Object> serialize() {
-
-		Map<String, Object> map = new HashMap<>();
-
-		map.put("entries", entries);
-		map.put("title", title);
-
-		if (setPlaceholdersOnUpdate != null)
-			map.put("placeholders", setPlaceholdersOnUpdate.getUniqueId().toString());
-
-		return map;
-
-	}
-
-	/**
-	 * Gets the player that will be used for setting the placeholders in the
-	 * update function.
-	 *
-	 * @return (Player) - The player or null.
-	 * @see #update()
-	 */
-	public Player getPlaceholderPlayerForUpdate() {
-		return setPlaceholdersOnUpdate;
-	}
-
-	/**
-	 * Sets the player that will be used for setting the placeholders in the
-	 * update function. If set to null, the placeholders will not be set.
-	 *
-	 * @param player
-	 *            (Player) - the player or null
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 * @see #update()
-	 */
-	public Sidebar setPlaceholderPlayerForUpdate(Player player) {
-		setPlaceholdersOnUpdate = player;
-		return this;
-	}
-
-	/**
-	 * Sets how many server ticks to wait in between each update.
-	 *
-	 * @param plugin
-	 *            (Plugin) - your plugin
-	 * @param delayInTicks
-	 *            (int) - the ticks
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar setUpdateDelay(Plugin plugin, int delayInTicks) {
-
-		if (delayInTicks < 1)
-			throw new IllegalArgumentException("delayInTicks cannot be less than 1!");
-
-		if (updateTask != null)
-			updateTask.cancel();
-
-		updateTask = (new BukkitRunnable() {
-			@Override
-			public void run() {
-				update();
-			}
-		}).runTaskTimer(plugin, delayInTicks, delayInTicks);
-
-		return this;
-
-	}
-
-	/**
-	 * Sets all placeholders for every SidebarString and every variation.
-	 *
-	 * @param forPlayer
-	 *            (Player) - what player to set the placeholders for
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 * @since 2.4
-	 */
-	public Sidebar setAllPlaceholders(Player forPlayer) {
-		for (SidebarString entry : entries)
-			entry.setPlaceholders(forPlayer);
-		return this;
-	}
-
-	/**
-	 * Gets the title of this Sidebar.
-	 *
-	 * @return (String) - the title.
-	 */
-	@Override
-	public String getTitle() {
-		return title;
-	}
-
-	/**
-	 * Sets the title of this Sidebar.
-	 *
-	 * @param title
-	 *            (String) - the new title
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar setTitle(String title) {
-		this.title = title;
-		return this;
-	}
-
-	/**
-	 * Gets a list of all entries.
-	 *
-	 * @return (List : SidebarString) - all entries.
-	 */
-	@Override
-	public List<SidebarString> getEntries() {
-		return entries;
-	}
-
-	/**
-	 * Overrides all current entries.
-	 *
-	 * @param entries
-	 *            (List: SidebarString) - the new entries
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar setEntries(List<SidebarString> entries) {
-		this.entries = entries;
-		return this;
-	}
-
-	/**
-	 * Adds an entry.
-	 *
-	 * @param entries
-	 *            (SidebarString) - the entry
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar addEntry(SidebarString... entries) {
-		this.entries.addAll(Arrays.asList(entries));
-		return this;
-	}
-
-	/**
-	 * Removes an entry.
-	 *
-	 * @param entry
-	 *            (SidebarString) - the entry
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar removeEntry(SidebarString entry) {
-		entries.remove(entry);
-		return this;
-	}
-
-	/**
-	 * Removes the entry referring to a specific line.
-	 *
-	 * @param num
-	 *            (int) - the line
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar removeEntry(int num) {
-		entries.remove(num);
-		return this;
-	}
-
-	/**
-	 * Shows this Sidebar to a player.
-	 *
-	 * @param player
-	 *            (Player) - the player
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar showTo(Player player) {
-		player.setScoreboard(bukkitScoreboard);
-		return this;
-	}
-
-	/**
-	 * Hides this Sidebar from a player.
-	 *
-	 * @param player
-	 *            (Player) - the player
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar hideFrom(Player player) {
-		player.setScoreboard(bukkitManager.getMainScoreboard());
-		return this;
-	}
-
-	/**
-	 * Updates the sidebar (it's entries and title). If
-	 * {@link #getPlaceholderPlayerForUpdate()} is not null, this will also run
-	 * {@link #setAllPlaceholders(Player)} with
-	 * {@link #getPlaceholderPlayerForUpdate()} as the argument.
-	 *
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar update() {
-
-		if (setPlaceholdersOnUpdate != null)
-			setAllPlaceholders(setPlaceholdersOnUpdate);
-
-		// Anti-flicker only works for <=15 entries
-		if (entries.size() <= 15)
-			updateAntiFlicker();
-		else
-			updateFallback();
-
-		return this;
-
-	}
-
-	private void updateFallback() {
-
-		if (setPlaceholdersOnUpdate != null)
-			setAllPlaceholders(setPlaceholdersOnUpdate);
-
-		redoBukkitObjective();
-
-		for (int i = entries.size(); i > 0; i--)
-			bukkitObjective.getScore(entries.get(entries.size() - i).getNext()).setScore(i);
-
-	}
-
-	private void redoBukkitObjective() {
-		bukkitObjective.unregister();
-		bukkitObjective = bukkitScoreboard.registerNewObjective("obj", "dummy");
-		bukkitObjective.setDisplayName(title);
-		bukkitObjective.setDisplaySlot(DisplaySlot.SIDEBAR);
-	}
-
-	/*
-	 * Code by fren_gor
-	 */
-	private void updateAntiFlicker() {
-
-		if (prevEntries != entries.size()) {
-			redoBukkitTeams();
-			for (int i = 0; i < entries.size(); i++)
-				bukkitObjective.getScore(ChatColor.values()[i] + "r").setScore(entries.size() - 1 - i);
-		}
-
-		prevEntries = entries.size();
-		for (int i = 0; i < prevEntries; i++) {
-			SidebarString entry = entries.get(i);
-			String entryStr = ChatColor.translateAlternateColorCodes('&',
-					entry.getNextAndTrim(owningPlugin.getLogger(), false));
-
-			if (entryStr.startsWith("r") || entryStr.startsWith("f"))
-				entryStr = entryStr.substring(2);
-
-			if (entryStr.length() <= 16) {
-				// Simple case: prefix is sufficient to show whole string
-				teams[i].setPrefix(entryStr);
-				teams[i].setSuffix("");
-			} else {
-
-				if (!entryStr.contains("")) {
-					teams[i].setPrefix(entryStr.substring(0, 16));
-					teams[i].setSuffix(entryStr.substring(16));
-				} else {
-					/*
-					 * This is an especially difficult case. Color symbols
-					 * cannot be split over team prefix and suffix.
-					 */
-					boolean carryingColor = false;
-					String[] sections = entryStr.split("");
-					StringBuilder color = new StringBuilder();
-					int len = 0;
-					for (String section : sections) {
-						if (section.length() == 0)
-							continue;
-
-						if (section.length() == 1) {
-							if (carryingColor)
-								color.append("").append(section);
-							else
-								color = new StringBuilder("").append(section);
-							carryingColor = true;
-						} else {
-							if (carryingColor)
-								color.append('').append(section, 0, 1);
-							else
-								color = new StringBuilder("").append(section, 0, 1);
-							len += section.length() - 1;
-							carryingColor = false;
-						}
-						if (len >= 16) {
-							String teamSuffix = entryStr.substring(16, entryStr.length());
-							String teamPrefix = entryStr.substring(0, 16);
-
-							teams[i].setPrefix(teamPrefix);
-
-							// Set suffix
-							// Color needs only be included if it has any effect
-							// (i.e. if it is not "empty"/"whitespace")
-							String colorStr = color.toString().toLowerCase(Locale.ENGLISH);
-							teams[i].setSuffix(
-									EMPTY_COLOR_STRINGS.contains(colorStr) ? teamSuffix : color + teamSuffix);
-
-							break;
-						}
-
-					}
-
-				}
-
-			}
-
-		}
-	}
-
-	/**
-	 * Adds an empty entry. The entry won't conflict with any other empty
-	 * entries made this way.
-	 *
-	 * @return (Sidebar) - this Sidebar Object, for chaining.
-	 */
-	public Sidebar addEmpty() {
-
-		entries.add(new SidebarString(new String(new char[entries.size()]).replace("\0", " ")));
-
-		return this;
-
-	}
-
-	/**
-	 * Gets the Scoreboard used by this Sidebar.
-	 *
-	 * @return The Scoreboard associated with this Sidebar
-	 * @since 2.9
-	 */
-	public Scoreboard getTheScoreboard() {
-		return bukkitScoreboard;
-	}
-
-	private void redoBukkitTeams() {
-		for (int i = 0; i < 15; i++) {
-			bukkitScoreboard.resetScores(ChatColor.values()[i] + "r");
-			teams[i].setSuffix("");
-			teams[i].setPrefix("");
-		}
-	}
-
-}
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scoreboard.Scoreboard;
+
+/**
+ * All rights reserved.
+ *
+ * @author ColoredCarrot
+ */
+public class Sidebar implements ConfigurationSerializable, Sidebars {
+
+	static {
+		ConfigurationSerialization.registerClass(Sidebar.class);
+	}
+
+	private final transient Plugin owningPlugin;
+	private final SidebarEntries entries;
+	private transient SidebarBoard board;
+	private transient SidebarBoard sharedBoard;
+	private transient boolean shared = false;
+	private transient final Set<UUID> viewers = Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
+	private transient BukkitTask updateTask;
+	private String title;
+	private Player setPlaceholdersOnUpdate = null;
+	private transient final SidebarFrame frame = new SidebarFrame(15);
+	/**
+	 * The entry each line of {@link #frame} was last rendered from, and its
+	 * position in the entry's animation.
+	 */
+	private transient final SidebarString.Cursor[] cursors = new SidebarString.Cursor[15];
+	private transient int renders = 0;
+	private transient final SidebarListeners listeners = new SidebarListeners();
+	private transient SidebarTrace trace;
+	private transient boolean everShown = false;
+	private transient ForkJoinTask<SidebarFrame> pendingFrame;
+	private transient final PlaceholderIndex placeholders = new PlaceholderIndex();
+	/**
+	 * The lines invalidated by events or placeholder changes since they were
+	 * last rendered, see {@link SidebarTriggers#line(int)}. Only accessed
+	 * from the server thread.
+	 */
+	private transient int invalidLines;
+	private transient final Runnable triggeredUpdate = new Runnable() {
+		@Override
+		public void run() {
+			updateLines();
+		}
+	};
+	private transient final Runnable deferredWrite = new Runnable() {
+		@Override
+		public void run() {
+			writeDeferred();
+		}
+	};
+
+	/**
+	 * Constructs a new Sidebar.
+	 *
+	 * @param title
+	 *            (String) - the title of the sidebar
+	 * @param plugin
+	 *            (Plugin) - your plugin
+	 * @param updateDelayInTicks
+	 *            (int) - how many server ticks to wait in between each update.
+	 *            20 = 1 second
+	 * @param entries
+	 *            (SidebarString...) - all the entries
+	 */
+	public Sidebar(String title, Plugin plugin, int updateDelayInTicks, SidebarString... entries) {
+
+		this.title = title;
+		this.entries = new SidebarEntries(Arrays.asList(entries));
+		this.owningPlugin = plugin;
+
+		board = new SidebarBoard(this.title);
+
+		update();
+
+		setUpdateDelay(plugin, updateDelayInTicks);
+
+		SidebarAPI.registerSidebar(this);
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public Sidebar(Map<String, Object> map) {
+
+		entries = new SidebarEntries((List<SidebarString>) map.get("entries"));
+		title = (String) map.get("title");
+
+		if (map.containsKey("placeholders"))
+			setPlaceholdersOnUpdate = Bukkit.getPlayer(UUID.fromString((String) map.get("placeholders")));
+
+		owningPlugin = SidebarAPI.getInstance();
+
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("entries", new ArrayList<>(entries.asList()));
+		map.put("title", title);
+
+		if (setPlaceholdersOnUpdate != null)
+			map.put("placeholders", setPlaceholdersOnUpdate.getUniqueId().toString());
+
+		return map;
+
+	}
+
+	/**
+	 * Gets the player that will be used for setting the placeholders in the
+	 * update function.
+	 *
+	 * @return (Player) - The player or null.
+	 * @see #update()
+	 */
+	public Player getPlaceholderPlayerForUpdate() {
+		return setPlaceholdersOnUpdate;
+	}
+
+	/**
+	 * Sets the player that will be used for setting the placeholders in the
+	 * update function. If set to null, the placeholders will not be set.
+	 *
+	 * @param player
+	 *            (Player) - the player or null
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 * @see #update()
+	 */
+	public Sidebar setPlaceholderPlayerForUpdate(Player player) {
+		setPlaceholdersOnUpdate = player;
+		return this;
+	}
+
+	/**
+	 * Sets how many server ticks to wait in between each update. Since 3.1,
+	 * the first update is scheduled on the tick within the delay on which the
+	 * fewest other sidebar updates run, so that sidebars created at the same
+	 * time do not all update on the same tick; see {@link SidebarScheduler}.
+	 *
+	 * @param plugin
+	 *            (Plugin) - your plugin
+	 * @param delayInTicks
+	 *            (int) - the ticks; since 3.1, 0 stops the updates, e.g. if
+	 *            all entries {@link SidebarString#updateOn(Class) update on
+	 *            events}
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar setUpdateDelay(Plugin plugin, int delayInTicks) {
+
+		if (delayInTicks < 0)
+			throw new IllegalArgumentException("delayInTicks cannot be less than 0!");
+
+		SidebarScheduler.cancel(updateTask);
+		updateTask = null;
+
+		if (delayInTicks == 0)
+			return this;
+
+		updateTask = SidebarScheduler.schedule(plugin, delayInTicks, new SidebarWatchdog.Update() {
+			@Override
+			boolean isVisible() {
+				return Sidebar.this.isVisible();
+			}
+
+			@Override
+			void update() {
+				Sidebar.this.update();
+			}
+		});
+
+		return this;
+
+	}
+
+	/**
+	 * Sets all placeholders for every SidebarString and every variation.
+	 * Since 3.1, entries without placeholders are skipped.
+	 *
+	 * @param forPlayer
+	 *            (Player) - what player to set the placeholders for
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 * @since 2.4
+	 */
+	public Sidebar setAllPlaceholders(Player forPlayer) {
+		setAllPlaceholders(entries.snapshot(), forPlayer);
+		return this;
+	}
+
+	private void setAllPlaceholders(SidebarString[] snapshot, Player forPlayer) {
+		for (SidebarString entry : placeholders.dynamic(snapshot))
+			entry.setPlaceholders(forPlayer);
+	}
+
+	/**
+	 * Resolves and renders the entries showing a placeholder again if this
+	 * Sidebar sets its placeholders for the player.
+	 */
+	void placeholderChanged(Player player, String identifier) {
+		Player placeholderPlayer = setPlaceholdersOnUpdate;
+		if (placeholderPlayer != null && placeholderPlayer.getUniqueId().equals(player.getUniqueId()))
+			invalidate(placeholders.showing(entries.snapshot(), identifier));
+	}
+
+	/**
+	 * Gets the title of this Sidebar.
+	 *
+	 * @return (String) - the title.
+	 */
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Sets the title of this Sidebar.
+	 *
+	 * @param title
+	 *            (String) - the new title
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar setTitle(String title) {
+		this.title = title;
+		return this;
+	}
+
+	/**
+	 * Gets a list of all entries. The list is backed by this sidebar, so
+	 * changes to it show on the next update. Since 3.1, the entries may be
+	 * read and changed from any thread, through the list or through
+	 * {@link #setEntries(List)}, {@link #addEntry(SidebarString...)} and
+	 * {@link #removeEntry(SidebarString)}.
+	 *
+	 * @return (List : SidebarString) - all entries.
+	 */
+	@Override
+	public List<SidebarString> getEntries() {
+		return entries.asList();
+	}
+
+	/**
+	 * Overrides all current entries. The list is copied, so later changes to
+	 * it do not affect this Sidebar.
+	 *
+	 * @param entries
+	 *            (List: SidebarString) - the new entries
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar setEntries(List<SidebarString> entries) {
+		this.entries.set(entries);
+		return this;
+	}
+
+	/**
+	 * Adds an entry.
+	 *
+	 * @param entries
+	 *            (SidebarString) - the entry
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar addEntry(SidebarString... entries) {
+		this.entries.add(entries);
+		return this;
+	}
+
+	/**
+	 * Removes an entry.
+	 *
+	 * @param entry
+	 *            (SidebarString) - the entry
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar removeEntry(SidebarString entry) {
+		entries.remove(entry);
+		return this;
+	}
+
+	/**
+	 * Removes the entry referring to a specific line.
+	 *
+	 * @param num
+	 *            (int) - the line
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar removeEntry(int num) {
+		entries.remove(num);
+		return this;
+	}
+
+	@Override
+	public void addListener(SidebarListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public boolean removeListener(SidebarListener listener) {
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Checks whether any player may see this Sidebar, i.e. whether it has
+	 * never been shown with {@link #showTo(Player)}, in which case it may
+	 * have been shown another way, or any of its viewers is online.
+	 */
+	private boolean isVisible() {
+		if (!everShown)
+			return true;
+		for (UUID viewer : viewers)
+			if (Bukkit.getPlayer(viewer) != null)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Invalidates the entries that update on an event and queues an update,
+	 * unless the event is about a player this Sidebar is not shown to.
+	 */
+	void trigger(Event event, UUID player) {
+		if (player != null && everShown && !viewers.contains(player))
+			return;
+		invalidate(SidebarTriggers.invalidate(entries.snapshot(), event, setPlaceholdersOnUpdate));
+	}
+
+	private void invalidate(int lines) {
+		if (lines == 0)
+			return;
+		invalidLines |= lines;
+		SidebarTriggers.queue(triggeredUpdate);
+	}
+
+	/**
+	 * Renders only the lines invalidated since they were last rendered, on
+	 * the server thread, without polling the other lines or setting all
+	 * placeholders. If this Sidebar renders in parallel and a frame is
+	 * still rendering, this is tried again on the next tick.
+	 */
+	private void updateLines() {
+
+		if (invalidLines == 0)
+			return;
+
+		if (pendingFrame != null) {
+			if (!pendingFrame.isDone()) {
+				SidebarTriggers.queue(triggeredUpdate);
+				return;
+			}
+			applyPendingFrame();
+		}
+
+		SidebarString[] snapshot = entries.snapshot();
+		if (snapshot.length > 15 || snapshot.length != frame.size) {
+			// the lines moved since the last frame
+			update();
+			return;
+		}
+
+		if (!listeners.isEmpty() && !listeners.preRender(this))
+			return;
+
+		int lines = invalidLines;
+		invalidLines = 0;
+
+		placeholders.setPlaceholders(snapshot, cursors, lines, setPlaceholdersOnUpdate);
+
+		applyFrame(render(snapshot, lines, false));
+
+	}
+
+	/**
+	 * Shows this Sidebar to a player.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar showTo(Player player) {
+		viewers.add(player.getUniqueId());
+		everShown = true;
+		// The own scoreboard was dropped when the shared board was released
+		if (shared && sharedBoard == null && board == null)
+			sharedBoard = SharedSidebarBoards.apply(this, null, frame);
+		player.setScoreboard(getTheScoreboard());
+		return this;
+	}
+
+	/**
+	 * Hides this Sidebar from a player.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar hideFrom(Player player) {
+		viewers.remove(player.getUniqueId());
+		player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+		if (!isVisible())
+			releaseSharedBoard();
+		return this;
+	}
+
+	/**
+	 * Gets whether this Sidebar shares its scoreboard with other sidebars that
+	 * currently show exactly the same text.
+	 *
+	 * @return (boolean) - true if shared mode is enabled.
+	 * @see #setShared(boolean)
+	 * @since 3.1
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Sets whether this Sidebar shares its scoreboard with other sidebars that
+	 * currently show exactly the same text. In shared mode, the rendered
+	 * frames are hashed and all shared sidebars with the same frame show one
+	 * scoreboard, so the number of scoreboards, teams and team updates grows
+	 * with the number of distinct frames rather than the number of sidebars.
+	 * The players this Sidebar is shown to are moved to another scoreboard
+	 * only when its frame starts to differ. This is meant for per-player
+	 * sidebars that mostly show the same text, such as the sidebars of
+	 * spectators. {@link #getTheScoreboard()} may return a different
+	 * scoreboard after every update. Once this Sidebar is hidden from every
+	 * player, it leaves its shared scoreboard until it is shown again.
+	 *
+	 * @param shared
+	 *            (boolean) - whether to share the scoreboard
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 * @since 3.1
+	 */
+	public Sidebar setShared(boolean shared) {
+
+		if (this.shared == shared)
+			return this;
+
+		this.shared = shared;
+
+		if (!shared)
+			useOwnBoard();
+
+		return update();
+
+	}
+
+	/**
+	 * Gets the number of scoreboards currently used by sidebars in shared
+	 * mode.
+	 *
+	 * @return (int) - the number of shared scoreboards.
+	 * @see #setShared(boolean)
+	 * @since 3.1
+	 */
+	public static int getSharedScoreboardCount() {
+		return SharedSidebarBoards.getBoardCount();
+	}
+
+	/**
+	 * Moves the players this Sidebar is shown to to another scoreboard, unless
+	 * they have switched to a scoreboard not belonging to this Sidebar.
+	 */
+	void moveViewers(Scoreboard to) {
+
+		Scoreboard from = sharedBoard != null ? sharedBoard.getScoreboard()
+				: board != null ? board.getScoreboard() : null;
+
+		for (UUID viewer : viewers) {
+			Player player = Bukkit.getPlayer(viewer);
+			if (player == null)
+				viewers.remove(viewer);
+			else if (player.getScoreboard() == from)
+				player.setScoreboard(to);
+		}
+
+	}
+
+	private SidebarBoard ownBoard() {
+		if (board == null) {
+			board = new SidebarBoard(title);
+			board.trace = trace;
+		}
+		return board;
+	}
+
+	/**
+	 * Gets the trace this Sidebar records into.
+	 *
+	 * @return (SidebarTrace) - the trace, or null if not recording.
+	 * @since 3.1
+	 */
+	public SidebarTrace getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Records every update of this Sidebar into a trace: the texts of the
+	 * lines that changed and the title, prefixes, suffixes and scores written
+	 * to the scoreboard. Only the own scoreboard is recorded, not a shared
+	 * one. The trace is not closed by this Sidebar.
+	 *
+	 * @param trace
+	 *            (SidebarTrace) - the trace, or null to stop recording
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 * @see SidebarReplay
+	 * @since 3.1
+	 */
+	public Sidebar setTrace(SidebarTrace trace) {
+		this.trace = trace;
+		if (board != null)
+			board.trace = trace;
+		return this;
+	}
+
+	private void useOwnBoard() {
+		if (sharedBoard != null) {
+			moveViewers(ownBoard().getScoreboard());
+			SharedSidebarBoards.leave(this, sharedBoard);
+			sharedBoard = null;
+		}
+	}
+
+	/**
+	 * Leaves the shared board without moving the viewers, once this Sidebar is
+	 * not shown to anyone. It joins a shared board again when it is shown.
+	 */
+	private void releaseSharedBoard() {
+		if (sharedBoard != null) {
+			SharedSidebarBoards.leave(this, sharedBoard);
+			sharedBoard = null;
+		}
+	}
+
+	/**
+	 * Updates the sidebar (it's entries and title). If
+	 * {@link #getPlaceholderPlayerForUpdate()} is not null, this will also run
+	 * {@link #setAllPlaceholders(Player)} with
+	 * {@link #getPlaceholderPlayerForUpdate()} as the argument. If
+	 * {@link SidebarRenderer#isParallel() parallel rendering} is enabled, this
+	 * applies the frame rendered during the last update and starts rendering
+	 * the next one.
+	 *
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar update() {
+
+		// Never touch the entries while the last frame is still rendering
+		if (pendingFrame != null && !pendingFrame.isDone())
+			return this;
+
+		if (!listeners.isEmpty() && !listeners.preRender(this))
+			return this;
+
+		// Read the entries once so the whole frame is rendered from the same
+		// snapshot, even if another thread modifies them meanwhile
+		final SidebarString[] snapshot = entries.snapshot();
+		final int invalid = invalidLines;
+		invalidLines = 0;
+
+		// Anti-flicker only works for <=15 entries
+		if (snapshot.length <= 15 && SidebarRenderer.isParallel()) {
+
+			if (pendingFrame != null)
+				applyPendingFrame();
+
+			placeholders.setPlaceholders(snapshot, cursors, -1, setPlaceholdersOnUpdate);
+
+			pendingFrame = SidebarRenderer.submit(new Callable<SidebarFrame>() {
+				@Override
+				public SidebarFrame call() {
+					return render(snapshot, invalid, true);
+				}
+			});
+
+		} else {
+
+			pendingFrame = null;
+
+			placeholders.setPlaceholders(snapshot, cursors, -1, setPlaceholdersOnUpdate);
+
+			if (snapshot.length <= 15)
+				applyFrame(render(snapshot, invalid, true));
+			else
+				updateFallback(snapshot);
+
+		}
+
+		return this;
+
+	}
+
+	private void applyPendingFrame() {
+
+		ForkJoinTask<SidebarFrame> rendered = pendingFrame;
+		pendingFrame = null;
+
+		try {
+			applyFrame(rendered.join());
+		} catch (RuntimeException e) {
+			owningPlugin.getLogger().log(Level.WARNING, "[Sidebar] Could not render sidebar \"" + title + "\"", e);
+		}
+
+	}
+
+	private void updateFallback(SidebarString[] snapshot) {
+
+		// More than 15 lines cannot be shared
+		useOwnBoard();
+
+		String[] lines = new String[snapshot.length];
+		for (int i = 0; i < lines.length; i++)
+			lines[i] = snapshot[i].getNext();
+
+		if (listeners.isEmpty()) {
+			ownBoard().applyFallback(title, lines);
+			return;
+		}
+
+		long start = System.nanoTime(), writes = SidebarBoard.totalWrites;
+		ownBoard().applyFallback(title, lines);
+		listeners.postRender(this, null, System.nanoTime() - start, (int) (SidebarBoard.totalWrites - writes));
+
+	}
+
+	/**
+	 * Renders the next frame of the entries into {@link #frame}, or only the
+	 * invalidated lines. This does not touch the scoreboard and may run off
+	 * the server thread.
+	 *
+	 * @param invalid
+	 *            (int) - the lines that are rendered even if they do not
+	 *            need an update
+	 * @param all
+	 *            (boolean) - whether to render the other lines as well
+	 */
+	private SidebarFrame render(SidebarString[] snapshot, int invalid, boolean all) {
+
+		boolean track = !listeners.isEmpty();
+		long start = track ? System.nanoTime() : 0;
+
+		for (int i = 0; i < snapshot.length; i++) {
+			boolean invalidated = (invalid & SidebarTriggers.line(i)) != 0;
+			if (!all && !invalidated)
+				continue;
+			SidebarString entry = snapshot[i];
+			frame.priorities[i] = entry.getPriority();
+			// Lines are held if they cannot have changed, and low priority
+			// lines while the watchdog degrades updates
+			SidebarString.Cursor cursor = cursors[i];
+			if (cursor == null || cursor.text != entry)
+				cursors[i] = cursor = new SidebarString.Cursor(entry);
+			else if (!invalidated
+					&& (!entry.needsUpdate(cursor) || SidebarWatchdog.delay(entry.getPriority(), renders)))
+				continue;
+			String next = entry.getNextAndTrim(cursor, owningPlugin.getLogger(), false);
+			// A held run keeps the line rendered last time
+			if (!entry.pollChanged(cursor))
+				continue;
+			if (track && !next.equals(frame.texts[i]) && (frame.changed & 1 << i) == 0) {
+				frame.oldTexts[i] = frame.texts[i];
+				frame.changed |= 1 << i;
+			}
+			frame.texts[i] = next;
+			renderLine(ChatColor.translateAlternateColorCodes('&', next), frame, i);
+		}
+
+		frame.title = title;
+		frame.size = snapshot.length;
+		if (all)
+			renders++;
+		if (track)
+			frame.renderNanos = System.nanoTime() - start;
+		return frame;
+
+	}
+
+	/**
+	 * Records a rendered frame into the trace, then shows it. Must run on the
+	 * server thread.
+	 */
+	private void applyFrame(SidebarFrame frame) {
+
+		SidebarTrace trace = this.trace;
+		if (trace != null && !shared) {
+			trace.update(frame.size);
+			for (int i = 0; i < frame.size; i++)
+				trace.text(i, frame.texts[i]);
+		}
+
+		showFrame(frame);
+
+	}
+
+	/**
+	 * Shows a rendered frame and notifies the listeners of the lines that
+	 * were written. If the write budget held lines back, they are written on
+	 * the next tick. Must run on the server thread.
+	 */
+	private void showFrame(SidebarFrame frame) {
+
+		int deferred;
+		if (listeners.isEmpty())
+			deferred = writeFrame(frame);
+		else {
+			long start = System.nanoTime(), writes = SidebarBoard.totalWrites;
+			deferred = writeFrame(frame);
+			listeners.postRender(this, frame, System.nanoTime() - start, (int) (SidebarBoard.totalWrites - writes),
+					deferred);
+		}
+
+		if (deferred != 0)
+			SidebarTriggers.queue(deferredWrite);
+
+	}
+
+	/**
+	 * Writes the lines the write budget held back, unless a later frame has
+	 * been written or is rendering meanwhile.
+	 */
+	private void writeDeferred() {
+		if (shared || board == null || board.deferred == 0 || pendingFrame != null)
+			return;
+		showFrame(frame);
+	}
+
+	/**
+	 * Shows a rendered frame on this Sidebar's scoreboard, or on a shared
+	 * scoreboard in shared mode. Must run on the server thread.
+	 *
+	 * @return (int) - the lines the write budget held back.
+	 */
+	private int writeFrame(SidebarFrame frame) {
+
+		if (!shared) {
+			SidebarBoard board = ownBoard();
+			int writes = board.apply(frame, SidebarBandwidth.allowance(viewers));
+			SidebarBandwidth.consume(viewers, writes);
+			return board.deferred;
+		}
+
+		if (!isVisible()) {
+			// Nobody sees this Sidebar, let others change the board
+			releaseSharedBoard();
+			return 0;
+		}
+
+		sharedBoard = SharedSidebarBoards.apply(this, sharedBoard, frame);
+
+		// The own scoreboard is not needed while sharing
+		board = null;
+		return 0;
+
+	}
+
+	/**
+	 * Splits a line over the team prefix and suffix, see
+	 * {@link SidebarLayout}.
+	 */
+	static void renderLine(String entryStr, SidebarFrame frame, int i) {
+		SidebarLayout layout = SidebarLayout.of(entryStr, false);
+		frame.prefixes[i] = layout.prefix;
+		frame.suffixes[i] = layout.suffix;
+	}
+
+	/**
+	 * Adds an empty entry. The entry won't conflict with any other empty
+	 * entries made this way.
+	 *
+	 * @return (Sidebar) - this Sidebar Object, for chaining.
+	 */
+	public Sidebar addEmpty() {
+
+		entries.add(new SidebarString(new String(new char[entries.size()]).replace("\0", " ")));
+
+		return this;
+
+	}
+
+	/**
+	 * Gets the Scoreboard used by this Sidebar.
+	 *
+	 * @return The Scoreboard associated with this Sidebar
+	 * @since 2.9
+	 */
+	public Scoreboard getTheScoreboard() {
+		SidebarBoard sharedBoard = this.sharedBoard;
+		return sharedBoard != null ? sharedBoard.getScoreboard() : ownBoard().getScoreboard();
+	}
+
+}
@@ -32,6 +32,7 @@ import org.bukkit.scoreboard.Objective;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * All rights reserved.
@@ -69,6 +70,35 @@ public class SidebarAPI extends JavaPlugin {
 
 		Config.load();
 
+		SidebarLimits.override(Config.getInt_limits_prefix(), Config.getInt_limits_suffix(), Config.getInt_limits_entry());
+		getLogger().info("Team prefix/suffix limit: " + SidebarLimits.getPrefixLength() + "/"
+				+ SidebarLimits.getSuffixLength() + " characters");
+
+		SidebarRenderer.setThreads(Math.max(0, Config.getInt_render_threads()));
+		SidebarRenderer.setParallel(Config.getBoolean_render_parallel());
+
+		SidebarScheduler.setStaggered(Config.getBoolean_scheduler_stagger());
+		if (Config.getDouble_watchdog_budgetMs() > 0)
+			SidebarWatchdog.setBudgetMillis(Config.getDouble_watchdog_budgetMs());
+		SidebarWatchdog.setEnabled(Config.getBoolean_watchdog_enabled());
+
+		SidebarBandwidth.setWritesPerSecond(Math.max(0, Config.getInt_bandwidth_writesPerSecond()));
+		SidebarBandwidth.start(this);
+
+		SidebarDiagnostics.setWindowMillis(Math.max(0, Config.getLong_diagnostics_windowSeconds()) * 1000);
+
+		SidebarCompositor.start(this);
+		SidebarTriggers.start(this);
+
+		if (placeholderAPI != null) {
+			PlaceholderCache.setEnabled(Config.getBoolean_placeholders_cache_enabled());
+			PlaceholderCache.setDefaultTimeToLive(Math.max(0, Config.getLong_placeholders_cache_defaultTtl()));
+			PlaceholderCache.setMaxRefreshesPerTick(Math.max(1, Config.getInt_placeholders_cache_maxRefreshesPerTick()));
+			for (Map.Entry<String, Long> ttl : Config.getMap_placeholders_cache_ttl().entrySet())
+				PlaceholderCache.setTimeToLive(ttl.getKey(), Math.max(0, ttl.getValue()));
+			PlaceholderCache.start(this);
+		}
+
 		getLogger().info("Enabled SidebarAPI v" + version);
 
 	}
@@ -76,6 +106,11 @@ public class SidebarAPI extends JavaPlugin {
 	@Override
 	public void onDisable() {
 
+		SidebarRenderer.shutdown();
+		SidebarScheduler.stop();
+		PlaceholderCache.stop();
+		SidebarTriggers.stop();
+
 		getLogger().info("Disabled SidebarAPI v" + version);
 
 	}
@@ -106,6 +141,10 @@ public class SidebarAPI extends JavaPlugin {
 		sidebars.remove(sidebar);
 	}
 
+	static List<Sidebars> getRegisteredSidebars() {
+		return sidebars;
+	}
+
 	/**
 	 * Gets the PlaceholderAPIPlugin instance.
 	 *
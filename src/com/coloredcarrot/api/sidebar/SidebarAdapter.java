@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+/**
+ * A {@link SidebarListener} whose methods do nothing, so subclasses only need
+ * to override the ones they are interested in.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public abstract class SidebarAdapter implements SidebarListener {
+
+	@Override
+	public boolean preRender(Sidebars sidebar) {
+		return true;
+	}
+
+	@Override
+	public void lineChanged(Sidebars sidebar, int line, String oldText, String newText) {
+	}
+
+	@Override
+	public void postRender(Sidebars sidebar, long renderNanos, long applyNanos, int writes) {
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SidebarString that shows a {@link SidebarAnimation}. It stores no frames
+ * of its own; every frame is taken from the shared frame cache of the
+ * animation.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ * @see SidebarAnimation#toSidebarString()
+ */
+public class SidebarAnimatedString extends SidebarString {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarAnimatedString.class);
+	}
+
+	private final SidebarAnimation animation;
+
+	/**
+	 * Constructs a new SidebarAnimatedString.
+	 *
+	 * @param step
+	 *            (int) - see {@link #setStep(int)}
+	 * @param animation
+	 *            (SidebarAnimation) - the animation to show
+	 */
+	public SidebarAnimatedString(int step, SidebarAnimation animation) {
+
+		super(step);
+
+		if (animation == null)
+			throw new IllegalArgumentException("animation cannot be null!");
+
+		this.animation = animation;
+
+	}
+
+	public SidebarAnimatedString(Map<String, Object> map) {
+		this(map.get("step") instanceof Integer ? (Integer) map.get("step") : 1,
+				(SidebarAnimation) map.get("animation"));
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("animation", animation);
+		map.put("step", getStep());
+
+		return map;
+
+	}
+
+	public SidebarAnimation getAnimation() {
+		return animation;
+	}
+
+	@Override
+	protected int getVariationCount() {
+		return animation.getFrameCount();
+	}
+
+	@Override
+	protected String getVariation(int index) {
+		return animation.getFrame(index);
+	}
+
+	/**
+	 * Does nothing; the frames of an animation are shared between players, so
+	 * their placeholders are not set.
+	 *
+	 * @return (SidebarString) - this SidebarAnimatedString Object, for
+	 *         chaining.
+	 */
+	@Override
+	public SidebarString setPlaceholders(Player forPlayer) {
+		return this;
+	}
+
+	/**
+	 * Gets all frames of the animation. The returned list is a copy.
+	 *
+	 * @return (List : String) - all frames.
+	 */
+	@Override
+	public List<String> getVariations() {
+		List<String> frames = new ArrayList<>(animation.getFrameCount());
+		for (int i = 0; i < animation.getFrameCount(); i++)
+			frames.add(animation.getFrame(i));
+		return frames;
+	}
+
+	/**
+	 * Throws on every change of the variations; the frames are derived from the
+	 * animation.
+	 */
+	@Override
+	void checkVariationsMutable() {
+		throw new UnsupportedOperationException("Cannot change the variations of a SidebarAnimatedString");
+	}
+
+}
@@ -0,0 +1,580 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.configuration.serialization.DelegateDeserialization;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text animation that is described by its parameters instead of a list of
+ * frames. Frames are rendered lazily and kept in a bounded frame cache that
+ * is shared by every line using an equal animation, so thousands of lines
+ * with the same animation cost about as much memory as one. <br>
+ * Use {@link #toSidebarString()} to put an animation into a sidebar.
+ * Animations are immutable; placeholders in their text are not set, since
+ * their frames are shared between players.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public abstract class SidebarAnimation implements ConfigurationSerializable {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarAnimation.class);
+	}
+
+	/**
+	 * The maximum amount of frames kept in the shared frame cache.
+	 */
+	public static final int FRAME_CACHE_SIZE = 8192;
+
+	private static final LoadingCache<Frame, String> FRAMES = CacheBuilder.newBuilder().maximumSize(FRAME_CACHE_SIZE)
+			.build(new CacheLoader<Frame, String>() {
+				@Override
+				public String load(Frame frame) {
+					return SidebarString.intern(frame.animation.render(frame.index));
+				}
+			});
+
+	/**
+	 * Creates a typewriter animation, which types the text one character at a
+	 * time and then shows it completely for a few frames.
+	 *
+	 * @param text
+	 *            (String) - the text, may contain color codes
+	 * @param cursor
+	 *            (String) - what to show after the typed characters (may be
+	 *            empty)
+	 * @param hold
+	 *            (int) - how many frames to show the complete text for
+	 * @return (SidebarAnimation) - the animation.
+	 */
+	public static SidebarAnimation typewriter(String text, String cursor, int hold) {
+		return new Typewriter(text, cursor, hold);
+	}
+
+	/**
+	 * Creates a blinking animation.
+	 *
+	 * @param text
+	 *            (String) - the text
+	 * @param on
+	 *            (int) - how many frames to show the text for
+	 * @param off
+	 *            (int) - how many frames to hide the text for
+	 * @return (SidebarAnimation) - the animation.
+	 */
+	public static SidebarAnimation blink(String text, int on, int off) {
+		return new Blink(text, on, off);
+	}
+
+	/**
+	 * Creates an animation that shows the text in each of the colors in turn.
+	 *
+	 * @param text
+	 *            (String) - the text; its own color codes are removed
+	 * @param colors
+	 *            (ChatColor...) - the colors to cycle through
+	 * @return (SidebarAnimation) - the animation.
+	 */
+	public static SidebarAnimation colorCycle(String text, ChatColor... colors) {
+		return new ColorCycle(text, colors);
+	}
+
+	/**
+	 * Creates an animation that cycles through the colors back and forth,
+	 * e.g. dark, medium, light, medium, dark, ...
+	 *
+	 * @param text
+	 *            (String) - the text; its own color codes are removed
+	 * @param shades
+	 *            (ChatColor...) - the shades, from one end to the other
+	 * @return (SidebarAnimation) - the animation.
+	 */
+	public static SidebarAnimation pulse(String text, ChatColor... shades) {
+		return new Pulse(text, shades);
+	}
+
+	/**
+	 * Creates an animation that sweeps a highlight over the text.
+	 *
+	 * @param text
+	 *            (String) - the text; its own color codes are removed
+	 * @param base
+	 *            (ChatColor) - the color of the text
+	 * @param highlight
+	 *            (ChatColor) - the color of the highlight
+	 * @param width
+	 *            (int) - how many characters the highlight covers
+	 * @return (SidebarAnimation) - the animation.
+	 */
+	public static SidebarAnimation gradientSweep(String text, ChatColor base, ChatColor highlight, int width) {
+		return new GradientSweep(text, base, highlight, width);
+	}
+
+	/**
+	 * Deserializes an animation serialized by {@link #serialize()}.
+	 *
+	 * @param map
+	 *            (Map : String, Object) - the serialized animation
+	 * @return (SidebarAnimation) - the animation.
+	 */
+	public static SidebarAnimation deserialize(Map<String, Object> map) {
+
+		String type = String.valueOf(map.get("type"));
+		String text = (String) map.get("text");
+
+		switch (type) {
+		case "typewriter":
+			return new Typewriter(text, (String) map.get("cursor"), getInt(map, "hold", 0));
+		case "blink":
+			return new Blink(text, getInt(map, "on", 1), getInt(map, "off", 1));
+		case "color-cycle":
+			return new ColorCycle(text, getColors(map, "colors"));
+		case "pulse":
+			return new Pulse(text, getColors(map, "colors"));
+		case "gradient-sweep":
+			ChatColor[] colors = getColors(map, "colors");
+			if (colors.length != 2)
+				throw new IllegalArgumentException("gradient-sweep needs exactly 2 colors!");
+			return new GradientSweep(text, colors[0], colors[1], getInt(map, "width", 1));
+		default:
+			throw new IllegalArgumentException("Unknown animation type: " + type);
+		}
+
+	}
+
+	private static int getInt(Map<String, Object> map, String key, int def) {
+		Object value = map.get(key);
+		return value instanceof Number ? ((Number) value).intValue() : def;
+	}
+
+	private static ChatColor[] getColors(Map<String, Object> map, String key) {
+		Object value = map.get(key);
+		if (!(value instanceof List))
+			return new ChatColor[0];
+		List<?> list = (List<?>) value;
+		ChatColor[] colors = new ChatColor[list.size()];
+		for (int i = 0; i < colors.length; i++) {
+			String code = String.valueOf(list.get(i));
+			colors[i] = code.length() == 1 ? ChatColor.getByChar(code.charAt(0)) : ChatColor.valueOf(code);
+			if (colors[i] == null)
+				throw new IllegalArgumentException("Unknown color: " + code);
+		}
+		return colors;
+	}
+
+	private static List<String> toCodes(ChatColor... colors) {
+		List<String> codes = new ArrayList<>(colors.length);
+		for (ChatColor color : colors)
+			codes.add(String.valueOf(color.getChar()));
+		return codes;
+	}
+
+	private static ChatColor[] checkColors(ChatColor[] colors) {
+		if (colors == null || colors.length == 0)
+			throw new IllegalArgumentException("colors cannot be empty!");
+		for (ChatColor color : colors)
+			if (color == null)
+				throw new IllegalArgumentException("colors cannot contain null!");
+		return colors.clone();
+	}
+
+	private static String checkText(String text) {
+		if (text == null)
+			throw new IllegalArgumentException("text cannot be null!");
+		return text;
+	}
+
+	final String text;
+
+	private SidebarAnimation(String text) {
+		this.text = checkText(text);
+	}
+
+	/**
+	 * Gets how many frames this animation has.
+	 *
+	 * @return (int) - the amount of frames.
+	 */
+	public abstract int getFrameCount();
+
+	/**
+	 * Renders a frame. Only called on a miss of the shared frame cache.
+	 */
+	abstract String render(int index);
+
+	/**
+	 * Gets a frame of this animation, rendering it if it is not in the frame
+	 * cache.
+	 *
+	 * @param index
+	 *            (int) - the index of the frame, between 0 and
+	 *            {@link #getFrameCount()}
+	 * @return (String) - the frame.
+	 */
+	public String getFrame(int index) {
+		if (index < 0 || index >= getFrameCount())
+			throw new IndexOutOfBoundsException("Frame: " + index + ", Frames: " + getFrameCount());
+		return FRAMES.getUnchecked(new Frame(this, index));
+	}
+
+	/**
+	 * Creates a new SidebarString that shows this animation.
+	 *
+	 * @return (SidebarString) - the SidebarString, ready for use in a Sidebar.
+	 */
+	public SidebarString toSidebarString() {
+		return new SidebarAnimatedString(1, this);
+	}
+
+	/**
+	 * Creates a new SidebarString that shows this animation.
+	 *
+	 * @param step
+	 *            (int) - see {@link SidebarString#setStep(int)}
+	 * @return (SidebarString) - the SidebarString, ready for use in a Sidebar.
+	 */
+	public SidebarString toSidebarString(int step) {
+		return new SidebarAnimatedString(step, this);
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+		Map<String, Object> map = new HashMap<>();
+		map.put("text", text);
+		return map;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj != null && obj.getClass() == getClass() && text.equals(((SidebarAnimation) obj).text);
+	}
+
+	@Override
+	public int hashCode() {
+		return getClass().hashCode() * 31 + text.hashCode();
+	}
+
+	/**
+	 * The key of the shared frame cache.
+	 */
+	private static final class Frame {
+
+		private final SidebarAnimation animation;
+		private final int index;
+
+		private Frame(SidebarAnimation animation, int index) {
+			this.animation = animation;
+			this.index = index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Frame))
+				return false;
+			Frame other = (Frame) obj;
+			return index == other.index && animation.equals(other.animation);
+		}
+
+		@Override
+		public int hashCode() {
+			return animation.hashCode() * 31 + index;
+		}
+
+	}
+
+	@DelegateDeserialization(SidebarAnimation.class)
+	private static final class Typewriter extends SidebarAnimation {
+
+		private final String cursor;
+		private final int hold;
+		/**
+		 * The end index of the text after each typed character.
+		 */
+		private final int[] ends;
+
+		private Typewriter(String text, String cursor, int hold) {
+
+			super(text);
+
+			if (hold < 0)
+				throw new IllegalArgumentException("hold cannot be smaller than 0!");
+
+			this.cursor = cursor == null ? "" : cursor;
+			this.hold = hold;
+
+			int[] ends = new int[text.length() + 1];
+			int count = 1;
+			for (int i = 0; i < text.length(); i++) {
+				if (text.charAt(i) == ChatColor.COLOR_CHAR && i + 1 < text.length()) {
+					i++;
+					continue;
+				}
+				ends[count++] = i + 1;
+			}
+			this.ends = Arrays.copyOf(ends, count);
+
+		}
+
+		@Override
+		public int getFrameCount() {
+			return ends.length - 1 + Math.max(1, hold);
+		}
+
+		@Override
+		String render(int index) {
+			if (index >= ends.length - 1)
+				return text;
+			return text.substring(0, ends[index]) + cursor;
+		}
+
+		@Override
+		public Map<String, Object> serialize() {
+			Map<String, Object> map = super.serialize();
+			map.put("type", "typewriter");
+			map.put("cursor", cursor);
+			map.put("hold", hold);
+			return map;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj) && cursor.equals(((Typewriter) obj).cursor) && hold == ((Typewriter) obj).hold;
+		}
+
+		@Override
+		public int hashCode() {
+			return (super.hashCode() * 31 + cursor.hashCode()) * 31 + hold;
+		}
+
+	}
+
+	@DelegateDeserialization(SidebarAnimation.class)
+	private static final class Blink extends SidebarAnimation {
+
+		private final int on, off;
+
+		private Blink(String text, int on, int off) {
+
+			super(text);
+
+			if (on <= 0 || off <= 0)
+				throw new IllegalArgumentException("on and off cannot be smaller than or equal to 0!");
+
+			this.on = on;
+			this.off = off;
+
+		}
+
+		@Override
+		public int getFrameCount() {
+			return on + off;
+		}
+
+		@Override
+		String render(int index) {
+			return index < on ? text : "";
+		}
+
+		@Override
+		public Map<String, Object> serialize() {
+			Map<String, Object> map = super.serialize();
+			map.put("type", "blink");
+			map.put("on", on);
+			map.put("off", off);
+			return map;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj) && on == ((Blink) obj).on && off == ((Blink) obj).off;
+		}
+
+		@Override
+		public int hashCode() {
+			return (super.hashCode() * 31 + on) * 31 + off;
+		}
+
+	}
+
+	@DelegateDeserialization(SidebarAnimation.class)
+	private static class ColorCycle extends SidebarAnimation {
+
+		final ChatColor[] colors;
+		final String plain;
+
+		private ColorCycle(String text, ChatColor[] colors) {
+			super(text);
+			this.colors = checkColors(colors);
+			this.plain = ChatColor.stripColor(text);
+		}
+
+		@Override
+		public int getFrameCount() {
+			return colors.length;
+		}
+
+		@Override
+		String render(int index) {
+			return colors[index] + plain;
+		}
+
+		@Override
+		public Map<String, Object> serialize() {
+			Map<String, Object> map = super.serialize();
+			map.put("type", "color-cycle");
+			map.put("colors", toCodes(colors));
+			return map;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return super.equals(obj) && Arrays.equals(colors, ((ColorCycle) obj).colors);
+		}
+
+		@Override
+		public int hashCode() {
+			return super.hashCode() * 31 + Arrays.hashCode(colors);
+		}
+
+	}
+
+	@DelegateDeserialization(SidebarAnimation.class)
+	private static final class Pulse extends ColorCycle {
+
+		private Pulse(String text, ChatColor[] shades) {
+			super(text, shades);
+		}
+
+		@Override
+		public int getFrameCount() {
+			return colors.length == 1 ? 1 : colors.length * 2 - 2;
+		}
+
+		@Override
+		String render(int index) {
+			return super.render(index < colors.length ? index : colors.length * 2 - 2 - index);
+		}
+
+		@Override
+		public Map<String, Object> serialize() {
+			Map<String, Object> map = super.serialize();
+			map.put("type", "pulse");
+			return map;
+		}
+
+	}
+
+	@DelegateDeserialization(SidebarAnimation.class)
+	private static final class GradientSweep extends SidebarAnimation {
+
+		private final ChatColor base, highlight;
+		private final int width;
+		private final String plain;
+
+		private GradientSweep(String text, ChatColor base, ChatColor highlight, int width) {
+
+			super(text);
+
+			if (base == null || highlight == null)
+				throw new IllegalArgumentException("colors cannot be null!");
+			if (width <= 0)
+				throw new IllegalArgumentException("width cannot be smaller than or equal to 0!");
+
+			this.base = base;
+			this.highlight = highlight;
+			this.width = width;
+			this.plain = ChatColor.stripColor(text);
+
+		}
+
+		@Override
+		public int getFrameCount() {
+			return plain.length() + width;
+		}
+
+		@Override
+		String render(int index) {
+
+			// the highlight covers [start, end) and enters from the left
+			int start = Math.max(0, index - width), end = Math.min(plain.length(), index);
+
+			if (start >= end)
+				return base + plain;
+
+			StringBuilder frame = new StringBuilder(plain.length() + 6);
+			if (start > 0)
+				frame.append(base).append(plain, 0, start);
+			frame.append(highlight).append(plain, start, end);
+			if (end < plain.length())
+				frame.append(base).append(plain, end, plain.length());
+
+			return frame.toString();
+
+		}
+
+		@Override
+		public Map<String, Object> serialize() {
+			Map<String, Object> map = super.serialize();
+			map.put("type", "gradient-sweep");
+			map.put("colors", toCodes(base, highlight));
+			map.put("width", width);
+			return map;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!super.equals(obj))
+				return false;
+			GradientSweep other = (GradientSweep) obj;
+			return base == other.base && highlight == other.highlight && width == other.width;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((super.hashCode() * 31 + base.hashCode()) * 31 + highlight.hashCode()) * 31 + width;
+		}
+
+	}
+
+}
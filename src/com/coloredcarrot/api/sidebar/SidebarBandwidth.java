@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Limits how many scoreboard writes (team prefix/suffix changes, scores and
+ * titles, each of which is one packet) sidebars send to each player per
+ * second. Every player has a token bucket that holds up to one second worth
+ * of writes and refills continuously; all sidebars shown to a player draw
+ * from the same bucket.
+ * <p>
+ * When the bucket of a viewer is exhausted, a {@link Sidebar} only writes as
+ * many changed lines as the budget allows, those with the highest
+ * {@link SidebarString#getPriority() priority} first (top-most first on
+ * ties). The other lines stay pending and are tried again on the next tick,
+ * or compared against the newest frame if an update comes first, so only
+ * their latest text is sent. Listeners are only told about the lines that
+ * were written. A {@link LongSidebar} shows whole frames at once and
+ * therefore skips a frame entirely, trying again on the next tick, until its
+ * viewers' budgets allow it. Sidebars in
+ * {@link Sidebar#setShared(boolean) shared mode} are not limited.
+ * <p>
+ * The budget is disabled by default.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarBandwidth {
+
+	private static final ConcurrentMap<UUID, Bucket> buckets = new ConcurrentHashMap<>();
+
+	private static volatile int writesPerSecond = 0;
+
+	private SidebarBandwidth() {
+	}
+
+	/**
+	 * Gets how many scoreboard writes sidebars may send to each player per
+	 * second.
+	 *
+	 * @return (int) - the writes per second, 0 if unlimited.
+	 */
+	public static int getWritesPerSecond() {
+		return writesPerSecond;
+	}
+
+	/**
+	 * Sets how many scoreboard writes sidebars may send to each player per
+	 * second.
+	 *
+	 * @param writesPerSecond
+	 *            (int) - the writes per second, 0 for no limit
+	 */
+	public static void setWritesPerSecond(int writesPerSecond) {
+		if (writesPerSecond < 0)
+			throw new IllegalArgumentException("writesPerSecond cannot be less than 0!");
+		SidebarBandwidth.writesPerSecond = writesPerSecond;
+		buckets.clear();
+	}
+
+	/**
+	 * Gets whether the writes are limited.
+	 *
+	 * @return (boolean) - true if a budget is set.
+	 */
+	public static boolean isLimited() {
+		return writesPerSecond > 0;
+	}
+
+	/**
+	 * Gets how many writes a player can currently receive.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (int) - the available writes, or {@link Integer#MAX_VALUE} if
+	 *         unlimited.
+	 */
+	public static int getAvailable(Player player) {
+		if (!isLimited())
+			return Integer.MAX_VALUE;
+		return Math.max(0, (int) bucket(player.getUniqueId()).available(System.nanoTime()));
+	}
+
+	/**
+	 * Evicts the bucket of a player.
+	 *
+	 * @param uuid
+	 *            (UUID) - the player's UUID
+	 */
+	public static void evict(UUID uuid) {
+		buckets.remove(uuid);
+	}
+
+	static void start(Plugin plugin) {
+		plugin.getServer().getPluginManager().registerEvents(new Evictor(), plugin);
+	}
+
+	/**
+	 * Gets how many writes can be sent to all of the viewers, i.e. the
+	 * smallest budget among them.
+	 */
+	static int allowance(Collection<UUID> viewers) {
+
+		if (!isLimited() || viewers.isEmpty())
+			return Integer.MAX_VALUE;
+
+		long now = System.nanoTime();
+		double allowance = Double.MAX_VALUE;
+		for (UUID viewer : viewers)
+			allowance = Math.min(allowance, bucket(viewer).available(now));
+
+		return Math.max(0, (int) allowance);
+
+	}
+
+	/**
+	 * Checks whether a batch of writes that cannot be split, such as a whole
+	 * {@link LongSidebar} frame, may be sent. A batch larger than a full
+	 * bucket is allowed once the bucket is full, so it is delayed rather than
+	 * starved.
+	 */
+	static boolean allows(Collection<UUID> viewers, int writes) {
+		int allowance = allowance(viewers);
+		return writes <= allowance || allowance >= writesPerSecond;
+	}
+
+	static void consume(Collection<UUID> viewers, int writes) {
+		if (!isLimited() || writes <= 0)
+			return;
+		long now = System.nanoTime();
+		for (UUID viewer : viewers)
+			bucket(viewer).consume(now, writes);
+	}
+
+	private static Bucket bucket(UUID uuid) {
+		Bucket bucket = buckets.get(uuid);
+		if (bucket == null) {
+			Bucket created = new Bucket(writesPerSecond);
+			bucket = buckets.putIfAbsent(uuid, created);
+			if (bucket == null)
+				bucket = created;
+		}
+		return bucket;
+	}
+
+	private static final class Bucket {
+
+		private final int capacity;
+		private double tokens;
+		private long refilled;
+
+		private Bucket(int capacity) {
+			this.capacity = capacity;
+			this.tokens = capacity;
+			this.refilled = System.nanoTime();
+		}
+
+		synchronized double available(long now) {
+			tokens = Math.min(capacity, tokens + (now - refilled) * capacity / 1e9);
+			refilled = now;
+			return tokens;
+		}
+
+		synchronized void consume(long now, int writes) {
+			// may go into debt, e.g. when a sidebar is re-scored
+			tokens = available(now) - writes;
+		}
+
+	}
+
+	private static final class Evictor implements Listener {
+
+		@EventHandler(priority = EventPriority.MONITOR)
+		public void onQuit(PlayerQuitEvent event) {
+			evict(event.getPlayer().getUniqueId());
+		}
+
+	}
+
+}
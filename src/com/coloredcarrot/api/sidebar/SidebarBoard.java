@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.ChatColor;
+import org.bukkit.scoreboard.Scoreboard;
+
+/**
+ * One Bukkit scoreboard that shows the frames of a {@link Sidebar}: a sidebar
+ * objective with one team per line, whose prefix and suffix hold the text of
+ * the line. The board remembers what it currently shows, so applying a frame
+ * only writes the prefixes and suffixes that changed. The writes go through a
+ * {@link ScoreboardWriter} and can be recorded into a {@link SidebarTrace}.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SidebarBoard {
+
+	/**
+	 * The unique color code of each of the 15 lines.
+	 */
+	static final String[] LINE_COLORS = new String[15];
+
+	/**
+	 * The score entries of the 15 lines. Each is in the team of its line.
+	 */
+	static final String[] LINE_ENTRIES = new String[15];
+
+	static {
+		ChatColor[] colors = ChatColor.values();
+		for (int i = 0; i < LINE_ENTRIES.length; i++) {
+			LINE_COLORS[i] = colors[i].toString();
+			LINE_ENTRIES[i] = LINE_COLORS[i] + ChatColor.RESET;
+		}
+	}
+
+	private final ScoreboardWriter writer;
+	private final SidebarFrame applied = new SidebarFrame(15);
+	private int size = 0;
+	/**
+	 * Scratch space for the indices of the lines that need to be written.
+	 */
+	private final int[] pending = new int[15];
+	/**
+	 * The lines the write budget held back during the last apply, see
+	 * {@link #apply(SidebarFrame, int)}.
+	 */
+	int deferred = 0;
+
+	/**
+	 * The number of writes issued by all boards, for listeners. Only accessed
+	 * from the server thread.
+	 */
+	static long totalWrites = 0;
+
+	// Bookkeeping of SharedSidebarBoards
+	long hash;
+	int members;
+
+	/**
+	 * The trace the writes are recorded into, or null.
+	 */
+	SidebarTrace trace;
+
+	SidebarBoard(String title) {
+		this(new BukkitScoreboardWriter(title), title);
+	}
+
+	SidebarBoard(ScoreboardWriter writer, String title) {
+		this.writer = writer;
+		applied.title = title;
+	}
+
+	Scoreboard getScoreboard() {
+		return writer.getScoreboard();
+	}
+
+	/**
+	 * Checks whether this board currently shows exactly the given frame.
+	 */
+	boolean shows(SidebarFrame frame) {
+		return size == frame.size && applied.contentEquals(frame);
+	}
+
+	/**
+	 * Writes the lines of a rendered frame that differ from what the teams
+	 * currently show. Must run on the server thread.
+	 *
+	 * @return (int) - the number of writes.
+	 */
+	int apply(SidebarFrame frame) {
+		return apply(frame, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Writes the lines of a rendered frame that differ from what the teams
+	 * currently show, but at most as many prefixes and suffixes as the
+	 * allowance permits. If not all lines fit, the lines with the highest
+	 * priority are written first; the others keep their old text until a
+	 * later call and are flagged in {@link #deferred}. The title and
+	 * re-scoring are always written. Must run on the server thread.
+	 *
+	 * @return (int) - the number of writes.
+	 */
+	int apply(SidebarFrame frame, int allowance) {
+
+		int writes = 0;
+
+		if (!frame.title.equals(applied.title)) {
+			setTitle(frame.title);
+			writes++;
+		}
+
+		if (size != frame.size) {
+			resetTeams();
+			for (int i = 0; i < frame.size; i++)
+				setScore(i, frame.size - 1 - i);
+			writes += 45 + frame.size;
+		}
+
+		size = frame.size;
+
+		int count = 0, cost = 0;
+		deferred = 0;
+		for (int i = 0; i < size; i++) {
+			int lineCost = lineCost(frame, i);
+			if (lineCost > 0) {
+				pending[count++] = i;
+				cost += lineCost;
+			}
+		}
+
+		if (cost > allowance - writes)
+			sortByPriority(frame, count);
+
+		for (int j = 0; j < count; j++) {
+
+			int i = pending[j];
+			int lineCost = lineCost(frame, i);
+			if (lineCost > allowance - writes) {
+				deferred |= 1 << i;
+				continue;
+			}
+
+			if (!frame.prefixes[i].equals(applied.prefixes[i]))
+				setPrefix(i, frame.prefixes[i]);
+
+			if (!frame.suffixes[i].equals(applied.suffixes[i]))
+				setSuffix(i, frame.suffixes[i]);
+
+			writes += lineCost;
+
+		}
+
+		applied.size = size;
+		totalWrites += writes;
+		return writes;
+
+	}
+
+	private int lineCost(SidebarFrame frame, int i) {
+		return (frame.prefixes[i].equals(applied.prefixes[i]) ? 0 : 1)
+				+ (frame.suffixes[i].equals(applied.suffixes[i]) ? 0 : 1);
+	}
+
+	/**
+	 * Sorts the first count pending lines by descending priority, keeping the
+	 * top-to-bottom order on ties.
+	 */
+	private void sortByPriority(SidebarFrame frame, int count) {
+		for (int j = 1; j < count; j++) {
+			int line = pending[j];
+			int k = j - 1;
+			while (k >= 0 && frame.priorities[pending[k]] < frame.priorities[line]) {
+				pending[k + 1] = pending[k];
+				k--;
+			}
+			pending[k + 1] = line;
+		}
+	}
+
+	/**
+	 * Shows more than 15 lines as plain scores. This flickers, since the
+	 * objective has to be recreated.
+	 */
+	void applyFallback(String title, String[] lines) {
+
+		writer.recreateObjective(title);
+		applied.title = title;
+		deferred = 0;
+		if (trace != null)
+			trace.title(title);
+
+		for (int i = lines.length; i > 0; i--)
+			writer.setScore(lines[lines.length - i], i);
+
+		// The line entries have to be scored again once there are <=15 lines
+		size = -1;
+
+		totalWrites += 3 + lines.length;
+
+	}
+
+	private void resetTeams() {
+		for (int i = 0; i < 15; i++) {
+			resetScore(i);
+			setSuffix(i, "");
+			setPrefix(i, "");
+			applied.set(i, "", "", "");
+		}
+	}
+
+	private void setTitle(String title) {
+		writer.setTitle(title);
+		applied.title = title;
+		if (trace != null)
+			trace.title(title);
+	}
+
+	private void setPrefix(int line, String prefix) {
+		writer.setPrefix(line, prefix);
+		applied.prefixes[line] = prefix;
+		if (trace != null)
+			trace.prefix(line, prefix);
+	}
+
+	private void setSuffix(int line, String suffix) {
+		writer.setSuffix(line, suffix);
+		applied.suffixes[line] = suffix;
+		if (trace != null)
+			trace.suffix(line, suffix);
+	}
+
+	private void setScore(int line, int score) {
+		writer.setScore(LINE_ENTRIES[line], score);
+		if (trace != null)
+			trace.score(line, score);
+	}
+
+	private void resetScore(int line) {
+		writer.resetScore(LINE_ENTRIES[line]);
+		if (trace != null)
+			trace.reset(line);
+	}
+
+}
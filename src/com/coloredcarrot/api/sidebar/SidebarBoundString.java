@@ -0,0 +1,283 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+
+/**
+ * A SidebarString whose text is bound to {@link SidebarValue values}. The
+ * text is a template in which {@code {0}}, {@code {1}}, ... stand for the
+ * values, e.g. {@code "&eKills: &f{0}"}. Instead of being evaluated on every
+ * update like placeholders, the text is only built again after the version
+ * of a value changed, and the sidebars skip the line until then; see
+ * {@link #refresh()}.
+ *
+ * <pre>
+ * SidebarValue.Settable&lt;Integer&gt; kills = SidebarValue.of(0);
+ * sidebar.addEntry(new SidebarBoundString("&amp;eKills: &amp;f{0}", kills));
+ * // in the listener of the kills
+ * kills.set(kills.get() + 1);
+ * </pre>
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarBoundString extends SidebarString {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarBoundString.class);
+	}
+
+	private final String template;
+	/**
+	 * The template split at the bindings; literals has one element more than
+	 * bindings, which holds the index of the value of each binding.
+	 */
+	private final String[] literals;
+	private final int[] bindings;
+	private final SidebarValue<?>[] values;
+	/**
+	 * The versions of the values the current text was built from. They are
+	 * shared by all sidebars showing this text; each line keeps track of
+	 * whether it rendered the current text itself.
+	 */
+	private final long[] versions;
+	private volatile boolean invalid = true;
+	private volatile String text = "";
+
+	/**
+	 * Constructs a new SidebarBoundString.
+	 *
+	 * @param template
+	 *            (String) - the text, with {@code {n}} standing for the n-th
+	 *            value
+	 * @param values
+	 *            (SidebarValue...) - the values
+	 * @throws IllegalArgumentException
+	 *             if the template refers to a value that does not exist.
+	 */
+	public SidebarBoundString(String template, SidebarValue<?>... values) {
+
+		if (template == null)
+			throw new IllegalArgumentException("template cannot be null!");
+
+		this.template = template;
+		this.values = values.clone();
+		this.versions = new long[values.length];
+
+		List<String> literals = new ArrayList<>();
+		List<Integer> bindings = new ArrayList<>();
+
+		int literalStart = 0;
+		for (int open = template.indexOf('{'); open >= 0; open = template.indexOf('{', open + 1)) {
+
+			int close = template.indexOf('}', open + 1);
+			if (close < 0)
+				break;
+
+			int index;
+			try {
+				index = Integer.parseInt(template.substring(open + 1, close));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+
+			if (index < 0 || index >= values.length)
+				throw new IllegalArgumentException("template refers to value " + index + ", but there are only "
+						+ values.length + " values!");
+
+			literals.add(template.substring(literalStart, open));
+			bindings.add(index);
+			literalStart = close + 1;
+			open = close;
+
+		}
+
+		literals.add(template.substring(literalStart));
+
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.bindings = new int[bindings.size()];
+		for (int i = 0; i < this.bindings.length; i++)
+			this.bindings[i] = bindings.get(i);
+
+	}
+
+	/**
+	 * Constructs a SidebarBoundString from its serialized form. The values
+	 * cannot be serialized, so they are restored as
+	 * {@link SidebarValue.Settable settable values} holding the text of the
+	 * values at the time of serializing.
+	 */
+	@SuppressWarnings("unchecked")
+	public SidebarBoundString(Map<String, Object> map) {
+		this((String) map.get("template"), restore((List<Object>) map.get("values")));
+		if (map.get("priority") instanceof Integer)
+			setPriority((Integer) map.get("priority"));
+	}
+
+	private static SidebarValue<?>[] restore(List<Object> serialized) {
+		if (serialized == null)
+			return new SidebarValue<?>[0];
+		SidebarValue<?>[] values = new SidebarValue<?>[serialized.size()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = SidebarValue.of(serialized.get(i) == null ? null : serialized.get(i).toString());
+		return values;
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		List<String> values = new ArrayList<>(this.values.length);
+		for (SidebarValue<?> value : this.values)
+			values.add(String.valueOf(value.get()));
+
+		map.put("template", template);
+		map.put("values", values);
+		if (getPriority() != 0)
+			map.put("priority", getPriority());
+
+		return map;
+
+	}
+
+	public String getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Returns false; the text only changes when it is built again, see
+	 * {@link #refresh()}.
+	 *
+	 * @return (boolean) - false.
+	 */
+	@Override
+	public boolean needsUpdate() {
+		return false;
+	}
+
+	private boolean isStale() {
+		if (invalid)
+			return true;
+		for (int i = 0; i < values.length; i++)
+			if (values[i].getVersion() != versions[i])
+				return true;
+		return false;
+	}
+
+	/**
+	 * Makes the next update build the text again, e.g. after a value that
+	 * does not track its version changed.
+	 *
+	 * @return (SidebarBoundString) - this SidebarBoundString Object, for
+	 *         chaining.
+	 */
+	@Override
+	public SidebarBoundString invalidate() {
+		invalid = true;
+		return this;
+	}
+
+	@Override
+	protected int getVariationCount() {
+		return 1;
+	}
+
+	/**
+	 * Builds the text again if a value changed since it was last built, or
+	 * the text was {@link #invalidate() invalidated}. Sidebars sharing this
+	 * text may render it in parallel, so only one of them builds it, and all
+	 * of them render it if it changed.
+	 */
+	@Override
+	protected synchronized void refresh() {
+
+		if (!isStale())
+			return;
+
+		invalid = false;
+		// The versions are read before the values, so a value that changes
+		// meanwhile makes the line dirty again
+		for (int i = 0; i < values.length; i++)
+			versions[i] = values[i].getVersion();
+
+		StringBuilder text = new StringBuilder(template.length() + 16);
+		for (int i = 0; i < bindings.length; i++)
+			text.append(literals[i]).append(values[bindings[i]].get());
+		text.append(literals[bindings.length]);
+
+		String built = intern(text.toString());
+		if (!built.equals(this.text)) {
+			this.text = built;
+			markChanged();
+		}
+
+	}
+
+	@Override
+	protected String getVariation(int index) {
+		return text;
+	}
+
+	/**
+	 * Gets the current text.
+	 *
+	 * @return (List : String) - a list holding the current text.
+	 */
+	@Override
+	public List<String> getVariations() {
+		refresh();
+		return Collections.singletonList(text);
+	}
+
+	/**
+	 * Does nothing; bound texts have no placeholders.
+	 *
+	 * @return (SidebarString) - this SidebarBoundString Object, for chaining.
+	 */
+	@Override
+	public SidebarString setPlaceholders(Player forPlayer) {
+		return this;
+	}
+
+	/**
+	 * Throws on every change of the variations; the text is built from the
+	 * template.
+	 */
+	@Override
+	void checkVariationsMutable() {
+		throw new UnsupportedOperationException("Cannot change the variations of a SidebarBoundString");
+	}
+
+}
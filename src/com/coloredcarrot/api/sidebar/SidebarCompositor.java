@@ -0,0 +1,310 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scoreboard.Scoreboard;
+
+/**
+ * The one sidebar of a player that several plugins contribute
+ * {@link SidebarSection sections} to. Instead of every plugin showing its own
+ * scoreboard with {@link Sidebar#showTo(Player)}, which replaces the
+ * scoreboard of the other plugins and makes the client rebuild the whole
+ * sidebar, each plugin adds its sections to the player's compositor. The
+ * compositor shows one scoreboard for as long as it has sections, and when
+ * a section updates, only the lines that changed are written to it.
+ * <p>
+ * All methods must be called on the server thread.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarCompositor {
+
+	private static final Map<UUID, SidebarCompositor> compositors = new HashMap<>();
+
+	private static final Comparator<SidebarSection> BY_PRIORITY = new Comparator<SidebarSection>() {
+		@Override
+		public int compare(SidebarSection a, SidebarSection b) {
+			return Integer.compare(b.getPriority(), a.getPriority());
+		}
+	};
+
+	/**
+	 * Gets the compositor of a player, creating it if the player has none.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (SidebarCompositor) - the compositor.
+	 */
+	public static SidebarCompositor of(Player player) {
+		SidebarCompositor compositor = compositors.get(player.getUniqueId());
+		if (compositor == null) {
+			compositor = new SidebarCompositor(player.getUniqueId());
+			compositors.put(player.getUniqueId(), compositor);
+		}
+		return compositor;
+	}
+
+	/**
+	 * Gets the compositor of a player.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (SidebarCompositor) - the compositor, or null if the player has
+	 *         none.
+	 */
+	public static SidebarCompositor get(Player player) {
+		return compositors.get(player.getUniqueId());
+	}
+
+	/**
+	 * Passes an event to the sections of the player it is about, or of all
+	 * players if it is not about a player.
+	 */
+	static void trigger(Event event, UUID player) {
+		if (player != null) {
+			SidebarCompositor compositor = compositors.get(player);
+			if (compositor != null)
+				for (SidebarSection section : new ArrayList<>(compositor.sections))
+					section.trigger(event);
+			return;
+		}
+		for (SidebarSection section : allSections())
+			section.trigger(event);
+	}
+
+	/**
+	 * Gets the sections of all compositors.
+	 */
+	static Set<SidebarSection> allSections() {
+		Set<SidebarSection> sections = new LinkedHashSet<>();
+		for (SidebarCompositor compositor : compositors.values())
+			sections.addAll(compositor.sections);
+		return sections;
+	}
+
+	static void start(Plugin plugin) {
+		plugin.getServer().getPluginManager().registerEvents(new Evictor(), plugin);
+	}
+
+	private final UUID player;
+	private final Set<UUID> viewer;
+	private final List<SidebarSection> sections = new ArrayList<>();
+	private final SidebarFrame frame = new SidebarFrame(15);
+	private String title = "";
+	private SidebarBoard board;
+	private final Runnable deferredWrite = new Runnable() {
+		@Override
+		public void run() {
+			compose();
+		}
+	};
+
+	private SidebarCompositor(UUID player) {
+		this.player = player;
+		this.viewer = Collections.singleton(player);
+	}
+
+	/**
+	 * Gets the sections of this compositor, from top to bottom.
+	 *
+	 * @return (List : SidebarSection) - an immutable copy of the sections.
+	 */
+	public List<SidebarSection> getSections() {
+		return Collections.unmodifiableList(new ArrayList<>(sections));
+	}
+
+	/**
+	 * Adds a section. The first section shows the scoreboard of this
+	 * compositor to the player.
+	 *
+	 * @param section
+	 *            (SidebarSection) - the section
+	 * @return (SidebarCompositor) - this SidebarCompositor Object, for
+	 *         chaining.
+	 */
+	public SidebarCompositor add(SidebarSection section) {
+
+		if (sections.contains(section))
+			return this;
+
+		sections.add(section);
+		section.compositors.add(this);
+		// a section is not updated while it is not shown
+		if (section.compositors.size() == 1)
+			section.update();
+		sort();
+
+		return this;
+
+	}
+
+	/**
+	 * Removes a section. Removing the last section resets the player's
+	 * scoreboard to the main scoreboard and discards this compositor.
+	 *
+	 * @param section
+	 *            (SidebarSection) - the section
+	 * @return (boolean) - whether the section was part of this compositor.
+	 */
+	public boolean remove(SidebarSection section) {
+
+		if (!sections.remove(section))
+			return false;
+
+		section.compositors.remove(this);
+
+		if (sections.isEmpty())
+			destroy();
+		else
+			compose();
+
+		return true;
+
+	}
+
+	/**
+	 * Removes all sections, resets the player's scoreboard to the main
+	 * scoreboard and discards this compositor.
+	 */
+	public void destroy() {
+
+		for (SidebarSection section : sections)
+			section.compositors.remove(this);
+		sections.clear();
+
+		compositors.remove(player);
+
+		Player player = Bukkit.getPlayer(this.player);
+		if (board != null && player != null && player.getScoreboard() == board.getScoreboard())
+			player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+		board = null;
+
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Sets the title shown while no section has a title.
+	 *
+	 * @param title
+	 *            (String) - the title
+	 * @return (SidebarCompositor) - this SidebarCompositor Object, for
+	 *         chaining.
+	 */
+	public SidebarCompositor setTitle(String title) {
+		this.title = title == null ? "" : title;
+		compose();
+		return this;
+	}
+
+	/**
+	 * Gets the scoreboard this compositor shows.
+	 *
+	 * @return (Scoreboard) - the scoreboard, or null if this compositor has no
+	 *         sections.
+	 */
+	public Scoreboard getScoreboard() {
+		return board == null ? null : board.getScoreboard();
+	}
+
+	void sort() {
+		// stable, so sections with equal priority keep the order they were
+		// added in
+		Collections.sort(sections, BY_PRIORITY);
+		compose();
+	}
+
+	/**
+	 * Merges the current lines of all sections into one frame and writes the
+	 * lines that differ from what the scoreboard shows.
+	 */
+	void compose() {
+
+		if (sections.isEmpty())
+			return;
+
+		String title = null;
+		int line = 0;
+		for (SidebarSection section : sections) {
+			if (title == null)
+				title = section.getTitle();
+			SidebarFrame lines = section.frame;
+			for (int i = 0; i < lines.size && line < 15; i++, line++) {
+				frame.set(line, lines.prefixes[i], lines.entries[i], lines.suffixes[i]);
+				frame.priorities[line] = lines.priorities[i];
+			}
+		}
+
+		frame.title = title == null ? this.title : title;
+		frame.size = line;
+
+		if (board == null) {
+			board = new SidebarBoard(frame.title);
+			Player player = Bukkit.getPlayer(this.player);
+			if (player != null)
+				player.setScoreboard(board.getScoreboard());
+		}
+
+		// Lines the write budget holds back are written on the next tick
+		SidebarBandwidth.consume(viewer, board.apply(frame, SidebarBandwidth.allowance(viewer)));
+		if (board.deferred != 0)
+			SidebarTriggers.queue(deferredWrite);
+
+	}
+
+	private static final class Evictor implements Listener {
+
+		@EventHandler(priority = EventPriority.MONITOR)
+		public void onQuit(PlayerQuitEvent event) {
+			SidebarCompositor compositor = compositors.get(event.getPlayer().getUniqueId());
+			if (compositor != null)
+				compositor.destroy();
+		}
+
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Reports problems of sidebars, like entries that had to be trimmed, without
+ * flooding the console. Every distinct problem is logged the first time it
+ * occurs; while it keeps occurring, it is only counted, and logged again
+ * together with the count once the window since it was last logged has
+ * passed. A problem that occurs on every update of every player is thus
+ * logged once per window instead of several times per tick.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarDiagnostics {
+
+	/**
+	 * How many distinct problems are tracked at most. Further problems are
+	 * only counted as suppressed until older windows have passed.
+	 */
+	public static final int MAX_PROBLEMS = 1024;
+
+	private static volatile long windowMillis = 60000;
+
+	private static final ConcurrentMap<String, Problem> problems = new ConcurrentHashMap<>();
+	private static final AtomicLong suppressed = new AtomicLong();
+
+	private SidebarDiagnostics() {
+	}
+
+	public static long getWindowMillis() {
+		return windowMillis;
+	}
+
+	/**
+	 * Sets how long a problem is only counted after it was logged. The
+	 * default is one minute.
+	 *
+	 * @param millis
+	 *            (long) - the window, in milliseconds; 0 logs every
+	 *            occurrence
+	 */
+	public static void setWindowMillis(long millis) {
+		if (millis < 0)
+			throw new IllegalArgumentException("millis cannot be smaller than 0!");
+		windowMillis = millis;
+	}
+
+	/**
+	 * Gets how many occurrences of problems were not logged so far.
+	 *
+	 * @return (long) - the suppressed occurrences.
+	 */
+	public static long getSuppressed() {
+		return suppressed.get();
+	}
+
+	/**
+	 * Gets the problems seen in their current window, with how often each
+	 * occurred since it was last logged.
+	 *
+	 * @return (Map : String, Integer) - a snapshot of the counts.
+	 */
+	public static Map<String, Integer> getCounts() {
+		Map<String, Integer> counts = new HashMap<>();
+		for (Map.Entry<String, Problem> problem : problems.entrySet())
+			synchronized (problem.getValue()) {
+				counts.put(problem.getKey(), problem.getValue().count);
+			}
+		return counts;
+	}
+
+	/**
+	 * Forgets all problems, so each is logged again the next time it occurs.
+	 */
+	public static void clear() {
+		problems.clear();
+	}
+
+	/**
+	 * Reports a problem. It is logged as a warning unless the same key was
+	 * logged within the current window.
+	 *
+	 * @param logger
+	 *            (Logger) - the logger to log to, or null for the logger of
+	 *            SidebarAPI
+	 * @param key
+	 *            (String) - identifies the problem; equal problems must have
+	 *            equal keys
+	 * @param message
+	 *            (String) - the message to log
+	 */
+	public static void report(Logger logger, String key, String message) {
+
+		long now = System.currentTimeMillis();
+
+		Problem problem = problems.get(key);
+		if (problem == null) {
+
+			if (problems.size() >= MAX_PROBLEMS)
+				expire(now);
+
+			if (problems.size() >= MAX_PROBLEMS) {
+				suppressed.incrementAndGet();
+				return;
+			}
+
+			Problem created = new Problem(now);
+			problem = problems.putIfAbsent(key, created);
+			if (problem == null) {
+				log(logger, message);
+				return;
+			}
+
+		}
+
+		int repeated;
+		synchronized (problem) {
+			if (now - problem.loggedAt < windowMillis) {
+				problem.count++;
+				suppressed.incrementAndGet();
+				return;
+			}
+			repeated = problem.count;
+			problem.loggedAt = now;
+			problem.count = 0;
+		}
+
+		log(logger, repeated == 0 ? message : message + " (repeated " + repeated + " times since last reported)");
+
+	}
+
+	private static void expire(long now) {
+		for (Iterator<Problem> it = problems.values().iterator(); it.hasNext();) {
+			Problem problem = it.next();
+			synchronized (problem) {
+				if (now - problem.loggedAt >= windowMillis)
+					it.remove();
+			}
+		}
+	}
+
+	private static void log(Logger logger, String message) {
+		if (logger == null) {
+			SidebarAPI api = SidebarAPI.getInstance();
+			logger = api != null ? api.getLogger() : Logger.getLogger(SidebarDiagnostics.class.getName());
+		}
+		logger.warning(message);
+	}
+
+	private static final class Problem {
+
+		private long loggedAt;
+		private int count;
+
+		private Problem(long loggedAt) {
+			this.loggedAt = loggedAt;
+		}
+
+	}
+
+}
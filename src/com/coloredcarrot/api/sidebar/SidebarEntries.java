@@ -0,0 +1,213 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copy-on-write holder for the entries of a sidebar. Every modification
+ * publishes a new array atomically, so the update function can read one
+ * consistent snapshot per tick while other threads add or remove entries.
+ * Writers never lock; concurrent writers simply retry.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SidebarEntries {
+
+	private static final SidebarString[] EMPTY = new SidebarString[0];
+
+	private final AtomicReference<SidebarString[]> snapshot = new AtomicReference<>(EMPTY);
+	private final List<SidebarString> view = new View();
+
+	SidebarEntries(Collection<? extends SidebarString> entries) {
+		set(entries);
+	}
+
+	/**
+	 * Gets the current snapshot. The returned array must not be modified.
+	 *
+	 * @return (SidebarString[]) - the entries at the time of calling.
+	 */
+	SidebarString[] snapshot() {
+		return snapshot.get();
+	}
+
+	/**
+	 * Gets a live list of the entries. Every read sees the current snapshot,
+	 * and every modification publishes a new one, as if it was made through
+	 * this holder.
+	 *
+	 * @return (List : SidebarString) - the entries.
+	 */
+	List<SidebarString> asList() {
+		return view;
+	}
+
+	int size() {
+		return snapshot.get().length;
+	}
+
+	void set(Collection<? extends SidebarString> entries) {
+		snapshot.set(entries == null || entries.isEmpty() ? EMPTY : entries.toArray(new SidebarString[entries.size()]));
+	}
+
+	void add(SidebarString... added) {
+
+		if (added == null || added.length == 0)
+			return;
+
+		SidebarString[] prev, next;
+		do {
+			prev = snapshot.get();
+			next = Arrays.copyOf(prev, prev.length + added.length);
+			System.arraycopy(added, 0, next, prev.length, added.length);
+		} while (!snapshot.compareAndSet(prev, next));
+
+	}
+
+	boolean remove(SidebarString entry) {
+
+		SidebarString[] prev, next;
+		do {
+			prev = snapshot.get();
+			int index = indexOf(prev, entry);
+			if (index < 0)
+				return false;
+			next = without(prev, index);
+		} while (!snapshot.compareAndSet(prev, next));
+
+		return true;
+
+	}
+
+	SidebarString remove(int index) {
+
+		SidebarString[] prev;
+		do {
+			prev = snapshot.get();
+			if (index < 0 || index >= prev.length)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + prev.length);
+		} while (!snapshot.compareAndSet(prev, without(prev, index)));
+
+		return prev[index];
+
+	}
+
+	SidebarString set(int index, SidebarString entry) {
+
+		SidebarString[] prev, next;
+		do {
+			prev = snapshot.get();
+			if (index < 0 || index >= prev.length)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + prev.length);
+			next = prev.clone();
+			next[index] = entry;
+		} while (!snapshot.compareAndSet(prev, next));
+
+		return prev[index];
+
+	}
+
+	void add(int index, SidebarString entry) {
+
+		SidebarString[] prev, next;
+		do {
+			prev = snapshot.get();
+			if (index < 0 || index > prev.length)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + prev.length);
+			next = new SidebarString[prev.length + 1];
+			System.arraycopy(prev, 0, next, 0, index);
+			next[index] = entry;
+			System.arraycopy(prev, index, next, index + 1, prev.length - index);
+		} while (!snapshot.compareAndSet(prev, next));
+
+	}
+
+	private static int indexOf(SidebarString[] array, SidebarString entry) {
+		for (int i = 0; i < array.length; i++)
+			if (entry == null ? array[i] == null : entry.equals(array[i]))
+				return i;
+		return -1;
+	}
+
+	private static SidebarString[] without(SidebarString[] array, int index) {
+		if (array.length == 1)
+			return EMPTY;
+		SidebarString[] next = new SidebarString[array.length - 1];
+		System.arraycopy(array, 0, next, 0, index);
+		System.arraycopy(array, index + 1, next, index, array.length - index - 1);
+		return next;
+	}
+
+	/**
+	 * The live list returned by {@link SidebarEntries#asList()}. Iterating it
+	 * while another thread changes the entries may throw a
+	 * ConcurrentModificationException, like other lists.
+	 */
+	private final class View extends AbstractList<SidebarString> implements RandomAccess {
+
+		@Override
+		public SidebarString get(int index) {
+			return snapshot.get()[index];
+		}
+
+		@Override
+		public int size() {
+			return snapshot.get().length;
+		}
+
+		@Override
+		public SidebarString set(int index, SidebarString entry) {
+			return SidebarEntries.this.set(index, entry);
+		}
+
+		@Override
+		public void add(int index, SidebarString entry) {
+			SidebarEntries.this.add(index, entry);
+			modCount++;
+		}
+
+		@Override
+		public SidebarString remove(int index) {
+			SidebarString removed = SidebarEntries.this.remove(index);
+			modCount++;
+			return removed;
+		}
+
+		@Override
+		public void clear() {
+			snapshot.set(EMPTY);
+			modCount++;
+		}
+
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Arrays;
+
+/**
+ * The rendered text of one sidebar update: the team prefix, score entry and
+ * team suffix of every line. A frame is filled by the render stage and then
+ * applied to the Bukkit scoreboard on the main thread; the arrays are reused
+ * between updates.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SidebarFrame {
+
+	final String[] prefixes;
+	final String[] entries;
+	final String[] suffixes;
+	/**
+	 * The {@link SidebarString#getPriority() priorities} of the lines.
+	 */
+	final int[] priorities;
+	String title = "";
+	int size;
+
+	// Only filled while the sidebar has listeners
+	/**
+	 * The text each line was last rendered from, and the text before that for
+	 * the lines flagged in {@link #changed}.
+	 */
+	final String[] texts;
+	final String[] oldTexts;
+	int changed;
+	long renderNanos;
+
+	SidebarFrame(int capacity) {
+		prefixes = new String[capacity];
+		entries = new String[capacity];
+		suffixes = new String[capacity];
+		priorities = new int[capacity];
+		texts = new String[capacity];
+		oldTexts = new String[capacity];
+		Arrays.fill(prefixes, "");
+		Arrays.fill(entries, "");
+		Arrays.fill(suffixes, "");
+	}
+
+	void set(int line, String prefix, String entry, String suffix) {
+		prefixes[line] = prefix;
+		entries[line] = entry;
+		suffixes[line] = suffix;
+	}
+
+	/**
+	 * Hashes the title and the lines of this frame.
+	 *
+	 * @return (long) - the hash.
+	 */
+	long contentHash() {
+		long hash = 1125899906842597L + title.hashCode();
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + prefixes[i].hashCode();
+			hash = 31 * hash + entries[i].hashCode();
+			hash = 31 * hash + suffixes[i].hashCode();
+		}
+		return hash ^ (hash >>> 29) ^ size;
+	}
+
+	/**
+	 * Checks whether the title and the lines of this frame equal the ones of
+	 * another frame.
+	 */
+	boolean contentEquals(SidebarFrame other) {
+		if (size != other.size || !title.equals(other.title))
+			return false;
+		for (int i = 0; i < size; i++)
+			if (!prefixes[i].equals(other.prefixes[i]) || !entries[i].equals(other.entries[i])
+					|| !suffixes[i].equals(other.suffixes[i]))
+				return false;
+		return true;
+	}
+
+}
@@ -0,0 +1,305 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * How a rendered line is split over the team prefix, the score entry and the
+ * team suffix. Color codes cannot be split, and the entry of a line begins
+ * with its unique color and a reset, so the colors and formats active where
+ * the entry and the part after it start have to be repeated there; only the
+ * suffix of a {@link LongSidebar} continues with the colors its entry ends
+ * with.
+ * <p>
+ * Instead of splitting greedily, the layout is searched: the line is first
+ * reduced to the color codes that have an effect, then every split is tried,
+ * and the one that shows the most text is chosen, with the fewest characters
+ * spent on repeated codes among those. Layouts are cached by the text of the
+ * line, so each distinct line is only searched once.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SidebarLayout {
+
+	private static final String COLOR_CODES = "0123456789abcdef";
+	private static final String FORMAT_CODES = "klmno";
+
+	private static final LoadingCache<String, SidebarLayout> SHORT = cache(false);
+	private static final LoadingCache<String, SidebarLayout> LONG = cache(true);
+
+	private static LoadingCache<String, SidebarLayout> cache(final boolean isLong) {
+		return CacheBuilder.newBuilder().maximumSize(4096).build(new CacheLoader<String, SidebarLayout>() {
+			@Override
+			public SidebarLayout load(String text) {
+				return new SidebarLayout(text, SidebarLimits.getPrefixLength(),
+						isLong ? SidebarLimits.getEntryLength() : 0, SidebarLimits.getSuffixLength());
+			}
+		});
+	}
+
+	/**
+	 * Gets the layout of a line whose color codes have been translated.
+	 *
+	 * @param text
+	 *            (String) - the text of the line
+	 * @param isLong
+	 *            (boolean) - whether the line is shown by a {@link LongSidebar},
+	 *            which also uses the score entry for text
+	 * @return (SidebarLayout) - the layout.
+	 */
+	static SidebarLayout of(String text, boolean isLong) {
+		return (isLong ? LONG : SHORT).getUnchecked(text);
+	}
+
+	/**
+	 * Drops all cached layouts, e.g. after the {@link SidebarLimits} changed.
+	 */
+	static void clear() {
+		SHORT.invalidateAll();
+		LONG.invalidateAll();
+	}
+
+	final String prefix, suffix;
+	/**
+	 * The text shown in the score entry, without the color of the line.
+	 */
+	private final String entry;
+	/**
+	 * Whether the entry needs a reset after the color of the line, because
+	 * its text does not start with a color of its own.
+	 */
+	private final boolean resetEntry;
+	/**
+	 * Whether the whole text fits; otherwise, the text is cut off.
+	 */
+	final boolean complete;
+	/**
+	 * The score entries per line, built when first used.
+	 */
+	private final String[] entries = new String[SidebarBoard.LINE_COLORS.length];
+
+	/**
+	 * The text reduced to the codes that have an effect, and for each
+	 * visible character (or unknown code, which is kept as it is): its index,
+	 * where the codes before it start, and the color and formats active at it.
+	 */
+	private final String reduced;
+	private final int[] at, codesAt;
+	private final char[] colors;
+	private final int[] formats;
+	private final int visible;
+
+	private SidebarLayout(String text, int prefixLength, int entryLength, int suffixLength) {
+
+		int length = text.length();
+		StringBuilder reduced = new StringBuilder(length);
+		int[] at = new int[length + 1];
+		int[] codesAt = new int[length + 1];
+		char[] colors = new char[length + 1];
+		int[] formats = new int[length + 1];
+		int visible = 0;
+
+		char color = 'f', shownColor = 'f';
+		int format = 0, shownFormat = 0;
+
+		for (int i = 0; i < length; i++) {
+
+			char c = text.charAt(i);
+			int unit = 1;
+
+			if (c == '§') {
+				if (i + 1 == length)
+					break;
+				char code = Character.toLowerCase(text.charAt(i + 1));
+				if (code == 'r' || COLOR_CODES.indexOf(code) >= 0) {
+					color = code == 'r' ? 'f' : code;
+					format = 0;
+					i++;
+					continue;
+				}
+				int bit = FORMAT_CODES.indexOf(code);
+				if (bit >= 0) {
+					format |= 1 << bit;
+					i++;
+					continue;
+				}
+				// Not a code the client knows; kept as it is
+				unit = 2;
+			}
+
+			codesAt[visible] = reduced.length();
+			if (color != shownColor || (shownFormat & ~format) != 0) {
+				reduced.append(color == 'f' ? "§r" : "§" + color);
+				shownColor = color;
+				shownFormat = 0;
+			}
+			appendFormats(reduced, format & ~shownFormat);
+			shownFormat = format;
+
+			at[visible] = reduced.length();
+			colors[visible] = color;
+			formats[visible] = format;
+			visible++;
+
+			reduced.append(text, i, i + unit);
+			i += unit - 1;
+
+		}
+
+		// Trailing codes have no effect and were never added
+		at[visible] = codesAt[visible] = reduced.length();
+
+		this.reduced = reduced.toString();
+		this.at = at;
+		this.codesAt = codesAt;
+		this.colors = colors;
+		this.formats = formats;
+		this.visible = visible;
+
+		// Find the split that shows the most, then uses the fewest characters
+		int bestEnd = -1, bestLength = Integer.MAX_VALUE, bestPrefix = 0, bestEntry = 0;
+
+		for (int b1 = 0; b1 <= visible && length(0, b1, -1) <= prefixLength; b1++)
+			for (int b2 = b1; b2 <= visible && (entryLength > 0 ? entryLength(b1, b2) <= entryLength : b2 == b1); b2++) {
+				int before = before(b1, b2, entryLength > 0);
+				int end = furthest(b2, suffixLength, before);
+				int used = length(0, b1, -1) + (entryLength > 0 ? entryLength(b1, b2) : 0) + length(b2, end, before);
+				if (end > bestEnd || end == bestEnd && used <= bestLength) {
+					bestEnd = end;
+					bestLength = used;
+					bestPrefix = b1;
+					bestEntry = b2;
+				}
+			}
+
+		prefix = part(0, bestPrefix, -1);
+		entry = part(bestPrefix, bestEntry, -1);
+		resetEntry = bestEntry == bestPrefix || colors[bestPrefix] == 'f';
+		suffix = part(bestEntry, bestEnd, before(bestPrefix, bestEntry, entryLength > 0));
+		complete = bestEnd == visible;
+
+	}
+
+	/**
+	 * Gets the visible character whose colors the suffix continues with, or
+	 * -1 if it starts without colors.
+	 */
+	private static int before(int entryFrom, int entryTo, boolean isLong) {
+		return isLong && entryTo > entryFrom ? entryTo - 1 : -1;
+	}
+
+	/**
+	 * Gets the number of characters a part from one visible character up to
+	 * another needs, including the codes that bring the colors active before
+	 * the part, those of the specified visible character or none if it is -1,
+	 * to the ones of its first character.
+	 */
+	private int length(int from, int to, int before) {
+		if (from >= to)
+			return 0;
+		return codes(before, from) + codesAt[to] - at[from];
+	}
+
+	/**
+	 * Gets the number of characters of a score entry, including the color of
+	 * the line and the reset after it.
+	 */
+	private int entryLength(int from, int to) {
+		return 2 + (from == to || colors[from] == 'f' ? 2 : 0) + length(from, to, -1);
+	}
+
+	/**
+	 * Gets the furthest visible character a part that starts at a visible
+	 * character may end at.
+	 */
+	private int furthest(int from, int maxLength, int before) {
+		int low = from, high = visible;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (length(from, mid, before) <= maxLength)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Gets the number of characters of the codes that change the colors of
+	 * one visible character, or no colors if it is -1, to those of another.
+	 */
+	private int codes(int from, int to) {
+		char color = from < 0 ? 'f' : colors[from];
+		int format = from < 0 ? 0 : formats[from];
+		if (colors[to] != color || (format & ~formats[to]) != 0)
+			return 2 + 2 * Integer.bitCount(formats[to]);
+		return 2 * Integer.bitCount(formats[to] & ~format);
+	}
+
+	private String part(int from, int to, int before) {
+
+		if (from >= to)
+			return "";
+
+		StringBuilder part = new StringBuilder(length(from, to, before));
+		char color = before < 0 ? 'f' : colors[before];
+		int format = before < 0 ? 0 : formats[before];
+
+		if (colors[from] != color || (format & ~formats[from]) != 0) {
+			part.append(colors[from] == 'f' ? "§r" : "§" + colors[from]);
+			format = 0;
+		}
+		appendFormats(part, formats[from] & ~format);
+
+		return part.append(reduced, at[from], codesAt[to]).toString();
+
+	}
+
+	private static void appendFormats(StringBuilder text, int formats) {
+		for (int bit = 0; bit < FORMAT_CODES.length(); bit++)
+			if ((formats & 1 << bit) != 0)
+				text.append('§').append(FORMAT_CODES.charAt(bit));
+	}
+
+	/**
+	 * Gets the score entry of a line of a {@link LongSidebar}.
+	 *
+	 * @param line
+	 *            (int) - the index of the line
+	 * @return (String) - the entry.
+	 */
+	String getEntry(int line) {
+		String entry = entries[line];
+		if (entry == null)
+			entries[line] = entry = SidebarBoard.LINE_COLORS[line] + (resetEntry ? "§r" : "") + this.entry;
+		return entry;
+	}
+
+}
@@ -0,0 +1,418 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * The top entries of a ranking, e.g. the players with the most kills, as
+ * sidebar lines. The scores are kept in a balanced tree ordered by score, so
+ * changing a score costs O(log n) instead of sorting the whole table, and a
+ * change that does not affect the top ranks costs nothing else. When the top
+ * ranks are shown, only the lines of ranks whose holder or score changed are
+ * built and rendered again; the other lines are skipped like any line that
+ * did not change.
+ * <p>
+ * The lines are built from a format in which {@code {rank}}, {@code {name}}
+ * and {@code {score}} are replaced, e.g. {@code "&e{rank}. &f{name} &7{score}"}.
+ * Holders with equal scores are ordered by name. All methods may be called
+ * from any thread.
+ *
+ * <pre>
+ * SidebarLeaderboard kills = new SidebarLeaderboard(10, "&amp;e{rank}. &amp;f{name} &amp;7{score}");
+ * sidebar.setEntries(kills.createLines());
+ * // on every kill
+ * kills.addScore(killer.getName(), 1);
+ * </pre>
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarLeaderboard {
+
+	private static final Comparator<Holder> ORDER = new Comparator<Holder>() {
+		@Override
+		public int compare(Holder a, Holder b) {
+			int byScore = Long.compare(b.score, a.score);
+			return byScore != 0 ? byScore : a.name.compareTo(b.name);
+		}
+	};
+
+	private final int size;
+	private final String format, emptyFormat;
+
+	private final TreeSet<Holder> order = new TreeSet<>(ORDER);
+	private final Map<String, Holder> holders = new HashMap<>();
+
+	/**
+	 * The holders of the top ranks as of the last refresh, and the texts and
+	 * versions of their lines; the version of a rank changes whenever its text
+	 * does.
+	 */
+	private final Holder[] top;
+	private final String[] names;
+	private final long[] scores;
+	private final String[] texts;
+	private final int[] versions;
+	/**
+	 * Whether a change since the last refresh may affect the top ranks.
+	 */
+	private boolean dirty = false;
+
+	/**
+	 * Constructs a new SidebarLeaderboard whose empty ranks show nothing.
+	 *
+	 * @param size
+	 *            (int) - how many ranks to show, between 1 and 15
+	 * @param format
+	 *            (String) - the format of a line
+	 */
+	public SidebarLeaderboard(int size, String format) {
+		this(size, format, "");
+	}
+
+	/**
+	 * Constructs a new SidebarLeaderboard.
+	 *
+	 * @param size
+	 *            (int) - how many ranks to show, between 1 and 15
+	 * @param format
+	 *            (String) - the format of a line
+	 * @param emptyFormat
+	 *            (String) - the format of a rank without a holder; only
+	 *            {@code {rank}} is replaced
+	 */
+	public SidebarLeaderboard(int size, String format, String emptyFormat) {
+
+		if (size < 1 || size > 15)
+			throw new IllegalArgumentException("size must be between 1 and 15!");
+		if (format == null || emptyFormat == null)
+			throw new IllegalArgumentException("format and emptyFormat cannot be null!");
+
+		this.size = size;
+		this.format = format;
+		this.emptyFormat = emptyFormat;
+
+		top = new Holder[size];
+		names = new String[size];
+		scores = new long[size];
+		texts = new String[size];
+		versions = new int[size];
+
+		for (int rank = 0; rank < size; rank++)
+			texts[rank] = emptyText(rank);
+
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Sets the score of a holder, adding the holder if it has no score yet.
+	 *
+	 * @param name
+	 *            (String) - the name of the holder
+	 * @param score
+	 *            (long) - the score
+	 * @return (SidebarLeaderboard) - this SidebarLeaderboard Object, for
+	 *         chaining.
+	 */
+	public synchronized SidebarLeaderboard setScore(String name, long score) {
+
+		if (name == null)
+			throw new IllegalArgumentException("name cannot be null!");
+
+		Holder holder = holders.get(name);
+		if (holder == null) {
+			holder = new Holder(name);
+			holders.put(name, holder);
+		} else if (holder.score == score)
+			return this;
+		else
+			order.remove(holder);
+
+		holder.score = score;
+		order.add(holder);
+
+		if (!dirty)
+			dirty = holder.rank >= 0 || isInTop(holder);
+
+		return this;
+
+	}
+
+	/**
+	 * Adds to the score of a holder, starting from 0 if it has no score yet.
+	 *
+	 * @param name
+	 *            (String) - the name of the holder
+	 * @param delta
+	 *            (long) - what to add
+	 * @return (SidebarLeaderboard) - this SidebarLeaderboard Object, for
+	 *         chaining.
+	 */
+	public synchronized SidebarLeaderboard addScore(String name, long delta) {
+		Holder holder = holders.get(name);
+		return setScore(name, holder == null ? delta : holder.score + delta);
+	}
+
+	/**
+	 * Gets the score of a holder.
+	 *
+	 * @param name
+	 *            (String) - the name of the holder
+	 * @return (Long) - the score, or null if the holder has none.
+	 */
+	public synchronized Long getScore(String name) {
+		Holder holder = holders.get(name);
+		return holder == null ? null : holder.score;
+	}
+
+	/**
+	 * Removes a holder.
+	 *
+	 * @param name
+	 *            (String) - the name of the holder
+	 * @return (boolean) - whether the holder had a score.
+	 */
+	public synchronized boolean remove(String name) {
+
+		Holder holder = holders.remove(name);
+		if (holder == null)
+			return false;
+
+		order.remove(holder);
+		dirty |= holder.rank >= 0;
+
+		return true;
+
+	}
+
+	/**
+	 * Removes all holders.
+	 */
+	public synchronized void clear() {
+		holders.clear();
+		order.clear();
+		dirty = true;
+	}
+
+	/**
+	 * Gets the names of the holders of the top ranks, best first.
+	 *
+	 * @return (List : String) - the names; fewer than {@link #getSize()} if
+	 *         there are fewer holders.
+	 */
+	public synchronized List<String> getTop() {
+		List<String> top = new ArrayList<>(size);
+		for (Iterator<Holder> it = order.iterator(); it.hasNext() && top.size() < size;)
+			top.add(it.next().name);
+		return top;
+	}
+
+	/**
+	 * Creates one line per rank that shows this leaderboard. Each sidebar
+	 * needs its own lines, but any number of them may show the same
+	 * leaderboard.
+	 *
+	 * @return (List : SidebarString) - the lines, best rank first.
+	 */
+	public List<SidebarString> createLines() {
+		List<SidebarString> lines = new ArrayList<>(size);
+		for (int rank = 0; rank < size; rank++)
+			lines.add(new Line(rank));
+		return lines;
+	}
+
+	/**
+	 * Creates a section that shows this leaderboard, see
+	 * {@link SidebarCompositor}.
+	 *
+	 * @param plugin
+	 *            (Plugin) - your plugin
+	 * @param priority
+	 *            (int) - the priority of the section
+	 * @param updateDelayInTicks
+	 *            (int) - how many server ticks to wait in between each update
+	 * @return (SidebarSection) - the section.
+	 */
+	public SidebarSection createSection(Plugin plugin, int priority, int updateDelayInTicks) {
+		List<SidebarString> lines = createLines();
+		return new SidebarSection(plugin, priority, updateDelayInTicks, lines.toArray(new SidebarString[lines.size()]));
+	}
+
+	private boolean isInTop(Holder holder) {
+		Holder last = top[size - 1];
+		return last == null || ORDER.compare(holder, last) <= 0;
+	}
+
+	/**
+	 * Updates the top ranks if anything changed that may affect them.
+	 */
+	private void refresh() {
+
+		if (!dirty)
+			return;
+
+		dirty = false;
+
+		for (Holder holder : top)
+			if (holder != null)
+				holder.rank = -1;
+
+		Iterator<Holder> it = order.iterator();
+		for (int rank = 0; rank < size; rank++) {
+
+			Holder holder = it.hasNext() ? it.next() : null;
+			top[rank] = holder;
+
+			if (holder == null) {
+				if (names[rank] != null) {
+					names[rank] = null;
+					texts[rank] = emptyText(rank);
+					versions[rank]++;
+				}
+				continue;
+			}
+
+			holder.rank = rank;
+			if (!holder.name.equals(names[rank]) || holder.score != scores[rank]) {
+				names[rank] = holder.name;
+				scores[rank] = holder.score;
+				texts[rank] = SidebarString.intern(format.replace("{rank}", String.valueOf(rank + 1)).replace("{name}", holder.name)
+						.replace("{score}", String.valueOf(holder.score)));
+				versions[rank]++;
+			}
+
+		}
+
+	}
+
+	private String emptyText(int rank) {
+		return SidebarString.intern(emptyFormat.replace("{rank}", String.valueOf(rank + 1)));
+	}
+
+	private static final class Holder {
+
+		private final String name;
+		private long score;
+		/**
+		 * The index of the rank this holder had at the last refresh, or -1 if
+		 * it was not in the top ranks.
+		 */
+		private int rank = -1;
+
+		private Holder(String name) {
+			this.name = name;
+		}
+
+	}
+
+	/**
+	 * The line of one rank. It only needs an update after the text of its
+	 * rank changed.
+	 */
+	private final class Line extends SidebarString {
+
+		private final int rank;
+		private int shown = -1;
+
+		private Line(int rank) {
+			this.rank = rank;
+		}
+
+		@Override
+		public boolean needsUpdate() {
+			return false;
+		}
+
+		@Override
+		protected void refresh() {
+			synchronized (SidebarLeaderboard.this) {
+				SidebarLeaderboard.this.refresh();
+				if (versions[rank] != shown) {
+					shown = versions[rank];
+					markChanged();
+				}
+			}
+		}
+
+		@Override
+		protected int getVariationCount() {
+			return 1;
+		}
+
+		@Override
+		protected String getVariation(int index) {
+			synchronized (SidebarLeaderboard.this) {
+				return texts[rank];
+			}
+		}
+
+		/**
+		 * Does nothing; the lines of a leaderboard have no placeholders.
+		 */
+		@Override
+		public SidebarString setPlaceholders(Player forPlayer) {
+			return this;
+		}
+
+		/**
+		 * Gets the current text.
+		 *
+		 * @return (List : String) - a list holding the current text.
+		 */
+		@Override
+		public List<String> getVariations() {
+			synchronized (SidebarLeaderboard.this) {
+				SidebarLeaderboard.this.refresh();
+				return Collections.singletonList(texts[rank]);
+			}
+		}
+
+		/**
+		 * Throws on every change of the variations; the text is built from the
+		 * leaderboard.
+		 */
+		@Override
+		void checkVariationsMutable() {
+			throw new UnsupportedOperationException("Cannot change the variations of the line of a SidebarLeaderboard");
+		}
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.Bukkit;
+
+/**
+ * The text limits of the server's scoreboard implementation. Up to Minecraft
+ * 1.12, team prefixes and suffixes are limited to 16 characters; since 1.13
+ * they may have 64 characters, so most lines fit into a single prefix. Score
+ * entries are limited to 40 characters. The limits are detected once from
+ * the server version and can be overridden in the config.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarLimits {
+
+	private static volatile int prefixLength;
+	private static volatile int suffixLength;
+	private static volatile int entryLength = 40;
+
+	static {
+		boolean legacy = isLegacyServer();
+		prefixLength = legacy ? 16 : 64;
+		suffixLength = legacy ? 16 : 64;
+	}
+
+	private SidebarLimits() {
+	}
+
+	private static boolean isLegacyServer() {
+
+		String version;
+		try {
+			// E.g. 1.12.2-R0.1-SNAPSHOT
+			version = Bukkit.getBukkitVersion();
+		} catch (RuntimeException e) {
+			// No server, e.g. when simulating sidebars
+			return true;
+		}
+
+		if (version == null)
+			return true;
+
+		String[] parts = version.split("[.-]");
+		try {
+			return parts.length < 2 || Integer.parseInt(parts[0]) == 1 && Integer.parseInt(parts[1]) < 13;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+
+	}
+
+	/**
+	 * Overrides the detected limits. Values less than 1 keep the detected
+	 * limit.
+	 *
+	 * @param prefix
+	 *            (int) - the maximum length of a team prefix
+	 * @param suffix
+	 *            (int) - the maximum length of a team suffix
+	 * @param entry
+	 *            (int) - the maximum length of a score entry
+	 */
+	public static void override(int prefix, int suffix, int entry) {
+		if (prefix > 0)
+			prefixLength = prefix;
+		if (suffix > 0)
+			suffixLength = suffix;
+		if (entry > 0)
+			entryLength = entry;
+		SidebarLayout.clear();
+	}
+
+	/**
+	 * Gets the maximum length of a team prefix.
+	 *
+	 * @return (int) - the length.
+	 */
+	public static int getPrefixLength() {
+		return prefixLength;
+	}
+
+	/**
+	 * Gets the maximum length of a team suffix.
+	 *
+	 * @return (int) - the length.
+	 */
+	public static int getSuffixLength() {
+		return suffixLength;
+	}
+
+	/**
+	 * Gets the maximum length of a score entry.
+	 *
+	 * @return (int) - the length.
+	 */
+	public static int getEntryLength() {
+		return entryLength;
+	}
+
+	/**
+	 * Gets how much of a score entry of a {@link LongSidebar} may be used for
+	 * text. The rest is taken by the line's unique color and carried colors.
+	 *
+	 * @return (int) - the length.
+	 */
+	static int getLongEntryTextLength() {
+		return entryLength - 6;
+	}
+
+	/**
+	 * Gets the maximum length of a line of a {@link Sidebar}, which is shown in
+	 * a team prefix and suffix. A few characters are reserved for the colors
+	 * carried over into the suffix.
+	 *
+	 * @return (int) - the length.
+	 */
+	public static int getLineLength() {
+		return prefixLength + suffixLength - 4;
+	}
+
+	/**
+	 * Gets the maximum length of a line of a {@link LongSidebar}, which is
+	 * shown in a team prefix, the score entry and a team suffix.
+	 *
+	 * @return (int) - the length.
+	 */
+	public static int getLongLineLength() {
+		return prefixLength + getLongEntryTextLength() + suffixLength - 2;
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+/**
+ * Listens to the updates of a sidebar; see {@link Sidebars#addListener}.
+ * All methods are called on the server thread. Extend
+ * {@link SidebarAdapter} to only implement some of them.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public interface SidebarListener {
+
+	/**
+	 * Called before a sidebar renders its next frame.
+	 *
+	 * @param sidebar
+	 *            (Sidebars) - the sidebar
+	 * @return (boolean) - false to skip this update.
+	 */
+	boolean preRender(Sidebars sidebar);
+
+	/**
+	 * Called when the text of a line changed, before
+	 * {@link #postRender(Sidebars, long, long, int)}.
+	 *
+	 * @param sidebar
+	 *            (Sidebars) - the sidebar
+	 * @param line
+	 *            (int) - the index of the line, 0 being the top-most line
+	 * @param oldText
+	 *            (String) - the text shown before, or null if unknown
+	 * @param newText
+	 *            (String) - the text shown now
+	 */
+	void lineChanged(Sidebars sidebar, int line, String oldText, String newText);
+
+	/**
+	 * Called after a frame was written to the scoreboard. With
+	 * {@link SidebarRenderer#isParallel() parallel rendering}, that is during
+	 * the update after the one that rendered it.
+	 *
+	 * @param sidebar
+	 *            (Sidebars) - the sidebar
+	 * @param renderNanos
+	 *            (long) - how long rendering the frame took, in nanoseconds
+	 * @param applyNanos
+	 *            (long) - how long writing the frame took, in nanoseconds
+	 * @param writes
+	 *            (int) - how many scoreboard writes were issued
+	 */
+	void postRender(Sidebars sidebar, long renderNanos, long applyNanos, int writes);
+
+}
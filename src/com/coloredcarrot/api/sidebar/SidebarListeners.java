@@ -0,0 +1,134 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * The listeners of one sidebar, kept in an array that is copied on every
+ * change. Sidebars check {@link #isEmpty()} first, so without listeners an
+ * update neither allocates nor measures anything. A listener that throws is
+ * logged and does not affect the update or the other listeners.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SidebarListeners {
+
+	private static final SidebarListener[] NONE = new SidebarListener[0];
+
+	private volatile SidebarListener[] listeners = NONE;
+
+	boolean isEmpty() {
+		return listeners.length == 0;
+	}
+
+	synchronized void add(SidebarListener listener) {
+		if (listener == null)
+			throw new IllegalArgumentException("listener cannot be null!");
+		SidebarListener[] next = Arrays.copyOf(listeners, listeners.length + 1);
+		next[listeners.length] = listener;
+		listeners = next;
+	}
+
+	synchronized boolean remove(SidebarListener listener) {
+		SidebarListener[] prev = listeners;
+		for (int i = 0; i < prev.length; i++)
+			if (prev[i] == listener) {
+				SidebarListener[] next = prev.length == 1 ? NONE : new SidebarListener[prev.length - 1];
+				System.arraycopy(prev, 0, next, 0, i);
+				System.arraycopy(prev, i + 1, next, i, prev.length - i - 1);
+				listeners = next;
+				return true;
+			}
+		return false;
+	}
+
+	boolean preRender(Sidebars sidebar) {
+		boolean render = true;
+		for (SidebarListener listener : listeners)
+			try {
+				render &= listener.preRender(sidebar);
+			} catch (RuntimeException e) {
+				log(sidebar, listener, e);
+			}
+		return render;
+	}
+
+	/**
+	 * Fires the line changes recorded in the frame, then the post-render
+	 * event, and clears the recorded changes.
+	 */
+	void postRender(Sidebars sidebar, SidebarFrame frame, long applyNanos, int writes) {
+		postRender(sidebar, frame, applyNanos, writes, 0);
+	}
+
+	/**
+	 * Fires the line changes recorded in the frame, except for the lines that
+	 * were not written, then the post-render event, and clears the fired
+	 * changes. The changes of the deferred lines are fired once they are
+	 * written.
+	 */
+	void postRender(Sidebars sidebar, SidebarFrame frame, long applyNanos, int writes, int deferred) {
+
+		SidebarListener[] listeners = this.listeners;
+
+		int changed = frame == null ? 0 : frame.changed & ~deferred;
+		for (int line = 0; changed != 0; line++, changed >>>= 1) {
+			if ((changed & 1) == 0)
+				continue;
+			for (SidebarListener listener : listeners)
+				try {
+					listener.lineChanged(sidebar, line, frame.oldTexts[line], frame.texts[line]);
+				} catch (RuntimeException e) {
+					log(sidebar, listener, e);
+				}
+		}
+
+		long renderNanos = 0;
+		if (frame != null) {
+			renderNanos = frame.renderNanos;
+			frame.changed &= deferred;
+		}
+
+		for (SidebarListener listener : listeners)
+			try {
+				listener.postRender(sidebar, renderNanos, applyNanos, writes);
+			} catch (RuntimeException e) {
+				log(sidebar, listener, e);
+			}
+
+	}
+
+	private static void log(Sidebars sidebar, SidebarListener listener, RuntimeException e) {
+		SidebarAPI api = SidebarAPI.getInstance();
+		if (api != null)
+			api.getLogger().log(Level.WARNING,
+					"[Sidebar] Listener " + listener + " of sidebar \"" + sidebar.getTitle() + "\" failed", e);
+	}
+
+}
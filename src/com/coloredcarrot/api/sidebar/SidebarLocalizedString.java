@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+
+/**
+ * A text whose variations are the keys of {@link SidebarMessages}, shown in
+ * the locale of the player its placeholders are set for, or in
+ * {@link #setLocale(String) a fixed locale}. The texts of a locale are looked
+ * up once and shared by all players with that locale; only the placeholders
+ * in them are resolved per player, and a text without placeholders costs
+ * nothing per player at all. Per-player sidebars in
+ * {@link Sidebar#setShared(boolean) shared mode} whose lines have no
+ * placeholders therefore end up on one scoreboard per locale.
+ *
+ * <pre>
+ * SidebarMessages.set("en_us", "lobby.welcome", "&amp;eWelcome, &amp;f%player_name%");
+ * SidebarMessages.set("de", "lobby.welcome", "&amp;eWillkommen, &amp;f%player_name%");
+ * sidebar.addEntry(new SidebarLocalizedString("lobby.welcome"));
+ * sidebar.setPlaceholderPlayerForUpdate(player);
+ * </pre>
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarLocalizedString extends SidebarString {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarLocalizedString.class);
+	}
+
+	private final String[] keys;
+	/**
+	 * The texts of the keys per locale.
+	 */
+	private transient final ConcurrentMap<String, Texts> byLocale = new ConcurrentHashMap<>();
+	/**
+	 * The texts of the shown locale, and what is shown: either those texts or
+	 * their placeholders resolved for a player.
+	 */
+	private transient volatile Texts texts;
+	private transient volatile String[] shown;
+	private transient String locale;
+
+	/**
+	 * Constructs a new SidebarLocalizedString.
+	 *
+	 * @param keys
+	 *            (String...) - the keys of the variations (for animated text)
+	 */
+	public SidebarLocalizedString(String... keys) {
+		this(1, keys);
+	}
+
+	/**
+	 * Constructs a new SidebarLocalizedString.
+	 *
+	 * @param step
+	 *            (int) - see {@link #setStep(int)}
+	 * @param keys
+	 *            (String...) - the keys of the variations (for animated text)
+	 */
+	public SidebarLocalizedString(int step, String... keys) {
+
+		super(step);
+
+		if (keys == null || keys.length == 0)
+			throw new IllegalArgumentException("keys cannot be empty!");
+
+		this.keys = keys.clone();
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public SidebarLocalizedString(Map<String, Object> map) {
+		this(map.get("step") instanceof Integer ? (Integer) map.get("step") : 1,
+				((List<String>) map.get("keys")).toArray(new String[0]));
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("keys", new ArrayList<>(Arrays.asList(keys)));
+		map.put("step", getStep());
+
+		return map;
+
+	}
+
+	/**
+	 * Gets the texts of the keys in a locale, looking them up again if the
+	 * messages changed.
+	 */
+	private Texts texts(String locale) {
+		int version = SidebarMessages.getVersion();
+		Texts texts = byLocale.get(locale);
+		if (texts == null || texts.version != version)
+			byLocale.put(locale, texts = new Texts(version, keys, locale));
+		return texts;
+	}
+
+	private synchronized void show(Texts texts, String[] shown) {
+		if (this.texts != texts || this.shown != shown) {
+			this.texts = texts;
+			this.shown = shown;
+			markChanged();
+		}
+	}
+
+	/**
+	 * Shows the texts in the locale of a player and, if the PlaceholderAPI is
+	 * hooked, sets their placeholders for the player. Unlike other texts, this
+	 * does not fail if the PlaceholderAPI is not hooked; the placeholders are
+	 * shown as they are.
+	 *
+	 * @param forPlayer
+	 *            (Player) - what player to show the texts for
+	 * @return (SidebarString) - this SidebarLocalizedString Object, for
+	 *         chaining.
+	 */
+	@Override
+	public SidebarString setPlaceholders(Player forPlayer) {
+
+		String locale = SidebarMessages.getLocale(forPlayer);
+		Texts texts = texts(locale);
+		this.locale = locale;
+
+		if (texts.identifiers.length == 0 || SidebarAPI.getPlaceholderAPI() == null) {
+			show(texts, texts.texts);
+			return this;
+		}
+
+		String[] shown = this.shown;
+		String[] resolved = new String[texts.texts.length];
+		boolean changed = this.texts != texts || shown.length != resolved.length;
+
+		for (int i = 0; i < resolved.length; i++) {
+			resolved[i] = intern(PlaceholderTemplate.of(texts.texts[i]).resolve(forPlayer));
+			if (!changed && resolved[i] != shown[i])
+				changed = true;
+		}
+
+		// the shown array may be read by other threads, so it is never
+		// written to; a changed text is shown as a new array
+		if (changed)
+			show(texts, resolved);
+
+		return this;
+
+	}
+
+	/**
+	 * Shows the texts in a fixed locale, e.g. for a sidebar that is shown to
+	 * all players with that locale. Calling {@link #setPlaceholders(Player)}
+	 * switches to the locale of that player.
+	 *
+	 * @param locale
+	 *            (String) - the locale, or null for the default locale
+	 * @return (SidebarLocalizedString) - this SidebarLocalizedString Object,
+	 *         for chaining.
+	 */
+	public SidebarLocalizedString setLocale(String locale) {
+		this.locale = locale;
+		Texts texts = texts(locale == null ? SidebarMessages.getDefaultLocale() : locale);
+		show(texts, texts.texts);
+		return this;
+	}
+
+	/**
+	 * Gets the texts that are shown, looking them up again if the messages
+	 * changed since.
+	 */
+	private String[] shown() {
+		Texts texts = this.texts;
+		if (texts == null || texts.version != SidebarMessages.getVersion()) {
+			String locale = this.locale;
+			texts = texts(locale == null ? SidebarMessages.getDefaultLocale() : locale);
+			show(texts, texts.texts);
+		}
+		return shown;
+	}
+
+	@Override
+	protected int getVariationCount() {
+		return keys.length;
+	}
+
+	@Override
+	protected String getVariation(int index) {
+		return shown()[index];
+	}
+
+	@Override
+	String[] getPlaceholderIdentifiers() {
+		shown();
+		return texts.identifiers;
+	}
+
+	/**
+	 * Gets the texts that are shown.
+	 *
+	 * @return (List : String) - a copy of the texts.
+	 */
+	@Override
+	public List<String> getVariations() {
+		return new ArrayList<>(Arrays.asList(shown()));
+	}
+
+	/**
+	 * Gets the keys of the variations.
+	 *
+	 * @return (List : String) - the keys.
+	 */
+	public List<String> getKeys() {
+		return new ArrayList<>(Arrays.asList(keys));
+	}
+
+	/**
+	 * Throws on every change of the variations; the keys are fixed.
+	 */
+	@Override
+	void checkVariationsMutable() {
+		throw new UnsupportedOperationException("Cannot change the variations of a SidebarLocalizedString");
+	}
+
+	/**
+	 * The texts of the keys in one locale, and the identifiers of the
+	 * placeholders in them.
+	 */
+	private static final class Texts {
+
+		private final int version;
+		private final String[] texts;
+		private final String[] identifiers;
+
+		private Texts(int version, String[] keys, String locale) {
+
+			this.version = version;
+
+			texts = new String[keys.length];
+			Set<String> identifiers = new LinkedHashSet<>();
+			for (int i = 0; i < keys.length; i++) {
+				texts[i] = SidebarMessages.get(keys[i], locale);
+				identifiers.addAll(Arrays.asList(PlaceholderTemplate.of(texts[i]).getIdentifiers()));
+			}
+
+			this.identifiers = identifiers.toArray(new String[identifiers.size()]);
+
+		}
+
+	}
+
+}
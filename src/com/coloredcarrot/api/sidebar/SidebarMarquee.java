@@ -0,0 +1,333 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A scrolling text whose frames are produced on demand instead of being
+ * generated up front like
+ * {@link SidebarString#generateScrollingAnimation(String, String, String, int)}
+ * does. Only the source text is stored, together with the frame offsets and
+ * the color and formats active at each of them, which are computed once in a
+ * single pass.
+ * Getting a frame therefore costs O(displayWidth), regardless of how long the
+ * text is, which makes this suitable for very long tickers such as a news
+ * feed. <br>
+ * Color and format codes are never split and never count as a frame of their
+ * own; the color and the formats, such as bold, that were active before the
+ * visible window are carried into it. As in Minecraft, a color code clears
+ * the formats.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarMarquee extends SidebarString {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarMarquee.class);
+	}
+
+	private static final char COLOR_CHAR = ChatColor.COLOR_CHAR;
+	private static final String COLOR_CODES = "0123456789abcdef";
+	/**
+	 * The color prefixes, indexed like {@link #COLOR_CODES}; the last one is
+	 * the reset code, which is active before the first color.
+	 */
+	private static final String[] COLORS = new String[COLOR_CODES.length() + 1];
+
+	private static final String FORMAT_CODES = "klmno";
+	/**
+	 * The format prefixes, indexed by a bit set of {@link #FORMAT_CODES}.
+	 */
+	private static final String[] FORMATS = new String[1 << FORMAT_CODES.length()];
+
+	static {
+		for (int i = 0; i < COLOR_CODES.length(); i++)
+			COLORS[i] = String.valueOf(COLOR_CHAR) + COLOR_CODES.charAt(i);
+		COLORS[COLOR_CODES.length()] = ChatColor.RESET.toString();
+		for (int i = 0; i < FORMATS.length; i++) {
+			StringBuilder formats = new StringBuilder();
+			for (int j = 0; j < FORMAT_CODES.length(); j++)
+				if ((i & 1 << j) != 0)
+					formats.append(COLOR_CHAR).append(FORMAT_CODES.charAt(j));
+			FORMATS[i] = formats.toString();
+		}
+	}
+
+	private final String text, prefix, suffix;
+	private final int displayWidth;
+	/**
+	 * The text with its placeholders set, or the text itself, with its frame
+	 * offsets. It is replaced as a whole, since sidebars rendering in
+	 * parallel read it while the placeholders are set.
+	 */
+	private transient volatile Frames frames;
+
+	/**
+	 * Constructs a new SidebarMarquee.
+	 *
+	 * @param text
+	 *            (String) - the text to scroll through
+	 * @param prefix
+	 *            (String) - the stable prefix of every frame
+	 * @param suffix
+	 *            (String) - the stable suffix of every frame
+	 * @param displayWidth
+	 *            (int) - how many characters of the text to show per frame
+	 */
+	public SidebarMarquee(String text, String prefix, String suffix, int displayWidth) {
+		this(1, text, prefix, suffix, displayWidth);
+	}
+
+	/**
+	 * Constructs a new SidebarMarquee.
+	 *
+	 * @param step
+	 *            (int) - see {@link #setStep(int)}
+	 * @param text
+	 *            (String) - the text to scroll through
+	 * @param prefix
+	 *            (String) - the stable prefix of every frame
+	 * @param suffix
+	 *            (String) - the stable suffix of every frame
+	 * @param displayWidth
+	 *            (int) - how many characters of the text to show per frame
+	 */
+	public SidebarMarquee(int step, String text, String prefix, String suffix, int displayWidth) {
+
+		super(step);
+
+		if (text == null)
+			throw new IllegalArgumentException("text cannot be null!");
+		if (displayWidth <= 0)
+			throw new IllegalArgumentException("displayWidth cannot be smaller than or equal to 0!");
+
+		this.text = text;
+		this.prefix = prefix == null ? "" : prefix;
+		this.suffix = suffix == null ? "" : suffix;
+		this.displayWidth = displayWidth;
+
+		index(text);
+
+	}
+
+	public SidebarMarquee(Map<String, Object> map) {
+		this(map.get("step") instanceof Integer ? (Integer) map.get("step") : 1, (String) map.get("text"),
+				(String) map.get("prefix"), (String) map.get("suffix"),
+				map.get("width") instanceof Integer ? (Integer) map.get("width") : 1);
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("text", text);
+		map.put("prefix", prefix);
+		map.put("suffix", suffix);
+		map.put("width", displayWidth);
+		map.put("step", getStep());
+
+		return map;
+
+	}
+
+	/**
+	 * Computes the frame offsets and the color and formats active at each of
+	 * them in one pass over the text.
+	 */
+	private void index(String text) {
+
+		int length = text.length();
+		int last = Math.max(0, length - displayWidth);
+
+		int[] offsets = new int[last + 1];
+		byte[] colors = new byte[last + 1];
+		byte[] formats = new byte[last + 1];
+		int count = 0;
+		byte color = (byte) COLOR_CODES.length();
+		byte format = 0;
+
+		for (int i = 0; i <= last; i++) {
+
+			char c = text.charAt(i);
+
+			if (c == COLOR_CHAR && i + 1 < length) {
+				char code = Character.toLowerCase(text.charAt(i + 1));
+				// a reset shows the default color again
+				int index = code == 'r' ? COLOR_CODES.length() : COLOR_CODES.indexOf(code);
+				if (index >= 0) {
+					// like in Minecraft, a color clears the formats
+					color = (byte) index;
+					format = 0;
+				} else if ((index = FORMAT_CODES.indexOf(code)) >= 0)
+					format |= 1 << index;
+				i++;
+				continue;
+			}
+
+			offsets[count] = i;
+			colors[count] = color;
+			formats[count] = format;
+			count++;
+
+		}
+
+		if (count == 0) {
+			// the text consists of color codes only
+			offsets[0] = 0;
+			colors[0] = (byte) COLOR_CODES.length();
+			count = 1;
+		}
+
+		frames = new Frames(text, count == offsets.length ? offsets : Arrays.copyOf(offsets, count),
+				count == colors.length ? colors : Arrays.copyOf(colors, count),
+				count == formats.length ? formats : Arrays.copyOf(formats, count));
+
+	}
+
+	@Override
+	protected int getVariationCount() {
+		return frames.offsets.length;
+	}
+
+	@Override
+	protected String getVariation(int index) {
+
+		Frames frames = this.frames;
+		// the text may have become shorter since the index was chosen
+		index = Math.min(index, frames.offsets.length - 1);
+		String shown = frames.text;
+		int start = frames.offsets[index];
+		int end = Math.min(shown.length(), start + displayWidth);
+
+		if (end > start && shown.charAt(end - 1) == COLOR_CHAR)
+			end--;
+
+		String formats = start > 0 ? FORMATS[frames.formats[index]] : "";
+		StringBuilder frame = new StringBuilder(
+				prefix.length() + 2 + formats.length() + (end - start) + suffix.length());
+		frame.append(prefix);
+		if (start > 0)
+			frame.append(COLORS[frames.colors[index]]).append(formats);
+		frame.append(shown, start, end);
+		frame.append(suffix);
+
+		return frame.toString();
+
+	}
+
+	/**
+	 * Sets the placeholders of the text. The offsets are only recomputed if
+	 * the text with its placeholders set actually changed; the marquee keeps
+	 * scrolling from its current frame.
+	 *
+	 * @param forPlayer
+	 *            (Player) - what player to set the placeholders for
+	 * @return (SidebarString) - this SidebarMarquee Object, for chaining.
+	 * @throws SidebarOptionalException
+	 *             if the PlaceholderAPI is not hooked.
+	 */
+	@Override
+	public SidebarString setPlaceholders(Player forPlayer) throws SidebarOptionalException {
+
+		if (SidebarAPI.getPlaceholderAPI() == null)
+			throw new SidebarOptionalException("PlaceholderAPI not hooked!");
+
+		String resolved = PlaceholderTemplate.of(text).resolve(forPlayer);
+		if (!resolved.equals(frames.text)) {
+			index(resolved);
+			markChanged();
+		}
+
+		return this;
+
+	}
+
+	@Override
+	String[] getPlaceholderIdentifiers() {
+		return PlaceholderTemplate.of(text).getIdentifiers();
+	}
+
+	/**
+	 * Generates all frames of this marquee. Since the frames are produced on
+	 * demand, this costs O(n * displayWidth) and should only be used for
+	 * inspection; the returned list is a copy.
+	 *
+	 * @return (List : String) - all frames.
+	 */
+	@Override
+	public List<String> getVariations() {
+		int count = getVariationCount();
+		List<String> frames = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			frames.add(getVariation(i));
+		return frames;
+	}
+
+	/**
+	 * Throws on every change of the variations; the frames of a marquee are
+	 * derived from its text.
+	 */
+	@Override
+	void checkVariationsMutable() {
+		throw new UnsupportedOperationException("Cannot change the variations of a SidebarMarquee");
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public int getDisplayWidth() {
+		return displayWidth;
+	}
+
+	private static final class Frames {
+
+		private final String text;
+		private final int[] offsets;
+		private final byte[] colors;
+		private final byte[] formats;
+
+		private Frames(String text, int[] offsets, byte[] colors, byte[] formats) {
+			this.text = text;
+			this.offsets = offsets;
+			this.colors = colors;
+			this.formats = formats;
+		}
+
+	}
+
+}
@@ -0,0 +1,247 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * The translations that {@link SidebarLocalizedString}s show. Every message
+ * has a key and one text per locale; a locale is a Minecraft client locale
+ * such as {@code "de_de"}. A message that has no text for a locale falls back
+ * to the language without the country ({@code "de"}), then to the
+ * {@link #setDefaultLocale(String) default locale}, and finally to the key
+ * itself.
+ * <p>
+ * Looked-up texts are cached per locale until the messages change, and every
+ * change increments the {@link #getVersion() version}, so the localized lines
+ * pick up new translations on their next update. All methods may be called
+ * from any thread.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarMessages {
+
+	private static final ConcurrentMap<String, ConcurrentMap<String, String>> messages = new ConcurrentHashMap<>();
+	/**
+	 * The looked-up texts per locale. A change replaces the whole map, so a
+	 * lookup that raced with the change is not cached beyond it.
+	 */
+	private static volatile ConcurrentMap<String, ConcurrentMap<String, String>> lookups = new ConcurrentHashMap<>();
+
+	private static volatile String defaultLocale = "en_us";
+	private static volatile int version = 0;
+
+	private SidebarMessages() {
+	}
+
+	/**
+	 * Sets the text of a message in a locale.
+	 *
+	 * @param locale
+	 *            (String) - the locale, e.g. "en_us" or "de"
+	 * @param key
+	 *            (String) - the key of the message
+	 * @param text
+	 *            (String) - the text, or null to remove it
+	 */
+	public static void set(String locale, String key, String text) {
+
+		if (locale == null || key == null)
+			throw new IllegalArgumentException("locale and key cannot be null!");
+
+		locale = normalize(locale);
+
+		synchronized (messages) {
+			ConcurrentMap<String, String> texts = messages.get(locale);
+			if (text != null) {
+				if (texts == null)
+					messages.put(locale, texts = new ConcurrentHashMap<>());
+				texts.put(key, SidebarString.intern(text));
+			} else if (texts != null)
+				texts.remove(key);
+			changed();
+		}
+
+	}
+
+	/**
+	 * Sets the texts of all messages in a section, e.g. a language file, in a
+	 * locale. The keys of nested messages are joined with dots.
+	 *
+	 * @param locale
+	 *            (String) - the locale, e.g. "en_us" or "de"
+	 * @param section
+	 *            (ConfigurationSection) - the section
+	 * @return (int) - how many messages were set.
+	 */
+	public static int load(String locale, ConfigurationSection section) {
+
+		if (locale == null || section == null)
+			throw new IllegalArgumentException("locale and section cannot be null!");
+
+		int loaded = 0;
+		synchronized (messages) {
+			for (String key : section.getKeys(true))
+				if (!section.isConfigurationSection(key)) {
+					set(locale, key, section.getString(key));
+					loaded++;
+				}
+		}
+
+		return loaded;
+
+	}
+
+	/**
+	 * Removes all messages.
+	 */
+	public static void clear() {
+		synchronized (messages) {
+			messages.clear();
+			changed();
+		}
+	}
+
+	/**
+	 * Gets the text of a message in a locale, falling back as described
+	 * {@link SidebarMessages above}.
+	 *
+	 * @param key
+	 *            (String) - the key of the message
+	 * @param locale
+	 *            (String) - the locale
+	 * @return (String) - the text, or the key if the message has none.
+	 */
+	public static String get(String key, String locale) {
+
+		locale = normalize(locale);
+
+		ConcurrentMap<String, ConcurrentMap<String, String>> lookups = SidebarMessages.lookups;
+		ConcurrentMap<String, String> cached = lookups.get(locale);
+		if (cached == null) {
+			ConcurrentMap<String, String> created = new ConcurrentHashMap<>();
+			cached = lookups.putIfAbsent(locale, created);
+			if (cached == null)
+				cached = created;
+		}
+
+		String text = cached.get(key);
+		if (text == null) {
+			text = lookup(key, locale);
+			cached.put(key, text);
+		}
+
+		return text;
+
+	}
+
+	private static String lookup(String key, String locale) {
+
+		String text = text(locale, key);
+
+		int country = locale.indexOf('_');
+		if (text == null && country > 0)
+			text = text(locale.substring(0, country), key);
+		if (text == null)
+			text = text(defaultLocale, key);
+
+		return text == null ? key : text;
+
+	}
+
+	private static String text(String locale, String key) {
+		ConcurrentMap<String, String> texts = messages.get(locale);
+		return texts == null ? null : texts.get(key);
+	}
+
+	/**
+	 * Gets the locale of a player, as the Spigot part of the API tells it.
+	 * Servers that do not know the locales of their players, or no longer
+	 * offer {@link Player.Spigot#getLocale()}, get the default locale.
+	 *
+	 * @param player
+	 *            (Player) - the player
+	 * @return (String) - the locale, e.g. "en_us".
+	 */
+	public static String getLocale(Player player) {
+		try {
+			String locale = player.spigot().getLocale();
+			return locale == null ? defaultLocale : normalize(locale);
+		} catch (NoSuchMethodError | UnsupportedOperationException e) {
+			return defaultLocale;
+		}
+	}
+
+	public static String getDefaultLocale() {
+		return defaultLocale;
+	}
+
+	/**
+	 * Sets the locale whose texts are shown when a message has no text in the
+	 * locale of a player.
+	 *
+	 * @param locale
+	 *            (String) - the locale, by default "en_us"
+	 */
+	public static void setDefaultLocale(String locale) {
+		if (locale == null)
+			throw new IllegalArgumentException("locale cannot be null!");
+		synchronized (messages) {
+			defaultLocale = normalize(locale);
+			changed();
+		}
+	}
+
+	/**
+	 * Gets the version of the messages, which changes whenever a message or
+	 * the default locale does.
+	 *
+	 * @return (int) - the version.
+	 */
+	public static int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Drops the cached lookups after a change. Must be called while holding
+	 * the lock on {@link #messages}.
+	 */
+	private static void changed() {
+		lookups = new ConcurrentHashMap<>();
+		version++;
+	}
+
+	private static String normalize(String locale) {
+		return locale.toLowerCase(Locale.ENGLISH).replace('-', '_');
+	}
+
+}
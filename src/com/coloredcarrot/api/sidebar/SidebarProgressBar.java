@@ -0,0 +1,308 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+
+/**
+ * A line that shows a progress as a bar of segments, e.g.
+ * {@code "&a||||||&7||||"}. Every possible bar is built once when the line is
+ * constructed, so setting the progress never builds a text; a line only
+ * renders the bar again when the number of filled segments changes. The progress is either set directly or taken from a
+ * {@link SidebarValue}, which is only read after its version changed.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarProgressBar extends SidebarString {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarProgressBar.class);
+	}
+
+	private final String prefix, suffix, filledColor, emptyColor;
+	private final char segment;
+	/**
+	 * The bars, indexed by their number of filled segments.
+	 */
+	private final String[] bars;
+
+	private volatile double progress;
+	private final SidebarValue<? extends Number> value;
+	private final double max;
+	private transient long seenVersion;
+
+	private transient int shown = -1;
+
+	/**
+	 * Constructs a new SidebarProgressBar whose progress is set with
+	 * {@link #setProgress(double)}.
+	 *
+	 * @param prefix
+	 *            (String) - what to show before the bar
+	 * @param width
+	 *            (int) - the number of segments
+	 * @param segment
+	 *            (char) - the character of a segment
+	 * @param filledColor
+	 *            (String) - the color of the filled segments
+	 * @param emptyColor
+	 *            (String) - the color of the empty segments
+	 * @param suffix
+	 *            (String) - what to show after the bar
+	 */
+	public SidebarProgressBar(String prefix, int width, char segment, String filledColor, String emptyColor,
+			String suffix) {
+		this(prefix, width, segment, filledColor, emptyColor, suffix, null, 1);
+	}
+
+	/**
+	 * Constructs a new SidebarProgressBar that shows a value, e.g. the health
+	 * of a boss out of its maximum health.
+	 *
+	 * @param prefix
+	 *            (String) - what to show before the bar
+	 * @param width
+	 *            (int) - the number of segments
+	 * @param segment
+	 *            (char) - the character of a segment
+	 * @param filledColor
+	 *            (String) - the color of the filled segments
+	 * @param emptyColor
+	 *            (String) - the color of the empty segments
+	 * @param suffix
+	 *            (String) - what to show after the bar
+	 * @param value
+	 *            (SidebarValue : Number) - the value
+	 * @param max
+	 *            (double) - the value of a full bar
+	 */
+	public SidebarProgressBar(String prefix, int width, char segment, String filledColor, String emptyColor,
+			String suffix, SidebarValue<? extends Number> value, double max) {
+
+		if (width <= 0)
+			throw new IllegalArgumentException("width cannot be smaller than or equal to 0!");
+		if (!(max > 0))
+			throw new IllegalArgumentException("max must be greater than 0!");
+
+		this.prefix = prefix == null ? "" : prefix;
+		this.suffix = suffix == null ? "" : suffix;
+		this.filledColor = filledColor == null ? "" : filledColor;
+		this.emptyColor = emptyColor == null ? "" : emptyColor;
+		this.segment = segment;
+		this.value = value;
+		this.max = max;
+		this.seenVersion = value == null ? 0 : value.getVersion() - 1;
+
+		bars = new String[width + 1];
+		StringBuilder bar = new StringBuilder();
+		for (int filled = 0; filled <= width; filled++) {
+			bar.setLength(0);
+			bar.append(this.prefix);
+			if (filled > 0)
+				bar.append(this.filledColor);
+			for (int i = 0; i < filled; i++)
+				bar.append(segment);
+			if (filled < width)
+				bar.append(this.emptyColor);
+			for (int i = filled; i < width; i++)
+				bar.append(segment);
+			bars[filled] = intern(bar.append(this.suffix).toString());
+		}
+		refresh();
+
+	}
+
+	public SidebarProgressBar(Map<String, Object> map) {
+		this((String) map.get("prefix"), map.get("width") instanceof Integer ? (Integer) map.get("width") : 10,
+				map.get("segment") instanceof String && !((String) map.get("segment")).isEmpty()
+						? ((String) map.get("segment")).charAt(0) : '|',
+				(String) map.get("filled"), (String) map.get("empty"), (String) map.get("suffix"));
+		if (map.get("progress") instanceof Number)
+			setProgress(((Number) map.get("progress")).doubleValue());
+	}
+
+	/**
+	 * Serializes the bar; a bar that shows a {@link SidebarValue} is saved
+	 * with its current progress.
+	 */
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("prefix", prefix);
+		map.put("suffix", suffix);
+		map.put("width", getWidth());
+		map.put("segment", String.valueOf(segment));
+		map.put("filled", filledColor);
+		map.put("empty", emptyColor);
+		map.put("progress", getProgress());
+
+		return map;
+
+	}
+
+	/**
+	 * Gets the number of filled segments for the specified progress.
+	 */
+	private int filled(double progress) {
+
+		int width = bars.length - 1;
+		if (!(progress > 0))
+			return 0;
+		if (progress >= 1)
+			return width;
+		return (int) (progress * width);
+
+	}
+
+	/**
+	 * Gets the current progress, without remembering the read value.
+	 */
+	private double read() {
+		if (value == null)
+			return progress;
+		Number current = value.get();
+		return current == null ? 0 : current.doubleValue() / max;
+	}
+
+	/**
+	 * Returns false; the bar only changes when the number of filled segments
+	 * changed, see {@link #refresh()}.
+	 *
+	 * @return (boolean) - false.
+	 */
+	@Override
+	public boolean needsUpdate() {
+		return false;
+	}
+
+	@Override
+	protected int getVariationCount() {
+		return 1;
+	}
+
+	/**
+	 * Compares the number of filled segments with the shown one. A value is
+	 * only read after its version changed. Sidebars sharing this bar may
+	 * render it in parallel, so only one of them reads the value, and all of
+	 * them render the bar if it changed.
+	 */
+	@Override
+	protected synchronized void refresh() {
+
+		if (value != null) {
+			long version = value.getVersion();
+			if (version != seenVersion) {
+				// The version is read before the value, so a value that
+				// changes meanwhile is read again next time
+				seenVersion = version;
+				Number current = value.get();
+				progress = current == null ? 0 : current.doubleValue() / max;
+			}
+		}
+
+		int filled = filled(progress);
+		if (filled != shown) {
+			shown = filled;
+			markChanged();
+		}
+
+	}
+
+	@Override
+	protected synchronized String getVariation(int index) {
+		return bars[shown];
+	}
+
+	/**
+	 * Sets the progress. It is ignored if the bar shows a
+	 * {@link SidebarValue}.
+	 *
+	 * @param progress
+	 *            (double) - the progress, from 0 for an empty bar to 1 for a
+	 *            full one
+	 * @return (SidebarProgressBar) - this SidebarProgressBar Object, for
+	 *         chaining.
+	 */
+	public SidebarProgressBar setProgress(double progress) {
+		if (value == null)
+			this.progress = progress;
+		return this;
+	}
+
+	/**
+	 * Gets the progress.
+	 *
+	 * @return (double) - the progress, from 0 for an empty bar to 1 for a full
+	 *         one.
+	 */
+	public double getProgress() {
+		double progress = read();
+		return progress > 0 ? Math.min(1, progress) : 0;
+	}
+
+	public int getWidth() {
+		return bars.length - 1;
+	}
+
+	/**
+	 * Does nothing; progress bars have no placeholders.
+	 *
+	 * @return (SidebarString) - this SidebarProgressBar Object, for chaining.
+	 */
+	@Override
+	public SidebarString setPlaceholders(Player forPlayer) {
+		return this;
+	}
+
+	/**
+	 * Gets the current bar.
+	 *
+	 * @return (List : String) - a list holding the current bar.
+	 */
+	@Override
+	public List<String> getVariations() {
+		return Collections.singletonList(bars[filled(read())]);
+	}
+
+	/**
+	 * Throws on every change of the variations; the bars are built from the
+	 * segments.
+	 */
+	@Override
+	void checkVariationsMutable() {
+		throw new UnsupportedOperationException("Cannot change the variations of a SidebarProgressBar");
+	}
+
+}
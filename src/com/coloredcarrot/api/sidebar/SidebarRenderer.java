@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Controls where sidebar frames are rendered. By default, every sidebar
+ * renders and applies its next frame on the server thread in
+ * {@link Sidebar#update()} and {@link LongSidebar#update()}. With parallel
+ * rendering enabled, the server thread only resolves placeholders and applies
+ * the previously rendered frame to the teams; frame selection, color
+ * translation, trimming and the prefix/suffix split of the next frame run on
+ * a shared {@link ForkJoinPool}, so all sidebars due in a tick render in
+ * parallel.
+ * <p>
+ * A parallel-rendered sidebar shows each frame one update later than a
+ * synchronously rendered one. If a frame is not ready when the next update
+ * is due, that update is skipped instead of blocking the server thread.
+ * SidebarStrings may be shared between sidebars: every sidebar keeps its own
+ * position in the animation of each line, together with the texts the
+ * placeholders of the line were set to for its player, and the variations
+ * are replaced instead of modified, so the render stage never sees another
+ * player's texts or a half-made change.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarRenderer {
+
+	private static volatile boolean parallel = false;
+	private static volatile int threads = 0;
+	private static ForkJoinPool pool;
+
+	private SidebarRenderer() {
+	}
+
+	/**
+	 * Gets whether frames are rendered off the server thread.
+	 *
+	 * @return (boolean) - true if parallel rendering is enabled.
+	 */
+	public static boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Sets whether frames are rendered off the server thread. Sidebars pick up
+	 * the change on their next update.
+	 *
+	 * @param parallel
+	 *            (boolean) - whether to render in parallel
+	 */
+	public static void setParallel(boolean parallel) {
+		SidebarRenderer.parallel = parallel;
+	}
+
+	/**
+	 * Sets how many threads the render pool uses. Takes effect the next time
+	 * the pool is created, i.e. after {@link #shutdown()}.
+	 *
+	 * @param threads
+	 *            (int) - the number of threads, or 0 for one less than the
+	 *            number of available processors
+	 */
+	public static void setThreads(int threads) {
+		if (threads < 0)
+			throw new IllegalArgumentException("threads cannot be less than 0!");
+		SidebarRenderer.threads = threads;
+	}
+
+	/**
+	 * Stops the render pool. Pending renders are abandoned; a new pool is
+	 * created when the next frame is submitted.
+	 */
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+
+	static <T> ForkJoinTask<T> submit(Callable<T> render) {
+		return pool().submit(ForkJoinTask.adapt(render));
+	}
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			int parallelism = threads > 0 ? threads
+					: Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+}
@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.bukkit.ChatColor;
+import org.bukkit.scoreboard.Scoreboard;
+
+/**
+ * Replays a {@link SidebarTrace} without a server: the recorded line texts
+ * are rendered again and applied to a stand-in scoreboard. The replayed
+ * writes are counted by the same {@link SidebarBoard} that counts them on a
+ * server, and every recorded write, including the score resets of a
+ * re-scoring, counts as one. Comparing the writes and the CPU time with the ones recorded,
+ * or between different options, shows what a change to the rendering costs
+ * on real traces. Run it with
+ *
+ * <pre>
+ * java -cp SidebarAPI.jar:spigot.jar com.coloredcarrot.api.sidebar.SidebarReplay
+ *      &lt;trace&gt; [--full] [--prefix n] [--suffix n] [--repeat n]
+ * </pre>
+ *
+ * {@code --full} renders every line on every update instead of only the lines
+ * whose text changed, {@code --prefix} and {@code --suffix} override the team
+ * prefix and suffix limits, and {@code --repeat} replays the trace several
+ * times to get stable timings.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarReplay {
+
+	private SidebarReplay() {
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.err.println("Usage: SidebarReplay <trace> [--full] [--prefix n] [--suffix n] [--repeat n]");
+			System.exit(2);
+		}
+
+		File trace = new File(args[0]);
+		boolean full = false;
+		int prefix = 0, suffix = 0, repeat = 1;
+
+		for (int i = 1; i < args.length; i++) {
+			switch (args[i]) {
+			case "--full":
+				full = true;
+				break;
+			case "--prefix":
+				prefix = Integer.parseInt(args[++i]);
+				break;
+			case "--suffix":
+				suffix = Integer.parseInt(args[++i]);
+				break;
+			case "--repeat":
+				repeat = Integer.parseInt(args[++i]);
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+
+		SidebarLimits.override(prefix, suffix, 0);
+
+		for (int i = 0; i < repeat; i++)
+			System.out.println(replay(trace, full));
+
+	}
+
+	/**
+	 * Replays a trace.
+	 *
+	 * @param trace
+	 *            (File) - the trace file
+	 * @param full
+	 *            (boolean) - whether to render every line on every update,
+	 *            instead of only the changed ones
+	 * @return (Result) - the writes and timings.
+	 * @throws IOException
+	 *             if the trace cannot be read.
+	 */
+	public static Result replay(File trace, boolean full) throws IOException {
+
+		Result result = new Result();
+		SidebarBoard board = new SidebarBoard(DiscardingWriter.INSTANCE, "");
+		SidebarFrame frame = new SidebarFrame(15);
+		String[] texts = new String[15];
+		boolean[] changed = new boolean[15];
+		String title = "";
+		int size = -1;
+
+		try (SidebarTrace.Reader reader = new SidebarTrace.Reader(trace)) {
+
+			while (true) {
+
+				boolean more = reader.next();
+
+				// An update is complete once the next one (or the end) is read
+				if ((!more || reader.type == 'U' || reader.type == 'H') && size >= 0) {
+
+					long start = System.nanoTime();
+					for (int i = 0; i < size; i++) {
+						if (!full && !changed[i])
+							continue;
+						changed[i] = false;
+						if (texts[i] != null)
+							Sidebar.renderLine(ChatColor.translateAlternateColorCodes('&', texts[i]), frame, i);
+					}
+					frame.title = title;
+					frame.size = size;
+					long rendered = System.nanoTime();
+					result.replayedWrites += board.apply(frame);
+					result.renderNanos += rendered - start;
+					result.applyNanos += System.nanoTime() - rendered;
+					result.updates++;
+					size = -1;
+
+				}
+
+				if (!more)
+					break;
+
+				switch (reader.type) {
+				case 'H':
+					// a new session starts from an empty scoreboard
+					board = new SidebarBoard(DiscardingWriter.INSTANCE, "");
+					frame = new SidebarFrame(15);
+					texts = new String[15];
+					changed = new boolean[15];
+					title = "";
+					break;
+				case 'U':
+					size = Math.min(15, reader.line);
+					break;
+				case 'X':
+					texts[reader.line] = reader.text;
+					changed[reader.line] = true;
+					break;
+				case 'T':
+					title = reader.text;
+					result.recordedWrites++;
+					break;
+				default:
+					result.recordedWrites++;
+				}
+
+			}
+
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * The outcome of a replay.
+	 */
+	public static final class Result {
+
+		private int updates;
+		private long recordedWrites, replayedWrites, renderNanos, applyNanos;
+
+		public int getUpdates() {
+			return updates;
+		}
+
+		/**
+		 * Gets the number of scoreboard writes recorded in the trace.
+		 *
+		 * @return (long) - the writes.
+		 */
+		public long getRecordedWrites() {
+			return recordedWrites;
+		}
+
+		/**
+		 * Gets the number of scoreboard writes issued by the replay.
+		 *
+		 * @return (long) - the writes.
+		 */
+		public long getReplayedWrites() {
+			return replayedWrites;
+		}
+
+		public long getRenderNanos() {
+			return renderNanos;
+		}
+
+		public long getApplyNanos() {
+			return applyNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "updates=" + updates + " recordedWrites=" + recordedWrites + " replayedWrites=" + replayedWrites
+					+ " renderMs=" + String.format("%.3f", renderNanos / 1e6) + " applyMs="
+					+ String.format("%.3f", applyNanos / 1e6);
+		}
+
+	}
+
+	/**
+	 * A stand-in scoreboard that discards what is written to it.
+	 */
+	private static final class DiscardingWriter implements ScoreboardWriter {
+
+		private static final DiscardingWriter INSTANCE = new DiscardingWriter();
+
+		@Override
+		public Scoreboard getScoreboard() {
+			return null;
+		}
+
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setPrefix(int line, String prefix) {
+		}
+
+		@Override
+		public void setSuffix(int line, String suffix) {
+		}
+
+		@Override
+		public void setScore(String entry, int score) {
+		}
+
+		@Override
+		public void resetScore(String entry) {
+		}
+
+		@Override
+		public void recreateObjective(String title) {
+		}
+
+	}
+
+}
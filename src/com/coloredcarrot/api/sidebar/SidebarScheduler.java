@@ -0,0 +1,278 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Schedules the periodic updates of sidebars so that sidebars with the same
+ * update delay do not all run on the same tick. Every update task gets a
+ * phase, i.e. the tick within its delay on which it runs, and the phase with
+ * the fewest updates already scheduled is chosen. The load is tracked over a
+ * window of {@value #WINDOW} ticks, which all common delays divide evenly.
+ * <p>
+ * The scheduler also measures how many updates actually ran per tick and how
+ * long they took; see {@link #getLoadReport()}. The time per tick is passed on
+ * to the {@link SidebarWatchdog}. Only accessed from the server thread.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarScheduler {
+
+	/**
+	 * The number of ticks over which the scheduled load is tracked.
+	 */
+	public static final int WINDOW = 1200;
+
+	/**
+	 * The number of past ticks of which the measured load is kept.
+	 */
+	public static final int HISTORY = 200;
+
+	private static final int[] scheduled = new int[WINDOW];
+	private static final Map<Integer, Slot> slots = new HashMap<>();
+	private static final int[] updates = new int[HISTORY];
+	private static final long[] nanos = new long[HISTORY];
+
+	private static boolean staggered = true;
+	private static long tick = 0;
+	private static BukkitTask clock;
+
+	private SidebarScheduler() {
+	}
+
+	/**
+	 * Gets whether update tasks are spread over their delay.
+	 *
+	 * @return (boolean) - true if staggered.
+	 */
+	public static boolean isStaggered() {
+		return staggered;
+	}
+
+	/**
+	 * Sets whether update tasks are spread over their delay. If disabled, the
+	 * first update runs after one full delay, like before 3.1. Only affects
+	 * tasks scheduled afterwards.
+	 *
+	 * @param staggered
+	 *            (boolean) - whether to stagger
+	 */
+	public static void setStaggered(boolean staggered) {
+		SidebarScheduler.staggered = staggered;
+	}
+
+	/**
+	 * Gets how many sidebar updates are scheduled for each tick of the
+	 * window, starting at the tick for which the current tick modulo
+	 * {@link #WINDOW} is 0.
+	 *
+	 * @return (int[]) - a copy of the scheduled load.
+	 */
+	public static int[] getScheduledLoad() {
+		return scheduled.clone();
+	}
+
+	/**
+	 * Summarizes how the sidebar updates are distributed over the ticks: the
+	 * scheduled load per tick and, for the last {@value #HISTORY} ticks, how
+	 * many updates actually ran per tick and how long they took.
+	 *
+	 * @return (List : String) - the lines of the report.
+	 */
+	public static List<String> getLoadReport() {
+
+		List<String> report = new ArrayList<>();
+
+		int min = Integer.MAX_VALUE, max = 0;
+		long sum = 0;
+		for (int load : scheduled) {
+			min = Math.min(min, load);
+			max = Math.max(max, load);
+			sum += load;
+		}
+
+		report.add("Update tasks: " + slots.size() + (staggered ? " (staggered)" : " (not staggered)"));
+		report.add("Scheduled updates per tick: min " + min + ", max " + max + ", mean "
+				+ format((double) sum / WINDOW));
+
+		Map<Integer, Integer> byDelay = new TreeMap<>();
+		for (Slot slot : slots.values())
+			byDelay.put(slot.delay, byDelay.containsKey(slot.delay) ? byDelay.get(slot.delay) + 1 : 1);
+		for (Map.Entry<Integer, Integer> delay : byDelay.entrySet())
+			report.add("  every " + delay.getKey() + " ticks: " + delay.getValue() + " tasks");
+
+		int ticks = (int) Math.min(HISTORY - 1, tick);
+		if (ticks == 0)
+			return report;
+
+		// Skip the current tick, it is not complete yet
+		Map<Integer, Integer> distribution = new TreeMap<>();
+		long maxNanos = 0, sumNanos = 0;
+		for (int i = 1; i <= ticks; i++) {
+			int index = (int) ((tick - i) % HISTORY);
+			Integer count = distribution.get(updates[index]);
+			distribution.put(updates[index], count == null ? 1 : count + 1);
+			maxNanos = Math.max(maxNanos, nanos[index]);
+			sumNanos += nanos[index];
+		}
+
+		report.add("Last " + ticks + " ticks: max " + format(maxNanos / 1e6) + " ms, mean "
+				+ format(sumNanos / 1e6 / ticks) + " ms per tick");
+		for (Map.Entry<Integer, Integer> count : distribution.entrySet())
+			report.add("  " + count.getKey() + " updates: " + count.getValue() + " ticks");
+
+		return report;
+
+	}
+
+	private static String format(double value) {
+		return String.format("%.2f", value);
+	}
+
+	/**
+	 * Schedules an update task with the least loaded phase.
+	 *
+	 * @return (BukkitTask) - the task, to be cancelled with
+	 *         {@link #cancel(BukkitTask)}.
+	 */
+	static BukkitTask schedule(Plugin plugin, int delay, final Runnable update) {
+
+		startClock(plugin);
+
+		int phase = staggered ? leastLoadedPhase(delay) : (int) (tick % delay);
+		int initialDelay = (int) (((phase - (tick + 1) % delay) % delay + delay) % delay) + 1;
+
+		BukkitTask task = new BukkitRunnable() {
+			@Override
+			public void run() {
+				long start = System.nanoTime();
+				try {
+					update.run();
+				} finally {
+					int index = (int) (tick % HISTORY);
+					updates[index]++;
+					nanos[index] += System.nanoTime() - start;
+				}
+			}
+		}.runTaskTimer(plugin, initialDelay, delay);
+
+		Slot slot = new Slot(delay, phase);
+		slots.put(task.getTaskId(), slot);
+		addLoad(slot, 1);
+
+		return task;
+
+	}
+
+	/**
+	 * Cancels an update task and removes its load. Does nothing if the task is
+	 * null.
+	 */
+	static void cancel(BukkitTask task) {
+
+		if (task == null)
+			return;
+
+		task.cancel();
+
+		Slot slot = slots.remove(task.getTaskId());
+		if (slot != null)
+			addLoad(slot, -1);
+
+	}
+
+	static void stop() {
+		if (clock != null) {
+			clock.cancel();
+			clock = null;
+		}
+	}
+
+	private static void startClock(Plugin plugin) {
+
+		if (clock != null)
+			return;
+
+		Plugin owner = SidebarAPI.getInstance() != null ? SidebarAPI.getInstance() : plugin;
+		clock = new BukkitRunnable() {
+			@Override
+			public void run() {
+				SidebarWatchdog.onTick(nanos[(int) (tick % HISTORY)]);
+				tick++;
+				int index = (int) (tick % HISTORY);
+				updates[index] = 0;
+				nanos[index] = 0;
+			}
+		}.runTaskTimer(owner, 1, 1);
+
+	}
+
+	private static int leastLoadedPhase(int delay) {
+
+		int best = 0;
+		long bestLoad = Long.MAX_VALUE;
+
+		for (int phase = 0; phase < delay; phase++) {
+			long load = 0;
+			for (int t = phase % WINDOW; t < WINDOW; t += delay)
+				load += scheduled[t];
+			if (load < bestLoad) {
+				best = phase;
+				bestLoad = load;
+			}
+		}
+
+		return best;
+
+	}
+
+	private static void addLoad(Slot slot, int amount) {
+		for (int t = slot.phase % WINDOW; t < WINDOW; t += slot.delay)
+			scheduled[t] += amount;
+	}
+
+	private static final class Slot {
+
+		private final int delay, phase;
+
+		private Slot(int delay, int phase) {
+			this.delay = delay;
+			this.phase = phase;
+		}
+
+	}
+
+}
@@ -0,0 +1,373 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * A block of lines that a plugin contributes to the sidebars of players
+ * through their {@link SidebarCompositor}, e.g. a header from one plugin and
+ * statistics from another. A section updates its own lines on its own
+ * delay; only the lines of the section that changed are written to the
+ * scoreboards it is shown on, without replacing any scoreboard.
+ * <p>
+ * Sections are shown top to bottom in order of descending
+ * {@link #getPriority() priority}. If all sections of a compositor together
+ * have more than 15 lines, the lines of the sections with the lowest
+ * priority are left out.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarSection {
+
+	private final Plugin owningPlugin;
+	private final SidebarEntries entries;
+	private volatile String title;
+	private int priority;
+	private Player setPlaceholdersOnUpdate = null;
+	private BukkitTask updateTask;
+	final SidebarFrame frame = new SidebarFrame(15);
+	/**
+	 * The entry each line of {@link #frame} was last rendered from, and its
+	 * position in the entry's animation.
+	 */
+	private final SidebarString.Cursor[] cursors = new SidebarString.Cursor[15];
+	final List<SidebarCompositor> compositors = new ArrayList<>();
+	private final PlaceholderIndex placeholders = new PlaceholderIndex();
+	/**
+	 * The lines invalidated by events or placeholder changes since they were
+	 * last rendered, see {@link SidebarTriggers#line(int)}.
+	 */
+	private int invalidLines;
+	private final Runnable triggeredUpdate = new Runnable() {
+		@Override
+		public void run() {
+			updateLines();
+		}
+	};
+
+	/**
+	 * Constructs a new SidebarSection.
+	 *
+	 * @param plugin
+	 *            (Plugin) - your plugin
+	 * @param priority
+	 *            (int) - see {@link #setPriority(int)}
+	 * @param updateDelayInTicks
+	 *            (int) - how many server ticks to wait in between each update.
+	 *            20 = 1 second
+	 * @param entries
+	 *            (SidebarString...) - all the entries
+	 */
+	public SidebarSection(Plugin plugin, int priority, int updateDelayInTicks, SidebarString... entries) {
+
+		this.owningPlugin = plugin;
+		this.priority = priority;
+		this.entries = new SidebarEntries(Arrays.asList(entries));
+
+		render(this.entries.snapshot(), 0, true);
+
+		setUpdateDelay(plugin, updateDelayInTicks);
+
+	}
+
+	/**
+	 * Sets how many server ticks to wait in between each update; see
+	 * {@link Sidebar#setUpdateDelay(Plugin, int)}.
+	 *
+	 * @param plugin
+	 *            (Plugin) - your plugin
+	 * @param delayInTicks
+	 *            (int) - the ticks; 0 stops the updates
+	 * @return (SidebarSection) - this SidebarSection Object, for chaining.
+	 */
+	public SidebarSection setUpdateDelay(Plugin plugin, int delayInTicks) {
+
+		if (delayInTicks < 0)
+			throw new IllegalArgumentException("delayInTicks cannot be less than 0!");
+
+		SidebarScheduler.cancel(updateTask);
+		updateTask = null;
+
+		if (delayInTicks == 0)
+			return this;
+
+		updateTask = SidebarScheduler.schedule(plugin, delayInTicks, new SidebarWatchdog.Update() {
+			@Override
+			boolean isVisible() {
+				return !compositors.isEmpty();
+			}
+
+			@Override
+			void update() {
+				SidebarSection.this.update();
+			}
+		});
+
+		return this;
+
+	}
+
+	/**
+	 * Gets the title this section gives the sidebar.
+	 *
+	 * @return (String) - the title, or null.
+	 * @see #setTitle(String)
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Sets the title this section gives the sidebar. The sidebar shows the
+	 * title of the section with the highest priority that has one, or else the
+	 * {@link SidebarCompositor#setTitle(String) title of the compositor}.
+	 *
+	 * @param title
+	 *            (String) - the title, or null
+	 * @return (SidebarSection) - this SidebarSection Object, for chaining.
+	 */
+	public SidebarSection setTitle(String title) {
+		this.title = title;
+		return this;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Sets the priority of this section. Sections with a higher priority are
+	 * shown above, and keep their lines when there are more than 15 lines.
+	 * Must be called on the server thread.
+	 *
+	 * @param priority
+	 *            (int) - the priority
+	 * @return (SidebarSection) - this SidebarSection Object, for chaining.
+	 */
+	public SidebarSection setPriority(int priority) {
+		this.priority = priority;
+		for (SidebarCompositor compositor : new ArrayList<>(compositors))
+			compositor.sort();
+		return this;
+	}
+
+	/**
+	 * Gets a list of all entries. The list is backed by this section, so
+	 * changes to it show on the next update.
+	 *
+	 * @return (List : SidebarString) - all entries.
+	 */
+	public List<SidebarString> getEntries() {
+		return entries.asList();
+	}
+
+	public SidebarSection setEntries(List<SidebarString> entries) {
+		this.entries.set(entries);
+		return this;
+	}
+
+	public SidebarSection addEntry(SidebarString... entries) {
+		this.entries.add(entries);
+		return this;
+	}
+
+	public SidebarSection removeEntry(SidebarString entry) {
+		entries.remove(entry);
+		return this;
+	}
+
+	/**
+	 * Sets the player that will be used for setting the placeholders in the
+	 * update function. If set to null, the placeholders will not be set.
+	 *
+	 * @param player
+	 *            (Player) - the player or null
+	 * @return (SidebarSection) - this SidebarSection Object, for chaining.
+	 */
+	public SidebarSection setPlaceholderPlayerForUpdate(Player player) {
+		setPlaceholdersOnUpdate = player;
+		return this;
+	}
+
+	public Player getPlaceholderPlayerForUpdate() {
+		return setPlaceholdersOnUpdate;
+	}
+
+	/**
+	 * Updates the entries of this section and writes the lines that changed
+	 * to every scoreboard the section is shown on. Does nothing while the
+	 * section is not part of a {@link SidebarCompositor}; it is updated when
+	 * it is added to one. Must be called on the server thread.
+	 *
+	 * @return (SidebarSection) - this SidebarSection Object, for chaining.
+	 */
+	public SidebarSection update() {
+
+		if (compositors.isEmpty())
+			return this;
+
+		SidebarString[] snapshot = entries.snapshot();
+		int invalid = invalidLines;
+		invalidLines = 0;
+
+		placeholders.setPlaceholders(snapshot, cursors, -1, setPlaceholdersOnUpdate);
+
+		String title = frame.title;
+		if (render(snapshot, invalid, true) || !frame.title.equals(title))
+			compose();
+
+		return this;
+
+	}
+
+	/**
+	 * Renders only the lines invalidated since they were last rendered,
+	 * without polling the other lines or setting all placeholders.
+	 */
+	private void updateLines() {
+
+		// the lines stay invalid until the section is shown again
+		if (invalidLines == 0 || compositors.isEmpty())
+			return;
+
+		SidebarString[] snapshot = entries.snapshot();
+		if (Math.min(snapshot.length, 15) != frame.size) {
+			// the lines moved since the last frame
+			update();
+			return;
+		}
+
+		int lines = invalidLines;
+		invalidLines = 0;
+
+		placeholders.setPlaceholders(snapshot, cursors, lines, setPlaceholdersOnUpdate);
+
+		if (render(snapshot, lines, false))
+			compose();
+
+	}
+
+	private void compose() {
+		for (SidebarCompositor compositor : new ArrayList<>(compositors))
+			compositor.compose();
+	}
+
+	/**
+	 * Invalidates the entries that update on an event and queues an update.
+	 */
+	void trigger(Event event) {
+		invalidate(SidebarTriggers.invalidate(entries.snapshot(), event, setPlaceholdersOnUpdate));
+	}
+
+	/**
+	 * Resolves and renders the entries showing a placeholder again if this
+	 * section sets its placeholders for the player.
+	 */
+	void placeholderChanged(Player player, String identifier) {
+		Player placeholderPlayer = setPlaceholdersOnUpdate;
+		if (placeholderPlayer != null && placeholderPlayer.getUniqueId().equals(player.getUniqueId()))
+			invalidate(placeholders.showing(entries.snapshot(), identifier));
+	}
+
+	private void invalidate(int lines) {
+		if (lines == 0)
+			return;
+		invalidLines |= lines;
+		SidebarTriggers.queue(triggeredUpdate);
+	}
+
+	/**
+	 * Removes this section from all compositors and stops updating it.
+	 */
+	public void destroy() {
+
+		SidebarScheduler.cancel(updateTask);
+		updateTask = null;
+
+		for (SidebarCompositor compositor : new ArrayList<>(compositors))
+			compositor.remove(this);
+
+	}
+
+	/**
+	 * Renders the next texts of the entries into {@link #frame}, or only the
+	 * invalidated lines.
+	 *
+	 * @param invalid
+	 *            (int) - the lines that are rendered even if they do not
+	 *            need an update
+	 * @param all
+	 *            (boolean) - whether to render the other lines as well
+	 * @return (boolean) - whether any line changed.
+	 */
+	private boolean render(SidebarString[] snapshot, int invalid, boolean all) {
+
+		int size = Math.min(snapshot.length, 15);
+		boolean changed = size != frame.size;
+
+		for (int i = 0; i < size; i++) {
+			boolean invalidated = (invalid & SidebarTriggers.line(i)) != 0;
+			if (!all && !invalidated)
+				continue;
+			SidebarString entry = snapshot[i];
+			frame.priorities[i] = entry.getPriority();
+			SidebarString.Cursor cursor = cursors[i];
+			if (cursor == null || cursor.text != entry)
+				cursors[i] = cursor = new SidebarString.Cursor(entry);
+			else if (!invalidated && !entry.needsUpdate(cursor))
+				continue;
+			String next = entry.getNextAndTrim(cursor, owningPlugin.getLogger(), false);
+			// A held run keeps the line rendered last time
+			if (!entry.pollChanged(cursor))
+				continue;
+			if (next.equals(frame.texts[i]))
+				continue;
+			frame.texts[i] = next;
+			Sidebar.renderLine(ChatColor.translateAlternateColorCodes('&', next), frame, i);
+			changed = true;
+		}
+
+		for (int i = size; i < 15; i++)
+			cursors[i] = null;
+
+		String title = this.title;
+		frame.title = title == null ? "" : title;
+		frame.size = size;
+		return changed;
+
+	}
+
+}
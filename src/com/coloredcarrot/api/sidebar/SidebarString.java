@@ -25,15 +25,26 @@
 package com.coloredcarrot.api.sidebar;
 
 import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.ChatColor;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -64,6 +75,7 @@ public class SidebarString implements ConfigurationSerializable {
 	 *            (int) - how many letters to fit into one animation
 	 * @return (SidebarString) - the generated SidebarString, ready for use in a
 	 *         Sidebar.
+	 * @see SidebarMarquee
 	 */
 	public static SidebarString generateScrollingAnimation(String text, String prefix, String suffix,
 			int displayWidth) {
@@ -76,17 +88,17 @@ public class SidebarString implements ConfigurationSerializable {
 		for (int i = 0; i <= text.length() - displayWidth; i++) {
 			String pre = text.substring(0, i);
 			String suff = text.substring(i, displayWidth + i);
-			if (suff.endsWith("")) {
+			if (suff.endsWith("§")) {
 				suff = suff.substring(0, suff.length() - 1);
 			}
-			if (pre.endsWith("")) {
+			if (pre.endsWith("§")) {
 				pre.substring(0, pre.length() - 1);
-				sidebarString.addVariation("" + suff);
+				sidebarString.addVariation("§" + suff);
 				continue;
 			}
 			String color = LongSidebar.getLastChatColor(pre);
 			sidebarString.addVariation(prefix + color + suff + suffix);
-			if (text.charAt(i) == '') {
+			if (text.charAt(i) == '§') {
 				i += 2;
 			} else if (text.charAt(i) == ' ') {
 				i++;
@@ -121,12 +133,68 @@ public class SidebarString implements ConfigurationSerializable {
 		ConfigurationSerialization.registerClass(SidebarString.class);
 	}
 
-	private List<String> animated = new ArrayList<>();
-	private transient int i = 0, curStep;
+	/**
+	 * All variations are interned, so identical frames of different
+	 * SidebarStrings (e.g. the per-player copies of a sidebar, or overlapping
+	 * frames of scrolling animations) share a single String instance.
+	 *
+	 * @since 3.1
+	 */
+	private static final Interner<String> FRAMES = Interners.newWeakInterner();
+
+	static String intern(String frame) {
+		return frame == null ? null : FRAMES.intern(frame);
+	}
+
+	/**
+	 * The variations, and the same with their placeholders set. Every change
+	 * publishes new runs, so sidebars rendering on other threads always read
+	 * a consistent state.
+	 *
+	 * @since 3.1
+	 */
+	private transient volatile Runs runs = Runs.EMPTY;
+	/**
+	 * The position of {@link #getNext()} in the animation. Sidebars keep a
+	 * position of their own for every line, so they animate the same
+	 * SidebarString independently.
+	 *
+	 * @since 3.1
+	 */
+	private transient final Cursor cursor = new Cursor(this);
+	/**
+	 * Counts the changes of the shown texts, the calls of {@link #reset()} and
+	 * of {@link #setStep(int)}, so every position can tell whether it has to
+	 * render its line again, start over or restart its step.
+	 *
+	 * @since 3.1
+	 */
+	private transient final AtomicInteger revision = new AtomicInteger();
+	private transient volatile int epoch, stepEpoch;
+	/**
+	 * The variations trimmed by {@link #getNextAndTrim(Logger, boolean)} for
+	 * a {@link Sidebar} and for a {@link LongSidebar}; null until a
+	 * variation had to be trimmed.
+	 *
+	 * @since 3.1
+	 */
+	private transient Trimmed trimmed, trimmedLong;
+	/**
+	 * The events this text updates on, or null if it is polled on every
+	 * update. Each sidebar keeps track of the events that fired for its own
+	 * lines.
+	 *
+	 * @since 3.1
+	 */
+	private transient volatile Set<Class<? extends Event>> updateEvents;
 	/**
 	 * @since 2.8
 	 */
 	private int step = 1;
+	/**
+	 * @since 3.1
+	 */
+	private int priority = 0;
 
 	/**
 	 * Constructs a new SidebarString.
@@ -137,9 +205,7 @@ public class SidebarString implements ConfigurationSerializable {
 	public SidebarString(String... variations) {
 
 		if (variations != null && variations.length > 0)
-			animated.addAll(Arrays.asList(variations));
-
-		curStep = step;
+			append(Arrays.asList(variations), null);
 
 	}
 
@@ -160,9 +226,7 @@ public class SidebarString implements ConfigurationSerializable {
 		this.step = step;
 
 		if (variations != null && variations.length > 0)
-			animated.addAll(Arrays.asList(variations));
-
-		curStep = step;
+			append(Arrays.asList(variations), null);
 
 	}
 
@@ -182,8 +246,6 @@ public class SidebarString implements ConfigurationSerializable {
 
 		addVariation(setPlaceholdersForPlayer, variations);
 
-		curStep = step;
-
 	}
 
 	/**
@@ -210,14 +272,15 @@ public class SidebarString implements ConfigurationSerializable {
 
 		this.step = step;
 
-		curStep = step;
-
 	}
 
 	@SuppressWarnings("unchecked")
 	public SidebarString(Map<String, Object> map) {
 
-		animated = (List<String>) map.get("data");
+		List<String> data = (List<String>) map.get("data");
+		List<Integer> durations = (List<Integer>) map.get("durations");
+		if (data != null)
+			append(data, durations != null && durations.size() == data.size() ? durations : null);
 
 		try {
 			step = map.get("step") == null ? 0 : (Integer) map.get("step");
@@ -225,6 +288,9 @@ public class SidebarString implements ConfigurationSerializable {
 			step = 0;
 		}
 
+		if (map.get("priority") instanceof Integer)
+			priority = (Integer) map.get("priority");
+
 	}
 
 	@Override
@@ -232,8 +298,19 @@ public class SidebarString implements ConfigurationSerializable {
 
 		Map<String, Object> map = new HashMap<>();
 
-		map.put("data", animated);
+		Runs runs = this.runs;
+		map.put("data", new ArrayList<>(Arrays.asList(runs.texts)));
+		for (int duration : runs.durations)
+			if (duration > 1) {
+				List<Integer> durations = new ArrayList<>(runs.durations.length);
+				for (int length : runs.durations)
+					durations.add(length);
+				map.put("durations", durations);
+				break;
+			}
 		map.put("step", step);
+		if (priority != 0)
+			map.put("priority", priority);
 
 		return map;
 
@@ -241,25 +318,27 @@ public class SidebarString implements ConfigurationSerializable {
 
 	public SidebarString cleanVariations(Player p) {
 
+		checkVariationsMutable();
+
 		// say this:
-		// "7hel"
+		// "§7hel"
 		// "7hell"
 		// "hello"
 		// "ello "
-		// "llo "
-		// "lo c"
-		// "o cg"
-		// " cgu"
+		// "llo §"
+		// "lo §c"
+		// "o §cg"
+		// " §cgu"
 
 		List<String> newAnimated = new ArrayList<>();
 		boolean lastStartedWithColorChar = false;
 
-		for (String var : animated) {
+		for (String var : getVariations()) {
 
-			if (var.startsWith("") && lastStartedWithColorChar) {
+			if (var.startsWith("§") && lastStartedWithColorChar) {
 				newAnimated.add(var);
 				lastStartedWithColorChar = true;
-			} else if (var.startsWith(""))
+			} else if (var.startsWith("§"))
 				lastStartedWithColorChar = true;
 			else if (lastStartedWithColorChar)
 				lastStartedWithColorChar = false;
@@ -268,7 +347,10 @@ public class SidebarString implements ConfigurationSerializable {
 
 		}
 
-		animated = newAnimated;
+		synchronized (this) {
+			runs = Runs.EMPTY.append(newAnimated, null);
+		}
+		reset();
 
 		return this;
 
@@ -276,7 +358,9 @@ public class SidebarString implements ConfigurationSerializable {
 
 	/**
 	 * If the PlaceholderAPI is hooked, sets the placeholders of all variants in
-	 * this SidebarString.
+	 * this SidebarString. Since 3.1, the variations themselves are kept, so
+	 * calling this again sets the current values of the placeholders. The
+	 * values are taken from the {@link PlaceholderCache}.
 	 *
 	 * @param forPlayer
 	 *            (Player) - what player to set the placeholders for
@@ -290,13 +374,318 @@ public class SidebarString implements ConfigurationSerializable {
 		if (SidebarAPI.getPlaceholderAPI() == null)
 			throw new SidebarOptionalException("PlaceholderAPI not hooked!");
 
-		for (int i = 0; i < animated.size(); i++)
-			animated.set(i, PlaceholderAPI.setPlaceholders(forPlayer, animated.get(i)));
+		synchronized (this) {
+
+			Runs runs = this.runs;
+			String[] resolved = runs.resolved, untrimmed = runs.untrimmed;
+			// The published arrays are never written, they are copied once a
+			// value changed
+			boolean copied = resolved == null;
+			if (copied) {
+				resolved = new String[runs.texts.length];
+				untrimmed = new String[resolved.length];
+			}
+
+			for (int i = 0; i < resolved.length; i++) {
+				String value = intern(PlaceholderTemplate.of(runs.texts[i]).resolve(forPlayer));
+				if (value != untrimmed[i]) {
+					if (!copied) {
+						resolved = resolved.clone();
+						untrimmed = untrimmed.clone();
+						copied = true;
+					}
+					untrimmed[i] = value;
+					resolved[i] = validate(value, null);
+				}
+			}
 
+			if (!copied)
+				return this;
+			this.runs = runs.resolve(resolved, untrimmed);
+
+		}
+
+		markChanged();
 		return this;
 
 	}
 
+	/**
+	 * Sets the placeholders for a player and keeps the texts in a position,
+	 * so a sidebar rendering it on another thread shows the texts of its own
+	 * player even if the placeholders are set for another player meanwhile.
+	 * Must be called on the thread that renders the position, or while it is
+	 * not being rendered.
+	 */
+	void setPlaceholders(Cursor cursor, Player forPlayer) {
+		setPlaceholders(forPlayer);
+		Runs runs = this.runs;
+		cursor.runs = runs.resolved != null && runs.texts.length > 0 ? runs : null;
+	}
+
+	/**
+	 * Appends variations, each lasting for the specified amount of steps, or
+	 * 1 if durations is null.
+	 */
+	private void append(List<String> variations, List<Integer> durations) {
+		synchronized (this) {
+			runs = runs.append(variations, durations);
+		}
+		markChanged();
+	}
+
+	/**
+	 * Gets a variation as it will be shown, i.e. with its placeholders set if
+	 * {@link #setPlaceholders(Player)} has been called.
+	 */
+	private String getShown(int index) {
+		return runs.shown(index);
+	}
+
+	/**
+	 * Trims a text that is too long to be shown by any sidebar, reporting it
+	 * to the {@link SidebarDiagnostics}. The text itself is returned if it
+	 * fits.
+	 */
+	private static String validate(String text, Logger logger) {
+		int max = SidebarLimits.getLongLineLength();
+		if (shownLength(text) <= max || fits(text, true))
+			return text;
+		report("trim:" + max + ":" + text, text, max, logger);
+		return intern(trim(text, max));
+	}
+
+	/**
+	 * Checks whether a text that is longer than the line length still fits
+	 * into a line, because its colors can be laid out with fewer codes, see
+	 * {@link SidebarLayout}.
+	 */
+	private static boolean fits(String text, boolean isLongText) {
+		return SidebarLayout.of(ChatColor.translateAlternateColorCodes('&', text), isLongText).complete;
+	}
+
+	/**
+	 * Gets the length of a text without leading reset codes, which are not
+	 * shown.
+	 */
+	private static int shownLength(String text) {
+		return text.length() - resetCodes(text);
+	}
+
+	private static int resetCodes(String text) {
+		if (text.startsWith("§r§f") || text.startsWith("§f§r"))
+			return 4;
+		if (text.startsWith("§r") || text.startsWith("§f"))
+			return 2;
+		return 0;
+	}
+
+	private static String trim(String text, int max) {
+		String trimmed = text.substring(resetCodes(text));
+		return trimmed.substring(0, trimmed.charAt(max - 1) == '§' ? max - 1 : max);
+	}
+
+	/**
+	 * Identifies the trimming of this text to a length, whichever variation
+	 * was trimmed.
+	 */
+	private String trimKey(int max) {
+		return "trim:" + max + ":" + Integer.toHexString(System.identityHashCode(this));
+	}
+
+	private static void report(String key, String text, int max, Logger logger) {
+		SidebarDiagnostics.report(logger, key,
+				"[Sidebar] Entry variation was trimmed to " + max + " characters (originally \"" + text + "\")");
+	}
+
+	/**
+	 * Gets how many variations {@link #getNext()} cycles through. Subclasses
+	 * that produce their variations on demand override this together with
+	 * {@link #getVariation(int)}.
+	 *
+	 * @return (int) - the number of variations.
+	 * @since 3.1
+	 */
+	protected int getVariationCount() {
+		return runs.texts.length;
+	}
+
+	/**
+	 * Gets the variation at the specified index as it will be shown.
+	 *
+	 * @param index
+	 *            (int) - the index, between 0 and {@link #getVariationCount()}
+	 * @return (String) - the variation.
+	 * @since 3.1
+	 */
+	protected String getVariation(int index) {
+		return getShown(index);
+	}
+
+	/**
+	 * Gets for how many steps the variation at the specified index is shown
+	 * before {@link #getNext()} moves on to the next one.
+	 *
+	 * @param index
+	 *            (int) - the index, between 0 and {@link #getVariationCount()}
+	 * @return (int) - the duration, at least 1.
+	 * @since 3.1
+	 */
+	protected int getDuration(int index) {
+		int[] durations = runs.durations;
+		return index < durations.length ? durations[index] : 1;
+	}
+
+	/**
+	 * Marks the shown text as changed, so every sidebar showing it renders it
+	 * again on its next frame, even if the same variation is still being
+	 * shown.
+	 *
+	 * @since 3.1
+	 */
+	protected void markChanged() {
+		revision.incrementAndGet();
+	}
+
+	/**
+	 * Brings a text that is derived from some other state up to date, calling
+	 * {@link #markChanged()} if it changed. Sidebars call this before they
+	 * decide whether to render the line, once per line and frame, so the
+	 * state is only compared there and {@link #getVariation(int)} just
+	 * returns the text. Does nothing by default.
+	 *
+	 * @since 3.1
+	 */
+	protected void refresh() {
+	}
+
+	/**
+	 * Checks whether {@link #getNext()} has to be called on every update,
+	 * because the text may change without {@link #markChanged()}, like the
+	 * variations of an animation. Sidebars do not call {@link #getNext()} for
+	 * lines that do not need an update and did not change, so a text that
+	 * only changes on certain events, like a {@link SidebarBoundString},
+	 * costs nothing until then. By default, this returns true unless the
+	 * text {@link #updateOn(Class) updates on events}.
+	 *
+	 * @return (boolean) - whether the line has to be polled.
+	 * @since 3.1
+	 */
+	public boolean needsUpdate() {
+		return updateEvents == null;
+	}
+
+	/**
+	 * Checks whether a position has to move to the next text, because the
+	 * text is polled or changed since the position last got it.
+	 */
+	boolean needsUpdate(Cursor cursor) {
+		refresh();
+		return cursor.revision != revision.get() || cursor.epoch != epoch || cursor.stepEpoch != stepEpoch
+				|| needsUpdate();
+	}
+
+	/**
+	 * Makes the next update of every sidebar showing this text render it
+	 * again, even if it {@link #updateOn(Class) only updates on events}.
+	 *
+	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @since 3.1
+	 */
+	public SidebarString invalidate() {
+		markChanged();
+		return this;
+	}
+
+	/**
+	 * Makes this text update when an event fires instead of on every update
+	 * of its sidebar, e.g. the health of a player on
+	 * {@code EntityRegainHealthEvent} and {@code EntityDamageEvent}. If the
+	 * event is about a player, only the sidebars shown to that player update
+	 * the text, otherwise all sidebars with this text do; either way, they
+	 * update once on the next tick, however often the event fired. Together
+	 * with an update delay of 0, a sidebar whose texts all update on events is
+	 * never polled. The events are not serialized.
+	 *
+	 * @param event
+	 *            (Class : Event) - the event; it must have its own handler
+	 *            list, and its subclasses only trigger updates if they share
+	 *            that list; an event without a static
+	 *            {@code getHandlerList()} method of its own, such as an
+	 *            abstract event, is reported to the
+	 *            {@link SidebarDiagnostics} and ignored
+	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @since 3.1
+	 */
+	public SidebarString updateOn(Class<? extends Event> event) {
+
+		if (event == null)
+			throw new IllegalArgumentException("event cannot be null!");
+
+		if (!SidebarTriggers.hasHandlerList(event)) {
+			SidebarDiagnostics.report(null, "updateOn:" + event.getName(), "[Sidebar] Cannot update on "
+					+ event.getName() + ", it has no static getHandlerList() method of its own");
+			return this;
+		}
+
+		Set<Class<? extends Event>> events = updateEvents;
+		if (events == null) {
+			events = new CopyOnWriteArraySet<>();
+			updateEvents = events;
+		}
+		events.add(event);
+
+		SidebarTriggers.declare(event);
+
+		return this;
+
+	}
+
+	/**
+	 * Gets the events this text updates on.
+	 *
+	 * @return (Set : Class : Event) - the events; empty if this text is
+	 *         updated on every update of its sidebar.
+	 * @see #updateOn(Class)
+	 * @since 3.1
+	 */
+	public Set<Class<? extends Event>> getUpdateEvents() {
+		Set<Class<? extends Event>> events = updateEvents;
+		return events == null ? Collections.<Class<? extends Event>> emptySet() : Collections.unmodifiableSet(events);
+	}
+
+	boolean isUpdatedOn(Event event) {
+		Set<Class<? extends Event>> events = updateEvents;
+		if (events != null)
+			for (Class<? extends Event> type : events)
+				if (type.isInstance(event))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Evicts the cached values of the placeholders of all variations for a
+	 * player, so they are resolved again.
+	 */
+	void evictPlaceholders(UUID playerId) {
+		for (String identifier : getPlaceholderIdentifiers())
+			PlaceholderCache.evict(playerId, identifier);
+	}
+
+	/**
+	 * Returns whether the text returned by the last call of
+	 * {@link #getNext(Cursor)} for a position differs from what was returned
+	 * when this method was last called for it, and resets that state. While a
+	 * run of equal variations is held this returns false, so the renderer can
+	 * keep the line it already has.
+	 */
+	boolean pollChanged(Cursor cursor) {
+		boolean changed = cursor.changed || cursor.revision != cursor.rendered;
+		cursor.changed = false;
+		cursor.rendered = cursor.revision;
+		return changed;
+	}
+
 	/**
 	 * Gets the text that comes after the last one, for animated text. This
 	 * method only returns the next variant if the step permits it; which is
@@ -305,19 +694,68 @@ public class SidebarString implements ConfigurationSerializable {
 	 * @return (String) - the next text.
 	 */
 	public String getNext() {
+		return getNext(cursor);
+	}
+
+	/**
+	 * Moves a position to the next text. Subclasses that still override
+	 * {@link #getNext()} are asked for every text instead, and their line is
+	 * always rendered again.
+	 */
+	String getNext(Cursor cursor) {
+
+		if (cursor != this.cursor && OVERRIDES_GET_NEXT.get(getClass())) {
+			cursor.index = -1;
+			cursor.changed = true;
+			return getNext();
+		}
 
-		if (curStep == step)
-			i++;
+		refresh();
 
-		curStep++;
+		int epoch = this.epoch;
+		if (cursor.epoch != epoch) {
+			cursor.epoch = epoch;
+			cursor.i = 0;
+			cursor.held = 0;
+			cursor.curStep = step;
+		}
+
+		int stepEpoch = this.stepEpoch;
+		if (cursor.stepEpoch != stepEpoch) {
+			// the next call returns the next variation, see setStep
+			cursor.stepEpoch = stepEpoch;
+			cursor.curStep = step;
+		}
 
-		if (curStep > step)
-			curStep = 0;
+		if (cursor.curStep == step) {
+			if (cursor.i > 0 && ++cursor.held < getDuration(cursor.i - 1)) {
+				// still holding the current run
+			} else {
+				cursor.i++;
+				cursor.held = 0;
+			}
+		}
 
-		if (i > animated.size())
-			i = 1;
+		cursor.curStep++;
+
+		if (cursor.curStep > step)
+			cursor.curStep = 0;
+
+		if (cursor.i > getVariationCount())
+			cursor.i = 1;
+
+		if (cursor.i - 1 != cursor.index) {
+			cursor.index = cursor.i - 1;
+			cursor.changed = true;
+		}
 
-		return animated.get(i - 1);
+		// read before the text, so a change while it is produced is rendered
+		// next time
+		cursor.revision = revision.get();
+		Runs pinned = cursor.runs;
+		if (pinned != null && pinned.texts == runs.texts)
+			return pinned.shown(cursor.index);
+		return getVariation(cursor.index);
 
 	}
 
@@ -325,8 +763,10 @@ public class SidebarString implements ConfigurationSerializable {
 	 * Code by fren_gor && ColoredCarrot
 	 */
 	/**
-	 * Calls {@link #getNext()} and, if necessary, trims the result to max. 28
-	 * characters and prints a warning message to the specified logger.
+	 * Calls {@link #getNext()} and, if necessary, trims the result to the
+	 * maximum line length of the server and prints a warning message to the
+	 * specified logger. Up to Minecraft 1.12, that is 28 characters, or 64 for
+	 * a {@link LongSidebar}; see {@link SidebarLimits}.
 	 * 
 	 * @param logger
 	 *            The logger to print the warning message to
@@ -334,46 +774,72 @@ public class SidebarString implements ConfigurationSerializable {
 	 * @see #getNext()
 	 */
 	public String getNextAndTrim(Logger logger, boolean isLongText) {
-		String next = getNext();
-		if (next.startsWith("r") || next.startsWith("f"))
-			next = next.substring(2);
-
-		if (next.startsWith("rf") || next.startsWith("fr"))
-			next = next.substring(4);
-		if (isLongText) {
-			if (next.length() > 64) {
-				logger.warning("[Sidebar] Entry variation #" + (i + 1) + " was trimmed to 64 characters (originally \""
-						+ next + "\")");
-				next = next.substring(0, 64);
-				if (next.endsWith("")) {
-					next = next.substring(0, 63);
-				}
-				animated.set(i - 1, next);
-			}
-		} else {
-			if (next.length() > 28) {
-				logger.warning("[Sidebar] Entry variation #" + (i + 1) + " was trimmed to 28 characters (originally \""
-						+ next + "\")");
-				next = next.substring(0, 28);
-				if (next.endsWith("")) {
-					next = next.substring(0, 27);
-				}
-				animated.set(i - 1, next);
+		return getNextAndTrim(cursor, logger, isLongText);
+	}
+
+	String getNextAndTrim(Cursor cursor, Logger logger, boolean isLongText) {
+
+		String next = getNext(cursor);
+
+		int max = isLongText ? SidebarLimits.getLongLineLength() : SidebarLimits.getLineLength();
+		if (shownLength(next) > max)
+			return getTrimmed(cursor.index, next, max, isLongText, logger);
+
+		int resetCodes = resetCodes(next);
+		return resetCodes == 0 ? next : next.substring(resetCodes);
+
+	}
+
+	/**
+	 * Trims a variation that does not fit, only checking, trimming and
+	 * reporting it again if it changed since the last time. The trimmed
+	 * variations are shared by all sidebars showing this text, which may
+	 * render in parallel. The report is keyed on this text and the length,
+	 * not on the variation, whose placeholders may change all the time.
+	 */
+	private synchronized String getTrimmed(int index, String variation, int max, boolean isLongText, Logger logger) {
+
+		Trimmed trimmed = isLongText ? trimmedLong : this.trimmed;
+		if (trimmed == null || trimmed.max != max || trimmed.texts.length != getVariationCount()) {
+			trimmed = new Trimmed(max, getVariationCount());
+			if (isLongText)
+				trimmedLong = trimmed;
+			else
+				this.trimmed = trimmed;
+		}
+
+		if (index < 0 || index >= trimmed.texts.length) {
+			if (fits(variation, isLongText))
+				return variation;
+			report(trimKey(max), variation, max, logger);
+			return trim(variation, max);
+		}
+
+		if (!variation.equals(trimmed.from[index])) {
+			if (fits(variation, isLongText))
+				trimmed.texts[index] = variation;
+			else {
+				report(trimKey(max), variation, max, logger);
+				trimmed.texts[index] = intern(trim(variation, max));
 			}
+			trimmed.from[index] = variation;
 		}
-		return next;
+
+		return trimmed.texts[index];
+
 	}
 
 	/**
 	 * Resets the animation to the starting point. Since 2.8, this also resets
 	 * the current step value so the next call of {@link #getNext()} returns the
-	 * next variation.
+	 * next variation. Since 3.1, this resets the animation in all sidebars
+	 * showing this text.
 	 *
 	 * @return (SidebarString) - this SidebarString Object, for chaining.
 	 */
 	public SidebarString reset() {
-		i = 0;
-		curStep = step;
+		epoch++;
+		markChanged();
 		return this;
 	}
 
@@ -391,7 +857,9 @@ public class SidebarString implements ConfigurationSerializable {
 	/**
 	 * Sets the step of this SidebarString. The "step" defines how many times
 	 * the method {@link #getNext()} needs to be run before the actual new
-	 * variant will be returned.
+	 * variant will be returned. This also resets the current step value, so
+	 * the next call of {@link #getNext()} returns the next variation; since
+	 * 3.1, in all sidebars showing this text.
 	 *
 	 * @param step
 	 *            (int) - the step, must be > 0
@@ -404,20 +872,77 @@ public class SidebarString implements ConfigurationSerializable {
 			throw new IllegalArgumentException("step cannot be smaller than or equal to 0!");
 
 		this.step = step;
-
-		curStep = step;
+		stepEpoch++;
 
 		return this;
 
 	}
 
 	/**
-	 * Gets all variations of this text.
+	 * Gets the priority of this text.
+	 *
+	 * @return (int) - the priority.
+	 * @see #setPriority(int)
+	 * @since 3.1
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Sets the priority of this text. When a player's
+	 * {@link SidebarBandwidth write budget} does not allow all changed lines
+	 * of a sidebar to be sent, lines with a higher priority are sent first;
+	 * lines with the same priority are sent top to bottom. The default is 0.
+	 *
+	 * @param priority
+	 *            (int) - the priority
+	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @since 3.1
+	 */
+	public SidebarString setPriority(int priority) {
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * Gets all variations of this text. Since 3.1, consecutive equal
+	 * variations are stored as one run, so this returns a copy in which every
+	 * run is expanded again; modifying it has no effect.
 	 *
 	 * @return (List : String) - all animations.
 	 */
 	public List<String> getVariations() {
-		return animated;
+		Runs runs = this.runs;
+		List<String> variations = new ArrayList<>(runs.texts.length);
+		for (int i = 0; i < runs.texts.length; i++)
+			for (int j = runs.durations[i]; j > 0; j--)
+				variations.add(runs.texts[i]);
+		return variations;
+	}
+
+	/**
+	 * Adds a variation that is shown for the specified amount of steps, e.g.
+	 * a banner that holds between two transitions. Holding a variation costs
+	 * neither memory nor rendering time per step.
+	 *
+	 * @param duration
+	 *            (int) - for how many steps to show the variation, must be
+	 *            &gt; 0
+	 * @param variation
+	 *            (String) - the variation to add
+	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @throws UnsupportedOperationException
+	 *             if the variations of this text are derived from something
+	 *             else, like the frames of a {@link SidebarMarquee}.
+	 * @since 3.1
+	 */
+	public SidebarString addVariation(int duration, String variation) {
+		checkVariationsMutable();
+		if (duration <= 0)
+			throw new IllegalArgumentException("duration cannot be smaller than or equal to 0!");
+		append(Collections.singletonList(variation), Collections.singletonList(duration));
+		return this;
 	}
 
 	/**
@@ -426,9 +951,13 @@ public class SidebarString implements ConfigurationSerializable {
 	 * @param variations
 	 *            (String...) - the variations to add
 	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @throws UnsupportedOperationException
+	 *             if the variations of this text are derived from something
+	 *             else, like the frames of a {@link SidebarMarquee}.
 	 */
 	public SidebarString addVariation(String... variations) {
-		animated.addAll(Arrays.asList(variations));
+		checkVariationsMutable();
+		append(Arrays.asList(variations), null);
 		return this;
 	}
 
@@ -442,10 +971,15 @@ public class SidebarString implements ConfigurationSerializable {
 	 * @param variations
 	 *            (String...) - the variation(s) to add
 	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @throws UnsupportedOperationException
+	 *             if the variations of this text are derived from something
+	 *             else, like the frames of a {@link SidebarMarquee}.
 	 * @since 2.4
 	 */
 	public SidebarString addVariation(Player setPlaceholdersForPlayer, String... variations) {
 
+		checkVariationsMutable();
+
 		if (setPlaceholdersForPlayer != null && SidebarAPI.getPlaceholderAPI() == null)
 			throw new SidebarOptionalException("PlaceholderAPI not hooked!");
 
@@ -455,7 +989,7 @@ public class SidebarString implements ConfigurationSerializable {
 				for (int i = 0; i < variations.length; i++)
 					variations[i] = PlaceholderAPI.setPlaceholders(setPlaceholdersForPlayer, variations[i]);
 
-			animated.addAll(Arrays.asList(variations));
+			append(Arrays.asList(variations), null);
 
 		}
 
@@ -469,10 +1003,247 @@ public class SidebarString implements ConfigurationSerializable {
 	 * @param variation
 	 *            (String) - the variation
 	 * @return (SidebarString) - this SidebarString Object, for chaining.
+	 * @throws UnsupportedOperationException
+	 *             if the variations of this text are derived from something
+	 *             else, like the frames of a {@link SidebarMarquee}.
 	 */
 	public SidebarString removeVariation(String variation) {
-		animated.remove(variation);
+
+		checkVariationsMutable();
+
+		synchronized (this) {
+			List<String> texts = Arrays.asList(runs.texts);
+			int index = texts.indexOf(variation);
+			if (index < 0 && variation != null && shownLength(variation) > SidebarLimits.getLongLineLength())
+				// the variation was trimmed when it was added
+				index = texts.indexOf(intern(trim(variation, SidebarLimits.getLongLineLength())));
+			if (index < 0)
+				return this;
+			runs = runs.remove(index);
+		}
+
+		markChanged();
 		return this;
+
+	}
+
+	/**
+	 * Throws if the variations of this text cannot be changed, because a
+	 * subclass derives them from something else. Called by every method
+	 * that changes them.
+	 */
+	void checkVariationsMutable() {
+	}
+
+	/**
+	 * Gets the identifiers of the placeholders this text shows, without the
+	 * percent signs, e.g. "player_health" for {@code %player_health%}.
+	 *
+	 * @return (Set : String) - the identifiers of the placeholders of all
+	 *         variations.
+	 * @since 3.1
+	 */
+	public Set<String> getPlaceholders() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(getPlaceholderIdentifiers())));
+	}
+
+	/**
+	 * Gets the identifiers of the placeholders of all variations. The array
+	 * is only replaced when the variations change, and must not be modified.
+	 */
+	String[] getPlaceholderIdentifiers() {
+		return runs.placeholders;
 	}
 
+	/**
+	 * The variations trimmed to one length, and the texts they were trimmed
+	 * from.
+	 */
+	private static final class Trimmed {
+
+		final int max;
+		final String[] texts, from;
+
+		Trimmed(int max, int count) {
+			this.max = max;
+			texts = new String[count];
+			from = new String[count];
+		}
+
+	}
+
+	/**
+	 * The position of one line in the animation of a SidebarString. It is
+	 * only used by the thread rendering that line.
+	 *
+	 * @since 3.1
+	 */
+	static final class Cursor {
+
+		final SidebarString text;
+		private int i, curStep, held;
+		/**
+		 * The index of the variation returned last, and whether it changed
+		 * since the renderer last asked.
+		 */
+		private int index = -1;
+		private boolean changed = true;
+		/**
+		 * The {@link SidebarString#epoch} and
+		 * {@link SidebarString#stepEpoch} this position belongs to, the
+		 * {@link SidebarString#revision} of the text returned last, and the
+		 * revision that was rendered.
+		 */
+		private int epoch = -1, stepEpoch, revision, rendered;
+		/**
+		 * The texts with the placeholders set for the player of this
+		 * position, or null to show the current texts, see
+		 * {@link SidebarString#setPlaceholders(Cursor, Player)}.
+		 */
+		private Runs runs;
+
+		Cursor(SidebarString text) {
+			this.text = text;
+		}
+
+		void unpin() {
+			runs = null;
+		}
+
+	}
+
+	/**
+	 * The variations of a SidebarString, with consecutive equal variations
+	 * collapsed into one run, and how many steps each run lasts. Runs are
+	 * never modified; every change creates new ones.
+	 *
+	 * @since 3.1
+	 */
+	static final class Runs {
+
+		static final Runs EMPTY = new Runs(new String[0], new int[0]);
+
+		final String[] texts;
+		final int[] durations;
+		/**
+		 * The identifiers of the placeholders of all variations.
+		 */
+		final String[] placeholders;
+		/**
+		 * The variations with their placeholders set, or null if
+		 * {@link SidebarString#setPlaceholders(Player)} has not been called
+		 * since they changed, and the same before they were trimmed to the
+		 * longest line, so a text that is too long is only trimmed and
+		 * reported again when its placeholders change.
+		 */
+		final String[] resolved, untrimmed;
+
+		private Runs(String[] texts, int[] durations) {
+			this(texts, durations, identifiers(texts), null, null);
+		}
+
+		private Runs(String[] texts, int[] durations, String[] placeholders, String[] resolved, String[] untrimmed) {
+			this.texts = texts;
+			this.durations = durations;
+			this.placeholders = placeholders;
+			this.resolved = resolved;
+			this.untrimmed = untrimmed;
+		}
+
+		private static String[] identifiers(String[] texts) {
+			Set<String> identifiers = new LinkedHashSet<>();
+			for (String variation : texts)
+				identifiers.addAll(Arrays.asList(PlaceholderTemplate.of(variation).getIdentifiers()));
+			return identifiers.toArray(new String[identifiers.size()]);
+		}
+
+		/**
+		 * Gets a variation as it will be shown. An index beyond the last run,
+		 * which a position may hold while the runs are replaced, shows the
+		 * last run.
+		 */
+		String shown(int index) {
+			if (index >= texts.length)
+				index = texts.length - 1;
+			return resolved != null ? resolved[index] : texts[index];
+		}
+
+		/**
+		 * Appends variations, extending the last run if it shows the same
+		 * text.
+		 */
+		Runs append(List<String> variations, List<Integer> lengths) {
+
+			String[] texts = Arrays.copyOf(this.texts, this.texts.length + variations.size());
+			int[] durations = Arrays.copyOf(this.durations, texts.length);
+			int size = this.texts.length;
+
+			for (int i = 0; i < variations.size(); i++) {
+				String variation = intern(variations.get(i));
+				// Placeholders may still make the text shorter
+				if (!PlaceholderTemplate.of(variation).hasPlaceholders())
+					variation = validate(variation, null);
+				int duration = lengths == null || lengths.get(i) == null ? 1 : lengths.get(i);
+				if (size > 0 && texts[size - 1].equals(variation))
+					durations[size - 1] += duration;
+				else {
+					texts[size] = variation;
+					durations[size++] = duration;
+				}
+			}
+
+			return new Runs(Arrays.copyOf(texts, size), Arrays.copyOf(durations, size));
+
+		}
+
+		/**
+		 * Removes one step of the run at an index, and the run itself if it
+		 * was its last step.
+		 */
+		Runs remove(int index) {
+
+			int[] durations = this.durations.clone();
+			if (--durations[index] > 0)
+				return new Runs(texts, durations, placeholders, resolved, untrimmed);
+
+			List<String> texts = new ArrayList<>(Arrays.asList(this.texts));
+			List<Integer> lengths = new ArrayList<>(durations.length);
+			for (int duration : durations)
+				lengths.add(duration);
+			texts.remove(index);
+			lengths.remove(index);
+			// the neighbours of the removed run may now be one run
+			if (index > 0 && index < texts.size() && texts.get(index - 1).equals(texts.get(index))) {
+				lengths.set(index - 1, lengths.get(index - 1) + lengths.remove(index));
+				texts.remove(index);
+			}
+
+			int[] remaining = new int[lengths.size()];
+			for (int i = 0; i < remaining.length; i++)
+				remaining[i] = lengths.get(i);
+			return new Runs(texts.toArray(new String[texts.size()]), remaining);
+
+		}
+
+		Runs resolve(String[] resolved, String[] untrimmed) {
+			return new Runs(texts, durations, placeholders, resolved, untrimmed);
+		}
+
+	}
+
+	/**
+	 * Whether a subclass overrides {@link #getNext()}, which sidebars have to
+	 * keep calling.
+	 */
+	private static final ClassValue<Boolean> OVERRIDES_GET_NEXT = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("getNext").getDeclaringClass() != SidebarString.class;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+	};
+
 }
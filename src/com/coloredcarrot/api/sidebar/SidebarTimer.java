@@ -0,0 +1,344 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+
+/**
+ * A line that shows a time computed from the system clock: a countdown, a
+ * stopwatch or the time of day. Instead of setting a new text every tick, the
+ * line compares the shown second, or minute for the time of day, with the
+ * current one, so a line only renders it again when its visible text changes;
+ * a 15 minute countdown is rendered once per second and allocates nothing in
+ * between. The digits are taken from a table, and the
+ * text is built in a buffer that is kept between updates.
+ * <p>
+ * Countdowns and stopwatches show {@code m:ss}, or {@code h:mm:ss} from one
+ * hour on; the time of day shows {@code HH:mm}. A finished countdown keeps
+ * showing {@code 0:00}.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public class SidebarTimer extends SidebarString {
+
+	static {
+		ConfigurationSerialization.registerClass(SidebarTimer.class);
+	}
+
+	/**
+	 * The numbers from 00 to 99.
+	 */
+	private static final String[] DIGITS = new String[100];
+
+	static {
+		for (int i = 0; i < DIGITS.length; i++)
+			DIGITS[i] = i < 10 ? "0" + i : String.valueOf(i);
+	}
+
+	/**
+	 * What a SidebarTimer shows.
+	 */
+	public enum Mode {
+
+		/**
+		 * The time left until the end.
+		 */
+		COUNTDOWN,
+		/**
+		 * The time passed since the start.
+		 */
+		STOPWATCH,
+		/**
+		 * The time of day in a time zone.
+		 */
+		CLOCK
+
+	}
+
+	/**
+	 * Creates a countdown that ends after the specified time.
+	 *
+	 * @param prefix
+	 *            (String) - what to show before the time
+	 * @param millis
+	 *            (long) - the time until the end, in milliseconds
+	 * @param suffix
+	 *            (String) - what to show after the time
+	 * @return (SidebarTimer) - the countdown.
+	 */
+	public static SidebarTimer countdown(String prefix, long millis, String suffix) {
+		return new SidebarTimer(Mode.COUNTDOWN, prefix, System.currentTimeMillis() + millis, null, suffix);
+	}
+
+	/**
+	 * Creates a stopwatch that starts now.
+	 *
+	 * @param prefix
+	 *            (String) - what to show before the time
+	 * @param suffix
+	 *            (String) - what to show after the time
+	 * @return (SidebarTimer) - the stopwatch.
+	 */
+	public static SidebarTimer stopwatch(String prefix, String suffix) {
+		return new SidebarTimer(Mode.STOPWATCH, prefix, System.currentTimeMillis(), null, suffix);
+	}
+
+	/**
+	 * Creates a clock that shows the time of day.
+	 *
+	 * @param prefix
+	 *            (String) - what to show before the time
+	 * @param zone
+	 *            (TimeZone) - the time zone, or null for the default one
+	 * @param suffix
+	 *            (String) - what to show after the time
+	 * @return (SidebarTimer) - the clock.
+	 */
+	public static SidebarTimer clock(String prefix, TimeZone zone, String suffix) {
+		return new SidebarTimer(Mode.CLOCK, prefix, 0, zone, suffix);
+	}
+
+	private final Mode mode;
+	private final String prefix, suffix;
+	private final TimeZone zone;
+	/**
+	 * The end of a countdown or the start of a stopwatch, in milliseconds.
+	 */
+	private volatile long origin;
+
+	/**
+	 * The shown second or minute, and the buffer and text built for it.
+	 */
+	private transient long shownUnit = -1;
+	private transient StringBuilder buffer;
+	private transient String text;
+
+	/**
+	 * Constructs a new SidebarTimer.
+	 *
+	 * @param mode
+	 *            (Mode) - what to show
+	 * @param prefix
+	 *            (String) - what to show before the time
+	 * @param origin
+	 *            (long) - the end of a countdown or the start of a stopwatch,
+	 *            as returned by {@link System#currentTimeMillis()}; ignored by
+	 *            a clock
+	 * @param zone
+	 *            (TimeZone) - the time zone of a clock, or null for the
+	 *            default one; ignored otherwise
+	 * @param suffix
+	 *            (String) - what to show after the time
+	 */
+	public SidebarTimer(Mode mode, String prefix, long origin, TimeZone zone, String suffix) {
+
+		if (mode == null)
+			throw new IllegalArgumentException("mode cannot be null!");
+
+		this.mode = mode;
+		this.prefix = prefix == null ? "" : prefix;
+		this.suffix = suffix == null ? "" : suffix;
+		this.origin = origin;
+		this.zone = zone == null ? TimeZone.getDefault() : zone;
+
+		buffer = new StringBuilder(this.prefix.length() + 8 + this.suffix.length());
+		refresh();
+
+	}
+
+	public SidebarTimer(Map<String, Object> map) {
+		this(Mode.valueOf((String) map.get("mode")), (String) map.get("prefix"),
+				map.get("origin") instanceof Number ? ((Number) map.get("origin")).longValue() : 0,
+				map.get("zone") instanceof String ? TimeZone.getTimeZone((String) map.get("zone")) : null,
+				(String) map.get("suffix"));
+	}
+
+	@Override
+	public Map<String, Object> serialize() {
+
+		Map<String, Object> map = new HashMap<>();
+
+		map.put("mode", mode.name());
+		map.put("prefix", prefix);
+		map.put("suffix", suffix);
+		if (mode == Mode.CLOCK)
+			map.put("zone", zone.getID());
+		else
+			map.put("origin", origin);
+
+		return map;
+
+	}
+
+	/**
+	 * Gets the second, or minute for a clock, that is shown at the specified
+	 * time.
+	 */
+	private long unit(long now) {
+		switch (mode) {
+		case COUNTDOWN:
+			// rounded up, so a countdown shows 0:00 only once it ended
+			return Math.max(0, (origin - now + 999) / 1000);
+		case STOPWATCH:
+			return Math.max(0, (now - origin) / 1000);
+		default:
+			return ((now + zone.getOffset(now)) / 60000 % 1440 + 1440) % 1440;
+		}
+	}
+
+	/**
+	 * Returns false; the text only changes when the shown second, or minute
+	 * for a clock, passed, see {@link #refresh()}.
+	 *
+	 * @return (boolean) - false.
+	 */
+	@Override
+	public boolean needsUpdate() {
+		return false;
+	}
+
+	@Override
+	protected int getVariationCount() {
+		return 1;
+	}
+
+	/**
+	 * Builds the text again if the shown second, or minute for a clock,
+	 * passed. Sidebars sharing this timer may render it in parallel, so only
+	 * one of them builds the text, and all of them render it.
+	 */
+	@Override
+	protected synchronized void refresh() {
+
+		long unit = unit(System.currentTimeMillis());
+		if (unit == shownUnit)
+			return;
+
+		shownUnit = unit;
+		buffer.setLength(0);
+		text = format(unit, buffer);
+		markChanged();
+
+	}
+
+	/**
+	 * Builds the text that shows the specified second, or minute for a clock.
+	 */
+	private String format(long unit, StringBuilder buffer) {
+
+		buffer.append(prefix);
+
+		if (mode == Mode.CLOCK)
+			buffer.append(DIGITS[(int) (unit / 60)]).append(':').append(DIGITS[(int) (unit % 60)]);
+		else if (unit < 3600)
+			buffer.append(unit / 60).append(':').append(DIGITS[(int) (unit % 60)]);
+		else
+			buffer.append(unit / 3600).append(':').append(DIGITS[(int) (unit / 60 % 60)]).append(':')
+					.append(DIGITS[(int) (unit % 60)]);
+
+		return buffer.append(suffix).toString();
+
+	}
+
+	@Override
+	protected synchronized String getVariation(int index) {
+		return text;
+	}
+
+	/**
+	 * Sets the time left of a countdown, or the time passed of a stopwatch.
+	 *
+	 * @param millis
+	 *            (long) - the time, in milliseconds
+	 * @return (SidebarTimer) - this SidebarTimer Object, for chaining.
+	 * @throws IllegalStateException
+	 *             if this is a clock.
+	 */
+	public SidebarTimer setTime(long millis) {
+		switch (mode) {
+		case COUNTDOWN:
+			origin = System.currentTimeMillis() + millis;
+			break;
+		case STOPWATCH:
+			origin = System.currentTimeMillis() - millis;
+			break;
+		default:
+			throw new IllegalStateException("Cannot set the time of a clock");
+		}
+		return this;
+	}
+
+	/**
+	 * Checks whether this is a countdown that ended.
+	 *
+	 * @return (boolean) - whether the countdown ended.
+	 */
+	public boolean isFinished() {
+		return mode == Mode.COUNTDOWN && System.currentTimeMillis() >= origin;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Does nothing; timers have no placeholders.
+	 *
+	 * @return (SidebarString) - this SidebarTimer Object, for chaining.
+	 */
+	@Override
+	public SidebarString setPlaceholders(Player forPlayer) {
+		return this;
+	}
+
+	/**
+	 * Gets the current text.
+	 *
+	 * @return (List : String) - a list holding the current text.
+	 */
+	@Override
+	public List<String> getVariations() {
+		long unit = unit(System.currentTimeMillis());
+		return Collections.singletonList(format(unit, new StringBuilder(prefix.length() + 8 + suffix.length())));
+	}
+
+	/**
+	 * Throws on every change of the variations; the text is built from the clock.
+	 */
+	@Override
+	void checkVariationsMutable() {
+		throw new UnsupportedOperationException("Cannot change the variations of a SidebarTimer");
+	}
+
+}
@@ -0,0 +1,363 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Records what a {@link Sidebar} rendered and wrote into a compact,
+ * append-only trace file; see {@link Sidebar#setTrace(SidebarTrace)}. A trace
+ * can be replayed without a server by {@link SidebarReplay}.
+ * <p>
+ * Every opening of a trace file appends a session, which starts with a header
+ * record. Each update is recorded as an update record followed by the texts
+ * of the lines that changed since the last update and the title, prefixes,
+ * suffixes and scores written to the scoreboard. Strings are written once
+ * and referenced by number afterwards, so repeating animations take a few
+ * bytes per frame. The records are:
+ *
+ * <pre>
+ * 'H' version:byte startMillis:long       session header
+ * 'U' nanos:varlong size:varint            update, nanos since the last one
+ * 'X' line:byte text:string                text a line was rendered from
+ * 'T' title:string                         title written
+ * 'P' line:byte prefix:string              team prefix written
+ * 'S' line:byte suffix:string              team suffix written
+ * 'C' line:byte score:varint               score written
+ * 'R' line:byte                            score reset
+ * </pre>
+ *
+ * A string is a varint reference: 0 is followed by a UTF string that is not
+ * remembered, n &gt; 0 refers to the (n-1)th remembered string, which is
+ * followed by its UTF text if it is not known yet. Varints are unsigned LEB128.
+ * Version 1 traces have no score reset records.
+ * <p>
+ * If writing fails, the trace stops recording and logs the error once.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarTrace implements Closeable {
+
+	static final int VERSION = 2;
+
+	/**
+	 * The maximum number of remembered strings per session; strings beyond
+	 * that are written literally.
+	 */
+	static final int MAX_STRINGS = 65536;
+
+	private final File file;
+	private final DataOutputStream out;
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final String[] texts = new String[15];
+	private long lastUpdate = -1;
+	private IOException failure;
+
+	/**
+	 * Opens a trace file for appending, creating it if it does not exist.
+	 *
+	 * @param file
+	 *            (File) - the trace file
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	public SidebarTrace(File file) throws IOException {
+
+		this.file = file;
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+
+		out.writeByte('H');
+		out.writeByte(VERSION);
+		out.writeLong(System.currentTimeMillis());
+
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the error that stopped this trace from recording.
+	 *
+	 * @return (IOException) - the error, or null if the trace is recording.
+	 */
+	public synchronized IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Writes all buffered records to the file.
+	 *
+	 * @throws IOException
+	 *             if writing fails.
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	synchronized void update(int size) {
+
+		if (failure != null)
+			return;
+
+		long now = System.nanoTime();
+		long nanos = lastUpdate < 0 ? 0 : now - lastUpdate;
+		lastUpdate = now;
+
+		try {
+			out.writeByte('U');
+			writeVarLong(nanos);
+			writeVarLong(size);
+		} catch (IOException e) {
+			fail(e);
+		}
+
+	}
+
+	/**
+	 * Records the text of a line if it differs from the text recorded last.
+	 */
+	synchronized void text(int line, String text) {
+		if (text == null || text.equals(texts[line]))
+			return;
+		texts[line] = text;
+		record('X', line, text);
+	}
+
+	synchronized void title(String title) {
+		if (failure != null)
+			return;
+		try {
+			out.writeByte('T');
+			writeString(title);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	synchronized void prefix(int line, String prefix) {
+		record('P', line, prefix);
+	}
+
+	synchronized void suffix(int line, String suffix) {
+		record('S', line, suffix);
+	}
+
+	synchronized void score(int line, int score) {
+		if (failure != null)
+			return;
+		try {
+			out.writeByte('C');
+			out.writeByte(line);
+			writeVarLong(score);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	synchronized void reset(int line) {
+		if (failure != null)
+			return;
+		try {
+			out.writeByte('R');
+			out.writeByte(line);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void record(char type, int line, String text) {
+		if (failure != null)
+			return;
+		try {
+			out.writeByte(type);
+			out.writeByte(line);
+			writeString(text);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void writeString(String text) throws IOException {
+
+		Integer id = strings.get(text);
+		if (id != null) {
+			writeVarLong(id + 1);
+			return;
+		}
+
+		if (strings.size() >= MAX_STRINGS) {
+			writeVarLong(0);
+		} else {
+			id = strings.size();
+			strings.put(text, id);
+			writeVarLong(id + 1);
+		}
+		out.writeUTF(text);
+
+	}
+
+	private void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private void fail(IOException e) {
+		failure = e;
+		SidebarAPI api = SidebarAPI.getInstance();
+		if (api != null)
+			api.getLogger().log(Level.WARNING, "[Sidebar] Stopped recording trace " + file, e);
+	}
+
+	/**
+	 * Reads the records of a trace file one after another.
+	 */
+	static final class Reader implements Closeable {
+
+		private final DataInputStream in;
+		private final List<String> strings = new ArrayList<>();
+
+		/**
+		 * The type of the current record; see {@link SidebarTrace}.
+		 */
+		char type;
+		int line;
+		long value;
+		String text;
+
+		Reader(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		/**
+		 * Reads the next record.
+		 *
+		 * @return (boolean) - false at the end of the file.
+		 * @throws IOException
+		 *             if the file cannot be read or is not a trace.
+		 */
+		boolean next() throws IOException {
+
+			int tag = in.read();
+			if (tag < 0)
+				return false;
+
+			type = (char) tag;
+			text = null;
+
+			try {
+				switch (type) {
+				case 'H':
+					int version = in.readUnsignedByte();
+					if (version < 1 || version > VERSION)
+						throw new IOException("Unsupported trace version " + version);
+					value = in.readLong();
+					strings.clear();
+					break;
+				case 'U':
+					value = readVarLong();
+					line = (int) readVarLong();
+					break;
+				case 'T':
+					text = readString();
+					break;
+				case 'X':
+				case 'P':
+				case 'S':
+					line = in.readUnsignedByte();
+					text = readString();
+					break;
+				case 'C':
+					line = in.readUnsignedByte();
+					value = (int) readVarLong();
+					break;
+				case 'R':
+					line = in.readUnsignedByte();
+					break;
+				default:
+					throw new IOException("Not a trace file, unknown record " + tag);
+				}
+			} catch (EOFException e) {
+				// a record cut off by a crash; ignore it
+				return false;
+			}
+
+			return true;
+
+		}
+
+		private String readString() throws IOException {
+			int id = (int) readVarLong();
+			if (id == 0)
+				return in.readUTF();
+			if (id - 1 < strings.size())
+				return strings.get(id - 1);
+			String text = in.readUTF();
+			strings.add(text);
+			return text;
+		}
+
+		private long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0;; shift += 7) {
+				int b = in.readUnsignedByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return value;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+	}
+
+}
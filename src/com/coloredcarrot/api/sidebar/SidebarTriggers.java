@@ -0,0 +1,247 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Dispatches the Bukkit events that lines {@link SidebarString#updateOn(Class)
+ * update on}. One executor is registered per event class, the first time a
+ * line declares it. When such an event fires, the lines that update on it
+ * are invalidated in the sidebars of the player the event is about, or in all
+ * sidebars if it is not about a player. On the next tick, those sidebars
+ * render only their invalidated lines, once, no matter how many of their
+ * events fired meanwhile.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+final class SidebarTriggers {
+
+	private static final Set<Class<? extends Event>> declared = Collections
+			.newSetFromMap(new ConcurrentHashMap<Class<? extends Event>, Boolean>());
+	private static final Set<Class<? extends Event>> registered = Collections
+			.newSetFromMap(new ConcurrentHashMap<Class<? extends Event>, Boolean>());
+
+	/**
+	 * The updates queued by events of the current tick. Guarded by itself.
+	 */
+	private static final Set<Runnable> queued = new LinkedHashSet<>();
+	private static volatile Plugin plugin;
+
+	private static final Listener LISTENER = new Listener() {
+	};
+
+	private static final EventExecutor EXECUTOR = new EventExecutor() {
+		@Override
+		public void execute(Listener listener, final Event event) {
+			if (!event.isAsynchronous()) {
+				dispatch(event);
+				return;
+			}
+			Plugin plugin = SidebarTriggers.plugin;
+			if (plugin != null)
+				plugin.getServer().getScheduler().runTask(plugin, new Runnable() {
+					@Override
+					public void run() {
+						dispatch(event);
+					}
+				});
+		}
+	};
+
+	private static final Runnable FLUSH = new Runnable() {
+		@Override
+		public void run() {
+			List<Runnable> updates;
+			synchronized (queued) {
+				updates = new ArrayList<>(queued);
+				queued.clear();
+			}
+			for (Runnable update : updates)
+				update.run();
+		}
+	};
+
+	private SidebarTriggers() {
+	}
+
+	/**
+	 * Makes sure events of a class are dispatched. If SidebarAPI is not
+	 * enabled yet, the executor is registered once it is.
+	 */
+	static void declare(Class<? extends Event> type) {
+		if (!declared.add(type))
+			return;
+		Plugin plugin = SidebarTriggers.plugin;
+		if (plugin != null)
+			register(type, plugin);
+	}
+
+	static void start(Plugin plugin) {
+		SidebarTriggers.plugin = plugin;
+		for (Class<? extends Event> type : declared)
+			register(type, plugin);
+	}
+
+	/**
+	 * Forgets the registrations; Bukkit unregisters the executors of a plugin
+	 * when it is disabled.
+	 */
+	static void stop() {
+		plugin = null;
+		registered.clear();
+		synchronized (queued) {
+			queued.clear();
+		}
+	}
+
+	/**
+	 * Registers the executor for an event class, unless it is registered
+	 * already. A class that cannot be registered is logged and tried again
+	 * the next time SidebarAPI is enabled.
+	 */
+	private static synchronized void register(Class<? extends Event> type, Plugin plugin) {
+
+		if (registered.contains(type))
+			return;
+
+		try {
+			plugin.getServer().getPluginManager().registerEvent(type, LISTENER, EventPriority.MONITOR, EXECUTOR,
+					plugin, true);
+			registered.add(type);
+		} catch (RuntimeException e) {
+			plugin.getLogger().log(Level.WARNING, "[Sidebar] Could not listen to " + type.getName(), e);
+		}
+
+	}
+
+	/**
+	 * Checks whether an event class has its own handler list, which Bukkit
+	 * requires to register an executor for it.
+	 */
+	static boolean hasHandlerList(Class<? extends Event> type) {
+		try {
+			Method method = type.getDeclaredMethod("getHandlerList");
+			return Modifier.isStatic(method.getModifiers());
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Finds the entries that update on an event, and evicts the cached values
+	 * of their placeholders for the player they are resolved for. The entries
+	 * themselves are not touched, since other sidebars showing them may not
+	 * have to update.
+	 *
+	 * @return (int) - the lines of the entries, see {@link #line(int)}; 0 if
+	 *         no entry updates on the event.
+	 */
+	static int invalidate(SidebarString[] entries, Event event, Player placeholderPlayer) {
+		int lines = 0;
+		for (int i = 0; i < entries.length; i++)
+			if (entries[i].isUpdatedOn(event)) {
+				if (placeholderPlayer != null)
+					entries[i].evictPlaceholders(placeholderPlayer.getUniqueId());
+				lines |= line(i);
+			}
+		return lines;
+	}
+
+	/**
+	 * Gets the bit of a line in a bit mask of lines. Sidebars show at most 15
+	 * lines, so the entries after the 31st share the last bit.
+	 */
+	static int line(int index) {
+		return 1 << Math.min(index, Integer.SIZE - 1);
+	}
+
+	/**
+	 * Queues an update for the next tick. Queuing the same update again
+	 * before then has no effect.
+	 */
+	static void queue(Runnable update) {
+		Plugin plugin = SidebarTriggers.plugin;
+		if (plugin == null)
+			return;
+		boolean first;
+		synchronized (queued) {
+			first = queued.isEmpty();
+			queued.add(update);
+		}
+		if (first)
+			plugin.getServer().getScheduler().runTask(plugin, FLUSH);
+	}
+
+	private static void dispatch(Event event) {
+
+		UUID player = playerOf(event);
+
+		for (Sidebars sidebar : new ArrayList<>(SidebarAPI.getRegisteredSidebars()))
+			if (sidebar instanceof Sidebar)
+				((Sidebar) sidebar).trigger(event, player);
+			else if (sidebar instanceof LongSidebar)
+				((LongSidebar) sidebar).trigger(event, player);
+
+		SidebarCompositor.trigger(event, player);
+
+	}
+
+	/**
+	 * Gets the player an event is about, or null if it is not about a
+	 * player.
+	 */
+	private static UUID playerOf(Event event) {
+		if (event instanceof PlayerEvent)
+			return ((PlayerEvent) event).getPlayer().getUniqueId();
+		if (event instanceof EntityEvent) {
+			Entity entity = ((EntityEvent) event).getEntity();
+			return entity instanceof Player ? entity.getUniqueId() : null;
+		}
+		return null;
+	}
+
+}
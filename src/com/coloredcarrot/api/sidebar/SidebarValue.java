@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Supplier;
+
+/**
+ * An observable value that a {@link SidebarBoundString} shows. Every value
+ * has a version that changes whenever the value does, so a bound line only
+ * has to compare versions to know whether it must be rendered again; as long
+ * as no value changes, it costs next to nothing. Values may be changed from
+ * any thread.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ * @param <T>
+ *            the type of the value
+ */
+public abstract class SidebarValue<T> {
+
+	/**
+	 * Creates a value that is set by its producer, e.g. the kills of a player
+	 * that a listener sets on every kill.
+	 *
+	 * @param value
+	 *            (T) - the initial value
+	 * @return (Settable : T) - the value.
+	 */
+	public static <T> Settable<T> of(T value) {
+		return new Settable<>(value);
+	}
+
+	/**
+	 * Creates a value that is taken from a supplier, but only after its
+	 * version counter changed. The producer increments the counter whenever
+	 * the value the supplier returns changes.
+	 *
+	 * @param supplier
+	 *            (Supplier : T) - supplies the value
+	 * @param version
+	 *            (AtomicLong) - the version counter
+	 * @return (SidebarValue : T) - the value.
+	 */
+	public static <T> SidebarValue<T> of(final Supplier<? extends T> supplier, final AtomicLong version) {
+
+		if (supplier == null || version == null)
+			throw new IllegalArgumentException("supplier and version cannot be null!");
+
+		return new SidebarValue<T>() {
+
+			@Override
+			public T get() {
+				return supplier.get();
+			}
+
+			@Override
+			public long getVersion() {
+				return version.get();
+			}
+
+		};
+
+	}
+
+	/**
+	 * Gets the current value.
+	 *
+	 * @return (T) - the value.
+	 */
+	public abstract T get();
+
+	/**
+	 * Gets the version of the value. It must change whenever the value
+	 * changes, and should be cheap to call; it is checked on every update of
+	 * every line the value is bound to.
+	 *
+	 * @return (long) - the version.
+	 */
+	public abstract long getVersion();
+
+	/**
+	 * A value that is set by its producer.
+	 *
+	 * @param <T>
+	 *            the type of the value
+	 */
+	public static final class Settable<T> extends SidebarValue<T> {
+
+		private volatile T value;
+		private volatile long version = 0;
+
+		private Settable(T value) {
+			this.value = value;
+		}
+
+		@Override
+		public T get() {
+			return value;
+		}
+
+		@Override
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Sets the value. Setting a value equal to the current one does not
+		 * change the version.
+		 *
+		 * @param value
+		 *            (T) - the value
+		 * @return (Settable : T) - this Settable Object, for chaining.
+		 */
+		public synchronized Settable<T> set(T value) {
+			if (!Objects.equals(this.value, value)) {
+				this.value = value;
+				version++;
+			}
+			return this;
+		}
+
+	}
+
+}
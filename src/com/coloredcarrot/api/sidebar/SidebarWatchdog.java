@@ -0,0 +1,309 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar;
+
+import java.util.logging.Logger;
+
+/**
+ * Watches how long the scheduled sidebar updates take per tick and degrades
+ * them while they exceed a budget, so sidebars do not make a lagging server
+ * lag even more. The time per tick is measured by the
+ * {@link SidebarScheduler} and smoothed over a few ticks.
+ * <p>
+ * If the smoothed time stays over the budget for {@link #ESCALATE_TICKS}
+ * ticks, the watchdog goes one {@link Level} up. It only goes one level down
+ * again after the time stayed under half of the budget for
+ * {@link #RESTORE_TICKS} ticks, so it does not flap between levels. Every
+ * change of level is logged. Only updates scheduled with
+ * {@code setUpdateDelay} are affected; calling {@code update()} directly
+ * always updates.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarWatchdog {
+
+	/**
+	 * How long the time per tick must stay over the budget before degrading
+	 * further.
+	 */
+	public static final int ESCALATE_TICKS = 20;
+
+	/**
+	 * How long the time per tick must stay under half of the budget before
+	 * restoring one level.
+	 */
+	public static final int RESTORE_TICKS = 200;
+
+	/**
+	 * How much sidebars are degraded. Every level includes the degradations
+	 * of the levels below it.
+	 */
+	public enum Level {
+
+		/**
+		 * Everything updates at full rate.
+		 */
+		NORMAL(1, false, false),
+		/**
+		 * Sidebars none of whose viewers are online are not updated.
+		 */
+		PAUSE_INVISIBLE(1, true, false),
+		/**
+		 * Sidebars only run every second scheduled update, and lines with a
+		 * negative {@link SidebarString#getPriority() priority} only advance
+		 * every fourth update.
+		 */
+		REDUCED(2, true, true),
+		/**
+		 * Sidebars only run every fourth scheduled update.
+		 */
+		MINIMAL(4, true, true);
+
+		private final int frameDivisor;
+		private final boolean pauseInvisible, delayLines;
+
+		Level(int frameDivisor, boolean pauseInvisible, boolean delayLines) {
+			this.frameDivisor = frameDivisor;
+			this.pauseInvisible = pauseInvisible;
+			this.delayLines = delayLines;
+		}
+
+		/**
+		 * Gets of how many scheduled updates only one runs.
+		 *
+		 * @return (int) - the divisor of the frame rate.
+		 */
+		public int getFrameDivisor() {
+			return frameDivisor;
+		}
+
+		public boolean isPausingInvisible() {
+			return pauseInvisible;
+		}
+
+		public boolean isDelayingLines() {
+			return delayLines;
+		}
+
+	}
+
+	private static boolean enabled = true;
+	private static long budgetNanos = 5000000;
+	private static volatile Level level = Level.NORMAL;
+
+	private static double averageNanos = 0;
+	private static int overTicks = 0, underTicks = 0;
+
+	private static long escalations = 0, restorations = 0, skippedUpdates = 0;
+
+	private SidebarWatchdog() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets whether the watchdog degrades sidebars. Disabling it restores full
+	 * fidelity immediately.
+	 *
+	 * @param enabled
+	 *            (boolean) - whether to enable the watchdog
+	 */
+	public static void setEnabled(boolean enabled) {
+		SidebarWatchdog.enabled = enabled;
+		if (!enabled)
+			setLevel(Level.NORMAL, "watchdog disabled");
+	}
+
+	/**
+	 * Gets how much time the scheduled sidebar updates may take per tick.
+	 *
+	 * @return (double) - the budget in milliseconds.
+	 */
+	public static double getBudgetMillis() {
+		return budgetNanos / 1e6;
+	}
+
+	/**
+	 * Sets how much time the scheduled sidebar updates may take per tick.
+	 *
+	 * @param millis
+	 *            (double) - the budget in milliseconds, must be &gt; 0
+	 */
+	public static void setBudgetMillis(double millis) {
+		if (millis <= 0)
+			throw new IllegalArgumentException("millis cannot be smaller than or equal to 0!");
+		budgetNanos = (long) (millis * 1e6);
+	}
+
+	/**
+	 * Gets the current level of degradation.
+	 *
+	 * @return (Level) - the level.
+	 */
+	public static Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Gets the smoothed time the scheduled sidebar updates took per tick.
+	 *
+	 * @return (double) - the time in milliseconds.
+	 */
+	public static double getAverageMillis() {
+		return averageNanos / 1e6;
+	}
+
+	/**
+	 * Gets how many times the watchdog degraded sidebars further.
+	 *
+	 * @return (long) - the number of escalations.
+	 */
+	public static long getEscalations() {
+		return escalations;
+	}
+
+	/**
+	 * Gets how many times the watchdog restored one level.
+	 *
+	 * @return (long) - the number of restorations.
+	 */
+	public static long getRestorations() {
+		return restorations;
+	}
+
+	/**
+	 * Gets how many scheduled updates were skipped because of degradation.
+	 *
+	 * @return (long) - the number of skipped updates.
+	 */
+	public static long getSkippedUpdates() {
+		return skippedUpdates;
+	}
+
+	/**
+	 * Called by the {@link SidebarScheduler} once per tick with the time the
+	 * updates of the last tick took.
+	 */
+	static void onTick(long nanos) {
+
+		if (!enabled)
+			return;
+
+		averageNanos += (nanos - averageNanos) * 0.2;
+
+		if (averageNanos > budgetNanos) {
+			underTicks = 0;
+			if (++overTicks >= ESCALATE_TICKS && level.ordinal() < Level.values().length - 1) {
+				overTicks = 0;
+				escalations++;
+				setLevel(Level.values()[level.ordinal() + 1], "over budget");
+			}
+		} else if (averageNanos < budgetNanos / 2) {
+			overTicks = 0;
+			if (++underTicks >= RESTORE_TICKS && level != Level.NORMAL) {
+				underTicks = 0;
+				restorations++;
+				setLevel(Level.values()[level.ordinal() - 1], "under budget");
+			}
+		} else {
+			overTicks = 0;
+			underTicks = 0;
+		}
+
+	}
+
+	/**
+	 * Decides whether a scheduled update should be skipped. The visibility
+	 * of the sidebar is only checked while invisible sidebars are paused.
+	 *
+	 * @param run
+	 *            (int) - how many times the update task ran before
+	 * @param update
+	 *            (Update) - the update task
+	 * @return (boolean) - true to skip the update.
+	 */
+	private static boolean skip(int run, Update update) {
+		Level level = SidebarWatchdog.level;
+		if (level == Level.NORMAL)
+			return false;
+		if (run % level.frameDivisor != 0 || (level.pauseInvisible && !update.isVisible())) {
+			skippedUpdates++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A scheduled sidebar update, which runs unless the watchdog skips it.
+	 */
+	abstract static class Update implements Runnable {
+
+		private int runs = 0;
+
+		@Override
+		public final void run() {
+			if (!skip(runs++, this))
+				update();
+		}
+
+		/**
+		 * Checks whether the sidebar may be seen by anyone.
+		 */
+		abstract boolean isVisible();
+
+		abstract void update();
+
+	}
+
+	/**
+	 * Decides whether a line with the given priority is held in this frame.
+	 * May be called off the server thread.
+	 */
+	static boolean delay(int priority, int frame) {
+		return priority < 0 && level.delayLines && frame % 4 != 0;
+	}
+
+	private static void setLevel(Level to, String reason) {
+
+		if (level == to)
+			return;
+
+		Level from = level;
+		level = to;
+
+		SidebarAPI api = SidebarAPI.getInstance();
+		if (api != null) {
+			Logger logger = api.getLogger();
+			logger.info("[Sidebar] Updates took " + String.format("%.2f", getAverageMillis()) + " ms per tick (budget "
+					+ String.format("%.2f", getBudgetMillis()) + " ms), " + reason + ": " + from + " -> " + to);
+		}
+
+	}
+
+}
@@ -1,40 +1,65 @@
-package com.coloredcarrot.api.sidebar;
-
-import java.util.List;
-
-/*
- * MIT License
- *
- * Copyright (c) 2018 fren_gor
- *
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- *
- * The above copyright notice and this permission notice shall be included in all
- * copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
- * SOFTWARE.
- */
-
-/**
- * Interface that represent a sidebar
- * @author fren_gor
- *
- */
-public interface Sidebars {
-
-	public abstract String getTitle();
-	
-	public abstract List<SidebarString> getEntries();
-
-}
+package com.coloredcarrot.api.sidebar;
+
+import java.util.List;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 fren_gor
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Interface that represent a sidebar
+ * @author fren_gor
+ *
+ */
+public interface Sidebars {
+
+	public abstract String getTitle();
+	
+	/**
+	 * Gets a list of the entries of this sidebar, backed by this sidebar.
+	 *
+	 * @return (List : SidebarString) - all entries.
+	 */
+	public abstract List<SidebarString> getEntries();
+
+	/**
+	 * Adds a listener that is notified of the updates of this sidebar.
+	 * Sidebars without listeners do no extra work for them.
+	 *
+	 * @param listener
+	 *            (SidebarListener) - the listener
+	 * @since 3.1
+	 */
+	public abstract void addListener(SidebarListener listener);
+
+	/**
+	 * Removes a listener.
+	 *
+	 * @param listener
+	 *            (SidebarListener) - the listener
+	 * @return (boolean) - whether the listener was registered.
+	 * @since 3.1
+	 */
+	public abstract boolean removeListener(SidebarListener listener);
+
+}
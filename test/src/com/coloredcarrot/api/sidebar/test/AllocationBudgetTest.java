@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.coloredcarrot.api.sidebar.test;
+
+import org.json.simple.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checks that the steady-state paths of the API allocate no more than their
+ * budgets, measured by {@link SidebarSimulator#measureAllocations(int)}.
+ * Every budget is set just above what the path allocates, so bringing back
+ * a single {@code ChatColor.values()} or {@code String.split} per line or per
+ * call exceeds it. Run it with
+ *
+ * <pre>
+ * java -cp SidebarAPI.jar:SidebarAPITest.jar:spigot.jar com.coloredcarrot.api.sidebar.test.AllocationBudgetTest [iterations]
+ * </pre>
+ *
+ * It exits with status 1 if a path exceeds its budget.
+ */
+public class AllocationBudgetTest
+{
+
+    /**
+     * The bytes every path may allocate per call. Sidebar.update with static
+     * lines and with timers and LongSidebar.update with static lines
+     * allocate nothing; the animated lines build about 430 bytes of text per
+     * update; SidebarString.getNext allocates about 16 bytes.
+     */
+    static final Map<String, Long> BUDGETS = new LinkedHashMap<>();
+
+    static
+    {
+        BUDGETS.put("Sidebar.update", 16L);
+        BUDGETS.put("Sidebar.update (animated)", 512L);
+        BUDGETS.put("Sidebar.update (timers)", 16L);
+        BUDGETS.put("LongSidebar.update", 16L);
+        BUDGETS.put("SidebarString.getNext", 32L);
+    }
+
+    public static void main(String[] args)
+    {
+
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        Map<?, ?> paths = (Map<?, ?>) new SidebarSimulator().measureAllocations(iterations).get("paths");
+
+        boolean passed = true;
+        for (Map.Entry<String, Long> budget : BUDGETS.entrySet())
+        {
+            Object bytesPerCall = paths.get(budget.getKey());
+            boolean ok = bytesPerCall instanceof Number && ((Number) bytesPerCall).longValue() <= budget.getValue();
+            System.out.println((ok ? "ok   " : "FAIL ") + budget.getKey() + ": " + bytesPerCall
+                    + " bytes per call, budget " + budget.getValue());
+            passed &= ok;
+        }
+
+        if (!paths.keySet().equals(BUDGETS.keySet()))
+        {
+            System.out.println("FAIL paths without a budget: " + JSONObject.toJSONString(paths));
+            passed = false;
+        }
+
+        System.exit(passed ? 0 : 1);
+
+    }
+
+}
@@ -0,0 +1,985 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 ColoredCarrot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.coloredcarrot.api.sidebar.test;
+
+import com.coloredcarrot.api.sidebar.LongSidebar;
+import com.coloredcarrot.api.sidebar.Sidebar;
+import com.coloredcarrot.api.sidebar.SidebarAnimation;
+import com.coloredcarrot.api.sidebar.SidebarMarquee;
+import com.coloredcarrot.api.sidebar.SidebarProgressBar;
+import com.coloredcarrot.api.sidebar.SidebarRenderer;
+import com.coloredcarrot.api.sidebar.SidebarString;
+import com.coloredcarrot.api.sidebar.SidebarTimer;
+import com.coloredcarrot.api.sidebar.SidebarValue;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Score;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.ScoreboardManager;
+import org.bukkit.scoreboard.Team;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Simulates N players with M sidebars each without a server, to find out how
+ * far the API scales. A stand-in server is installed with
+ * {@link Bukkit#setServer(Server)}: its scoreboards only count the writes
+ * that would be sent to the players, and its scheduler runs the tasks of a
+ * virtual clock that is advanced tick by tick as fast as possible. The
+ * sidebars get a realistic mix of static lines, animations, scrolling text,
+ * held banners and placeholder-like lines whose values change every few
+ * seconds. (PlaceholderAPI itself needs a server, so placeholder lines are
+ * emulated.)
+ * <p>
+ * For every tick, the CPU time of the server thread, the bytes it allocated
+ * and the scoreboard writes are measured; the heap retained by the sidebars
+ * is measured once after setting up and once at the end. The report is JSON,
+ * so runs can be compared across versions. Run it with
+ *
+ * <pre>
+ * java -cp SidebarAPI.jar:SidebarAPITest.jar:spigot.jar com.coloredcarrot.api.sidebar.test.SidebarSimulator
+ *      [--players n] [--sidebars n] [--long-sidebars n] [--lines n] [--delay ticks]
+ *      [--ticks n] [--warmup n] [--parallel] [--out file]
+ * </pre>
+ * <p>
+ * The allocations of the steady-state paths are measured by
+ * {@link #measureAllocations(int)}.
+ * <p>
+ * The simulator cannot run on a real server, since it replaces the server;
+ * this is why it is part of the test module and not of the API.
+ *
+ * @author ColoredCarrot
+ * @since 3.1
+ */
+public final class SidebarSimulator
+{
+
+    private int players = 300, sidebars = 1, longSidebars = 0, lines = 12, delay = 2;
+    private int ticks = 1200, warmup = 200;
+    private boolean parallel = false;
+
+    /**
+     * The rounds in which {@link #measureAllocations(int)} measures a path.
+     */
+    private static final int ALLOCATION_ROUNDS = 5;
+
+    private final VirtualServer server = new VirtualServer();
+    private boolean installed = false;
+
+    public static void main(String[] args) throws IOException
+    {
+
+        SidebarSimulator simulator = new SidebarSimulator();
+        File out = null;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+            case "--players":
+                simulator.setPlayers(Integer.parseInt(args[++i]));
+                break;
+            case "--sidebars":
+                simulator.setSidebars(Integer.parseInt(args[++i]));
+                break;
+            case "--long-sidebars":
+                simulator.setLongSidebars(Integer.parseInt(args[++i]));
+                break;
+            case "--lines":
+                simulator.setLines(Integer.parseInt(args[++i]));
+                break;
+            case "--delay":
+                simulator.setDelay(Integer.parseInt(args[++i]));
+                break;
+            case "--ticks":
+                simulator.setTicks(Integer.parseInt(args[++i]));
+                break;
+            case "--warmup":
+                simulator.setWarmup(Integer.parseInt(args[++i]));
+                break;
+            case "--parallel":
+                simulator.setParallel(true);
+                break;
+            case "--out":
+                out = new File(args[++i]);
+                break;
+            default:
+                System.err.println("Unknown option " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        String report = simulator.run().toJSONString();
+
+        if (out == null)
+        {
+            System.out.println(report);
+            return;
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8))
+        {
+            writer.write(report);
+        }
+
+    }
+
+    /**
+     * Sets the number of simulated players; every player has their own
+     * sidebars.
+     *
+     * @param players
+     *            (int) - the number of players
+     * @return (SidebarSimulator) - this SidebarSimulator Object, for chaining.
+     */
+    public SidebarSimulator setPlayers(int players)
+    {
+        this.players = checkPositive(players, "players");
+        return this;
+    }
+
+    public SidebarSimulator setSidebars(int sidebars)
+    {
+        this.sidebars = checkPositive(sidebars + 1, "sidebars") - 1;
+        return this;
+    }
+
+    public SidebarSimulator setLongSidebars(int longSidebars)
+    {
+        this.longSidebars = checkPositive(longSidebars + 1, "longSidebars") - 1;
+        return this;
+    }
+
+    /**
+     * Sets the number of lines of every sidebar.
+     *
+     * @param lines
+     *            (int) - the lines, between 1 and 15
+     * @return (SidebarSimulator) - this SidebarSimulator Object, for chaining.
+     */
+    public SidebarSimulator setLines(int lines)
+    {
+        this.lines = Math.min(15, checkPositive(lines, "lines"));
+        return this;
+    }
+
+    public SidebarSimulator setDelay(int delay)
+    {
+        this.delay = checkPositive(delay, "delay");
+        return this;
+    }
+
+    /**
+     * Sets the number of measured ticks.
+     *
+     * @param ticks
+     *            (int) - the ticks
+     * @return (SidebarSimulator) - this SidebarSimulator Object, for chaining.
+     */
+    public SidebarSimulator setTicks(int ticks)
+    {
+        this.ticks = checkPositive(ticks, "ticks");
+        return this;
+    }
+
+    /**
+     * Sets the number of ticks run before measuring, so that the JIT compiler
+     * and the caches are warmed up.
+     *
+     * @param warmup
+     *            (int) - the ticks
+     * @return (SidebarSimulator) - this SidebarSimulator Object, for chaining.
+     */
+    public SidebarSimulator setWarmup(int warmup)
+    {
+        this.warmup = checkPositive(warmup + 1, "warmup") - 1;
+        return this;
+    }
+
+    public SidebarSimulator setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+        return this;
+    }
+
+    private static int checkPositive(int value, String name)
+    {
+        if (value <= 0)
+            throw new IllegalArgumentException(name + " is out of range!");
+        return value;
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @return (JSONObject) - the report.
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject run()
+    {
+
+        install();
+        SidebarRenderer.setParallel(parallel);
+
+        long heapBaseline = usedHeap();
+
+        List<Object> created = new ArrayList<>();
+        for (int p = 0; p < players; p++)
+        {
+            Player player = server.join("Player" + p);
+            for (int s = 0; s < sidebars; s++)
+                created.add(new Sidebar(ChatColor.GOLD + "" + ChatColor.BOLD + "EXAMPLE", server.plugin, delay,
+                        entries(p * 31 + s)).showTo(player));
+            for (int s = 0; s < longSidebars; s++)
+                created.add(new LongSidebar(ChatColor.GOLD + "" + ChatColor.BOLD + "EXAMPLE", server.plugin, delay,
+                        entries(p * 31 + sidebars + s)).showTo(player));
+        }
+
+        long heapAfterSetup = usedHeap();
+
+        for (int t = 0; t < warmup; t++)
+            server.tick();
+
+        Probe probe = new Probe();
+        long[] cpu = new long[ticks], wall = new long[ticks], allocated = new long[ticks], writes = new long[ticks];
+        for (int t = 0; t < ticks; t++)
+        {
+            long cpuStart = probe.cpuTime(), allocatedStart = probe.allocatedBytes(),
+                    writesStart = server.writes, wallStart = System.nanoTime();
+            server.tick();
+            wall[t] = System.nanoTime() - wallStart;
+            cpu[t] = probe.cpuTime() - cpuStart;
+            allocated[t] = probe.allocatedBytes() - allocatedStart;
+            writes[t] = server.writes - writesStart;
+        }
+
+        long heapEnd = usedHeap();
+        SidebarRenderer.shutdown();
+
+        JSONObject config = new JSONObject();
+        config.put("players", players);
+        config.put("sidebars", sidebars);
+        config.put("longSidebars", longSidebars);
+        config.put("lines", lines);
+        config.put("delay", delay);
+        config.put("ticks", ticks);
+        config.put("warmup", warmup);
+        config.put("parallel", parallel);
+
+        JSONObject heap = new JSONObject();
+        heap.put("baselineBytes", heapBaseline);
+        heap.put("afterSetupBytes", heapAfterSetup);
+        heap.put("endBytes", heapEnd);
+        heap.put("retainedBytes", heapEnd - heapBaseline);
+        heap.put("retainedBytesPerSidebar", (heapEnd - heapBaseline) / Math.max(1, created.size()));
+
+        JSONObject summary = new JSONObject();
+        summary.put("cpuNanos", summarize(cpu));
+        summary.put("wallNanos", summarize(wall));
+        summary.put("allocatedBytes", probe.measuresAllocations() ? summarize(allocated) : null);
+        summary.put("writes", summarize(writes));
+
+        JSONObject perTick = new JSONObject();
+        perTick.put("cpuNanos", toArray(cpu));
+        perTick.put("allocatedBytes", probe.measuresAllocations() ? toArray(allocated) : null);
+        perTick.put("writes", toArray(writes));
+
+        JSONObject report = new JSONObject();
+        report.put("apiVersion", apiVersion());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("timestamp", System.currentTimeMillis());
+        report.put("config", config);
+        report.put("summary", summary);
+        report.put("heap", heap);
+        report.put("perTick", perTick);
+
+        // keep the sidebars reachable until the heap has been measured
+        created.clear();
+
+        return report;
+
+    }
+
+    /**
+     * Measures how many bytes the steady-state paths allocate per call: a
+     * Sidebar with static, animated and timer lines, a LongSidebar and
+     * {@link SidebarString#getNext()}. Every path is run for the given number
+     * of iterations before measuring, so the JIT compiler has a chance to
+     * remove allocations that do not escape, and is then measured in several
+     * rounds of as many calls. The fewest bytes of a round are reported,
+     * since a round may still run code that is being compiled. The bytes
+     * include what the stand-in server allocates for its own calls, about 24
+     * bytes per scoreboard call with arguments. Only works on JVMs that can
+     * measure the allocations of a thread.
+     *
+     * @param iterations
+     *            (int) - the calls per round
+     * @return (JSONObject) - the report; "paths" maps every path to the bytes
+     *         it allocated per call.
+     */
+    @SuppressWarnings("unchecked")
+    public JSONObject measureAllocations(int iterations)
+    {
+
+        checkPositive(iterations, "iterations");
+        install();
+        SidebarRenderer.setParallel(false);
+
+        Probe probe = new Probe();
+        if (!probe.measuresAllocations())
+            throw new UnsupportedOperationException("This JVM cannot measure allocations!");
+
+        final Player player = server.join("AllocationCheck");
+
+        SidebarString[] plain = new SidebarString[lines];
+        for (int i = 0; i < lines; i++)
+            plain[i] = new SidebarString("&7Line &f" + i);
+
+        final Sidebar sidebar = new Sidebar("&6&lEXAMPLE", server.plugin, 20, plain).showTo(player);
+        final Sidebar animated = new Sidebar("&6&lEXAMPLE", server.plugin, 20, entries(0)).showTo(player);
+        final LongSidebar longSidebar = new LongSidebar("&6&lEXAMPLE", server.plugin, 20, plain.clone())
+                .showTo(player);
+        final Sidebar timers = new Sidebar("&6&lEXAMPLE", server.plugin, 20,
+                SidebarTimer.countdown("&7Ends in &f", 15 * 60 * 1000, ""), SidebarTimer.stopwatch("&7Playing ", ""),
+                new SidebarProgressBar("&7", 10, '|', "&a", "&8", "", SidebarValue.of(0.5), 1)).showTo(player);
+        final SidebarString[] strings = entries(1);
+
+        Map<String, Runnable> paths = new LinkedHashMap<>();
+        paths.put("Sidebar.update", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                sidebar.update();
+            }
+        });
+        paths.put("Sidebar.update (animated)", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                animated.update();
+            }
+        });
+        paths.put("LongSidebar.update", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                longSidebar.update();
+            }
+        });
+        paths.put("Sidebar.update (timers)", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                timers.update();
+            }
+        });
+        paths.put("SidebarString.getNext", new Runnable()
+        {
+            private int next = 0;
+
+            @Override
+            public void run()
+            {
+                strings[next++ % strings.length].getNext();
+            }
+        });
+
+        JSONObject results = new JSONObject();
+
+        for (Map.Entry<String, Runnable> path : paths.entrySet())
+        {
+
+            Runnable runnable = path.getValue();
+            for (int i = 0; i < iterations; i++)
+                runnable.run();
+
+            long bytesPerCall = Long.MAX_VALUE;
+            for (int round = 0; round < ALLOCATION_ROUNDS; round++)
+            {
+                long start = probe.allocatedBytes();
+                for (int i = 0; i < iterations; i++)
+                    runnable.run();
+                bytesPerCall = Math.min(bytesPerCall, (probe.allocatedBytes() - start) / iterations);
+            }
+
+            results.put(path.getKey(), bytesPerCall);
+
+        }
+
+        sidebar.hideFrom(player);
+        animated.hideFrom(player);
+        longSidebar.hideFrom(player);
+        timers.hideFrom(player);
+
+        JSONObject report = new JSONObject();
+        report.put("apiVersion", apiVersion());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("iterations", iterations);
+        report.put("paths", results);
+        return report;
+
+    }
+
+    private void install()
+    {
+        if (!installed)
+        {
+            Bukkit.setServer(server.proxy);
+            installed = true;
+        }
+    }
+
+    /**
+     * Creates the entries of one sidebar: a mix of the line types used by
+     * typical servers.
+     */
+    private SidebarString[] entries(int seed)
+    {
+
+        SidebarString[] all = {
+                new SidebarString("&7&m--------------"),
+                SidebarAnimation.gradientSweep("PLAY.EXAMPLE.NET", ChatColor.AQUA, ChatColor.WHITE, 3)
+                        .toSidebarString(),
+                new SidebarString(" "),
+                placeholder("&eCoins: &f", seed, 100, 10000),
+                placeholder("&ePing: &a", seed, 40, 300),
+                new SidebarString(2, "&aOnline: &f" + (seed % 300), "&2Online: &f" + (seed % 300)),
+                new SidebarMarquee("&fNews: &7The summer event starts this weekend, &cdon't miss it! &7", "&8[",
+                        "&8]", 16),
+                new SidebarString().addVariation(60, "&6Event soon!").addVariation(10, "&e&lEvent soon!"),
+                SidebarAnimation.typewriter("&bWelcome back!", "_", 40).toSidebarString(),
+                SidebarAnimation.pulse("&lKOTH", ChatColor.DARK_RED, ChatColor.RED, ChatColor.GOLD)
+                        .toSidebarString(2),
+                new SidebarString("&7Rank: &fMember"),
+                placeholder("&7Kills: &f", seed, 400, 500),
+                new SidebarString("  "),
+                SidebarAnimation.colorCycle("www.example.net", ChatColor.YELLOW, ChatColor.GOLD).toSidebarString(10),
+                new SidebarString("&7&m-------------- ") };
+
+        return Arrays.copyOf(all, lines);
+
+    }
+
+    /**
+     * Emulates a line with a placeholder whose value changes every period
+     * ticks.
+     */
+    private SidebarString placeholder(final String label, final int seed, final int period, final int range)
+    {
+        return new SidebarString()
+        {
+
+            private long value = -1;
+            private String text;
+
+            @Override
+            protected void refresh()
+            {
+                long value = (seed * 7919L + server.tick / period) % range;
+                if (value != this.value)
+                {
+                    this.value = value;
+                    text = label + value;
+                    markChanged();
+                }
+            }
+
+            @Override
+            protected int getVariationCount()
+            {
+                return 1;
+            }
+
+            @Override
+            protected String getVariation(int index)
+            {
+                return text;
+            }
+
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject summarize(long[] values)
+    {
+
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        long sum = 0;
+        for (long value : values)
+            sum += value;
+
+        JSONObject summary = new JSONObject();
+        summary.put("mean", sum / (double) values.length);
+        summary.put("p50", sorted[sorted.length / 2]);
+        summary.put("p95", sorted[(int) (sorted.length * 0.95)]);
+        summary.put("p99", sorted[(int) (sorted.length * 0.99)]);
+        summary.put("max", sorted[sorted.length - 1]);
+        summary.put("total", sum);
+        return summary;
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray toArray(long[] values)
+    {
+        JSONArray array = new JSONArray();
+        for (long value : values)
+            array.add(value);
+        return array;
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String apiVersion()
+    {
+        try (InputStream in = SidebarSimulator.class.getResourceAsStream("/plugin.yml"))
+        {
+            if (in == null)
+                return null;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line; (line = reader.readLine()) != null;)
+                if (line.startsWith("version:"))
+                    return line.substring(8).trim();
+        }
+        catch (IOException ignored)
+        {
+        }
+        return null;
+    }
+
+    /**
+     * Measures the CPU time and the allocated bytes of the current thread.
+     * The allocated bytes are only available on HotSpot-based JVMs.
+     */
+    static final class Probe
+    {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final long thread = Thread.currentThread().getId();
+        private final Method allocatedBytes;
+
+        Probe()
+        {
+            Method method = null;
+            try
+            {
+                Class<?> hotspot = Class.forName("com.sun.management.ThreadMXBean");
+                if (hotspot.isInstance(threads))
+                {
+                    method = hotspot.getMethod("getThreadAllocatedBytes", long.class);
+                    method.invoke(threads, thread);
+                }
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                method = null;
+            }
+            allocatedBytes = method;
+        }
+
+        boolean measuresAllocations()
+        {
+            return allocatedBytes != null;
+        }
+
+        long cpuTime()
+        {
+            return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+
+        long allocatedBytes()
+        {
+            if (allocatedBytes == null)
+                return 0;
+            try
+            {
+                return (Long) allocatedBytes.invoke(threads, thread);
+            }
+            catch (ReflectiveOperationException e)
+            {
+                return 0;
+            }
+        }
+
+    }
+
+    /**
+     * A stand-in for the parts of a Bukkit server the sidebars use, made of
+     * dynamic proxies. Scoreboard calls that would send a packet are counted
+     * as writes; scheduled tasks run on a virtual clock.
+     */
+    private static final class VirtualServer
+    {
+
+        private static final Object[] NO_ARGS = {};
+
+        private static final List<String> WRITES = Arrays.asList("setPrefix", "setSuffix", "addEntry",
+                "removeEntry", "setDisplayName", "setDisplaySlot", "setScore", "resetScores", "unregister",
+                "registerNewObjective", "registerNewTeam", "setScoreboard");
+
+        private final Map<UUID, Player> online = new LinkedHashMap<>();
+        private final TreeMap<Integer, Task> tasks = new TreeMap<>();
+        private final Logger logger = Logger.getLogger("SidebarSimulator");
+        private int nextTaskId = 1;
+        private long tick = 0, writes = 0;
+
+        private final Server proxy = proxy(Server.class, new Handler()
+        {
+            private final ScoreboardManager scoreboards = proxy(ScoreboardManager.class, new Handler()
+            {
+                private final Scoreboard main = newScoreboard();
+
+                @Override
+                Object handle(String name, Object[] args)
+                {
+                    return name.equals("getMainScoreboard") ? main : newScoreboard();
+                }
+            });
+            private final BukkitScheduler scheduler = proxy(BukkitScheduler.class, new Handler()
+            {
+                @Override
+                Object handle(String name, Object[] args)
+                {
+                    return schedule(name, args);
+                }
+            });
+            private final PluginManager plugins = proxy(PluginManager.class, new Handler());
+
+            @Override
+            Object handle(String name, Object[] args)
+            {
+                switch (name)
+                {
+                case "getScoreboardManager":
+                    return scoreboards;
+                case "getScheduler":
+                    return scheduler;
+                case "getPluginManager":
+                    return plugins;
+                case "getPlayer":
+                    return args[0] instanceof UUID ? online.get(args[0]) : null;
+                case "getOnlinePlayers":
+                    return online.values();
+                case "getLogger":
+                    return logger;
+                case "getBukkitVersion":
+                    return "1.9.4-R0.1-SNAPSHOT";
+                case "getVersion":
+                    return "SidebarSimulator (MC: 1.9.4)";
+                default:
+                    return null;
+                }
+            }
+        });
+
+        private final Plugin plugin = proxy(Plugin.class, new Handler()
+        {
+            @Override
+            Object handle(String name, Object[] args)
+            {
+                switch (name)
+                {
+                case "getLogger":
+                    return logger;
+                case "getServer":
+                    return proxy;
+                case "getName":
+                    return "SidebarSimulator";
+                case "isEnabled":
+                    return true;
+                default:
+                    return null;
+                }
+            }
+        });
+
+        Player join(String name)
+        {
+
+            final UUID uuid = UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+            final String playerName = name;
+            final Scoreboard[] scoreboard = new Scoreboard[1];
+
+            Player player = proxy(Player.class, new Handler()
+            {
+                @Override
+                Object handle(String name, Object[] args)
+                {
+                    switch (name)
+                    {
+                    case "getUniqueId":
+                        return uuid;
+                    case "getName":
+                        return playerName;
+                    case "setScoreboard":
+                        scoreboard[0] = (Scoreboard) args[0];
+                        return null;
+                    case "getScoreboard":
+                        return scoreboard[0];
+                    case "isOnline":
+                        return true;
+                    case "spigot":
+                        return new Player.Spigot();
+                    default:
+                        return null;
+                    }
+                }
+            });
+
+            online.put(uuid, player);
+            return player;
+
+        }
+
+        /**
+         * Advances the virtual clock by one tick and runs the tasks due.
+         */
+        void tick()
+        {
+            tick++;
+            for (Integer id : new ArrayList<>(tasks.keySet()))
+            {
+                Task task = tasks.get(id);
+                if (task == null || task.next > tick)
+                    continue;
+                if (task.period > 0)
+                    task.next += task.period;
+                else
+                    tasks.remove(id);
+                task.runnable.run();
+            }
+        }
+
+        private Object schedule(String name, Object[] args)
+        {
+
+            if (name.equals("cancelTask"))
+            {
+                tasks.remove(args[0]);
+                return null;
+            }
+            if (name.equals("isCurrentlyRunning") || name.equals("isQueued"))
+                return false;
+
+            Runnable runnable = null;
+            long delay = 0, period = -1;
+            int longs = 0;
+            for (Object arg : args)
+                if (arg instanceof Runnable)
+                    runnable = (Runnable) arg;
+                else if (arg instanceof Long && longs++ == 0)
+                    delay = (Long) arg;
+                else if (arg instanceof Long)
+                    period = (Long) arg;
+
+            if (runnable == null)
+                return null;
+
+            final int id = nextTaskId++;
+            tasks.put(id, new Task(runnable, tick + Math.max(1, delay), period));
+
+            return proxy(BukkitTask.class, new Handler()
+            {
+                @Override
+                Object handle(String name, Object[] args)
+                {
+                    switch (name)
+                    {
+                    case "getTaskId":
+                        return id;
+                    case "cancel":
+                        tasks.remove(id);
+                        return null;
+                    case "isCancelled":
+                        return !tasks.containsKey(id);
+                    case "getOwner":
+                        return plugin;
+                    case "isSync":
+                        return true;
+                    default:
+                        return null;
+                    }
+                }
+            });
+
+        }
+
+        private Scoreboard newScoreboard()
+        {
+            return proxy(Scoreboard.class, new Handler()
+            {
+                @Override
+                Object handle(String name, Object[] args)
+                {
+                    switch (name)
+                    {
+                    case "registerNewObjective":
+                        return newObjective();
+                    case "registerNewTeam":
+                        return proxy(Team.class, new Handler());
+                    default:
+                        return null;
+                    }
+                }
+            });
+        }
+
+        private Objective newObjective()
+        {
+            final Score score = proxy(Score.class, new Handler());
+            return proxy(Objective.class, new Handler()
+            {
+                @Override
+                Object handle(String name, Object[] args)
+                {
+                    return name.equals("getScore") ? score : null;
+                }
+            });
+        }
+
+        private <T> T proxy(Class<T> type, InvocationHandler handler)
+        {
+            return type.cast(Proxy.newProxyInstance(SidebarSimulator.class.getClassLoader(), new Class<?>[] { type },
+                    handler));
+        }
+
+        /**
+         * Counts writes and answers the methods of Object; everything else is
+         * passed to {@link #handle(String, Object[])}, whose result is
+         * replaced by a default value if it is null.
+         */
+        private class Handler implements InvocationHandler
+        {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+
+                String name = method.getName();
+                switch (name)
+                {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return method.getDeclaringClass().getSimpleName() + "@" + System.identityHashCode(proxy);
+                default:
+                    break;
+                }
+
+                if (WRITES.contains(name))
+                    writes++;
+
+                Object result = handle(name, args == null ? NO_ARGS : args);
+                if (result != null)
+                    return result;
+
+                Class<?> type = method.getReturnType();
+                if (type == boolean.class)
+                    return false;
+                if (type == int.class)
+                    return 0;
+                if (type == long.class)
+                    return 0L;
+                if (type == double.class)
+                    return 0D;
+                if (type == float.class)
+                    return 0F;
+                if (type == String.class)
+                    return "";
+                return null;
+
+            }
+
+            Object handle(String name, Object[] args)
+            {
+                return null;
+            }
+
+        }
+
+        private static final class Task
+        {
+
+            private final Runnable runnable;
+            private final long period;
+            private long next;
+
+            private Task(Runnable runnable, long next, long period)
+            {
+                this.runnable = runnable;
+                this.next = next;
+                this.period = period;
+            }
+
+        }
+
+    }
+
+}